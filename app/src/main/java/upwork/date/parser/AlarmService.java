@@ -9,61 +9,163 @@ import android.content.Intent;
 import android.media.Ringtone;
 import android.media.RingtoneManager;
 import android.net.Uri;
+import android.os.Binder;
 import android.os.Build;
 import android.os.IBinder;
 
 import androidx.annotation.Nullable;
 import androidx.core.app.NotificationCompat;
 
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.select.Elements;
-
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Foreground service that periodically checks a webpage for a date pattern
- * and triggers an alarm ringtone if the dates differ.
+ * Foreground service that periodically checks the monitored webpages for a date
+ * pattern and triggers an alarm ringtone if any date differs from its target.
+ * The ringtone follows an {@link AlarmStateMachine}, and the foreground
+ * notification is only rebuilt when its visible content changes. The schedule
+ * is persisted, so a restarted service resumes it without checking right away.
+ * Monitors with a push URL are not polled while their event stream is connected.
+ * Checks are held while there is no network and optionally spaced out on
+ * metered or roaming networks. A failing check never ends monitoring: the
+ * scheduler's watchdog restarts monitors whose checks stall. Every result is
+ * published on a {@link ResultStream} that clients in this process reach by
+ * binding to the service.
  */
 public class AlarmService extends Service {
 
+    /**
+     * Binder handed to clients in this process.
+     */
+    public class LocalBinder extends Binder {
+
+        /**
+         * @return Stream of the check results published by the service
+         */
+        public ResultStream results() {
+            return results;
+        }
+    }
+
     public static boolean isServiceRun = false;
 
     public static final String ACTION_START            = "ACTION_START";
+    public static final String ACTION_RESUME           = "ACTION_RESUME";
     public static final String ACTION_UPDATE_INTERVAL  = "ACTION_UPDATE_INTERVAL";
     public static final String ACTION_STOP_ALARM       = "ACTION_STOP_ALARM";
     public static final String ACTION_STOP_SERVICE     = "ACTION_STOP_SERVICE";
 
-    private static final String CHANNEL_ID       = "alarm_service_channel";
+    static final String CHANNEL_ID               = "alarm_service_channel";
     private static final int    NOTIF_ID_FORE    = 1001;
     private static final int    NOTIF_ID_SIMPLE  = 1002;
 
     private long intervalMinutes;
+    private volatile long effectiveMinutes;
+
+    private int monitorCount;
 
-    private ScheduledExecutorService checkScheduler;
+    private MonitorScheduler monitorScheduler;
+    private PushSubscriber pushSubscriber;
+    private NetworkWatcher networkWatcher;
+    private volatile boolean networkMetered;
     private ScheduledExecutorService stopScheduler;
-    private ScheduledFuture<?> stopFuture;
-    private Ringtone ringtone;
+    private final AtomicReference<ScheduledFuture<?>> stopFuture = new AtomicReference<>();
+    private final AlarmStateMachine alarm = new AlarmStateMachine();
+    private final ResultStream results = new ResultStream();
+    private final IBinder binder = new LocalBinder();
+    private volatile Ringtone ringtone;
+    private PendingIntent stopAlarmIntent;
+    private String postedNotification;
+    private CheckHistory history;
+
+    private List<Monitor> scheduledMonitors;
+
+    private final SaveManager.OnSettingsChangedListener settingsListener = settings -> {
+        if (scheduledMonitors != null && !settings.monitors.equals(scheduledMonitors)) {
+            updateInterval(settings.interval);
+        }
+        applyIntervalStretch(settings);
+    };
+
+    private final MismatchTracker mismatched = new MismatchTracker();
+    private final Set<Long> pushConnected = ConcurrentHashMap.newKeySet();
 
     /**
-     * Called when the service is created. Initializes schedulers and ringtone.
+     * Called when the service is created. Initializes the schedulers; the
+     * ringtone is only looked up when the alarm first rings.
      */
     @Override
     public void onCreate() {
         super.onCreate();
         isServiceRun = true;
-        createChannel();
-        checkScheduler = Executors.newSingleThreadScheduledExecutor();
+        createChannel(getSystemService(NotificationManager.class));
+        monitorScheduler = new MonitorScheduler(
+                new FetchPool(Constants.FETCH_POOL_SIZE, Constants.FETCH_PER_HOST_LIMIT),
+                SharedFetcher.getInstance(),
+                DateExtractor.getDefault(),
+                new MonitorScheduler.Listener() {
+                    @Override
+                    public void onChecked(Monitor monitor, DateFetcher.Result result) {
+                        checkAndAlarm(monitor, result);
+                    }
+                    @Override
+                    public void onFailed(Monitor monitor, Throwable error, int latencyMillis) {
+                        error.printStackTrace();
+                        recordCheck(monitor, null, null);
+                        results.publish(CheckResult.failed(monitor.id, CheckFailure.classify(error),
+                                System.currentTimeMillis(), latencyMillis));
+                    }
+                    @Override
+                    public void onRescheduled(Monitor monitor, long delayMillis) {
+                        saveSchedule(monitor);
+                        onIntervalChanged(monitor);
+                    }
+                });
+        monitorScheduler.startWatchdog();
+        pushSubscriber = new PushSubscriber(new PushSubscriber.Listener() {
+            @Override
+            public void onConnected(Monitor monitor) {
+                pushConnected.add(monitor.id);
+                schedulePolling();
+            }
+            @Override
+            public void onDate(Monitor monitor, String date) {
+                checkAndAlarm(monitor, new DateFetcher.Result(date, false));
+            }
+            @Override
+            public void onFallback(Monitor monitor) {
+                pushConnected.remove(monitor.id);
+                schedulePolling();
+            }
+        });
+        networkWatcher = new NetworkWatcher(getApplicationContext(), this::onNetworkChanged);
+        networkWatcher.start();
         stopScheduler  = Executors.newSingleThreadScheduledExecutor();
-        Uri alarmUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM);
-        ringtone = RingtoneManager.getRingtone(this, alarmUri);
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
-            ringtone.setLooping(true);
+        stopScheduler.scheduleAtFixedRate(this::notifyForeground, Constants.WATCHDOG_PERIOD_MILLIS,
+                Constants.WATCHDOG_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+        try {
+            history = CheckHistory.open(
+                    new File(getFilesDir(), Constants.HISTORY_FILE), Constants.HISTORY_CAPACITY);
+        } catch (IOException e) {
+            e.printStackTrace();
         }
+        SaveManager.addListener(getApplicationContext(), settingsListener);
+        stopAlarmIntent = PendingIntent.getService(
+                this, 0,
+                new Intent(this, AlarmService.class).setAction(ACTION_STOP_ALARM),
+                PendingIntent.FLAG_IMMUTABLE);
     }
 
     /**
@@ -76,10 +178,17 @@ public class AlarmService extends Service {
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         String action = intent != null ? intent.getAction() : null;
+        if (intent == null && SaveManager.isMonitoring(getApplicationContext())) {
+            // Restarted by the system after the process was killed.
+            action = ACTION_RESUME;
+        }
 
-        if (ACTION_START.equals(action)) {
+        if (ACTION_START.equals(action) || ACTION_RESUME.equals(action)) {
+            if (ACTION_START.equals(action)) {
+                ScheduleStore.clear(getApplicationContext());
+            }
             intervalMinutes = SaveManager.getInterval(getApplicationContext());
-            startForeground(NOTIF_ID_FORE, buildOngoingNotification(true));
+            startForeground(NOTIF_ID_FORE, buildOngoingNotification(buildIntervalText(), false));
             startChecking();
 
         } else if (ACTION_UPDATE_INTERVAL.equals(action)) {
@@ -87,11 +196,14 @@ public class AlarmService extends Service {
             updateInterval(newInterval);
 
         } else if (ACTION_STOP_ALARM.equals(action)) {
-            if (ringtone.isPlaying()) ringtone.stop();
-            cancelScheduledStop();
-            notifyForeground(false);
+            if (alarm.snooze()) {
+                stopRingtone();
+                cancelScheduledStop();
+            }
+            notifyForeground();
 
         } else if (ACTION_STOP_SERVICE.equals(action)) {
+            ScheduleStore.clear(getApplicationContext());
             stopServiceTasks();
             stopSelf();
         }
@@ -100,148 +212,309 @@ public class AlarmService extends Service {
     }
 
     /**
-     * Schedules periodic checks at the current interval.
+     * Schedules periodic checks of all saved monitors. Does nothing if the
+     * monitors are already scheduled unchanged. The first call resumes the
+     * persisted schedule, so monitors with a saved due time wait for it.
      */
-    private void startChecking() {
-        if (checkScheduler.isShutdown()) return;
-        checkScheduler.scheduleWithFixedDelay(
-                this::checkAndAlarm,
-                0,
-                intervalMinutes,
-                TimeUnit.MINUTES
-        );
+    private synchronized void startChecking() {
+        List<Monitor> monitors = SaveManager.getMonitors(getApplicationContext());
+        if (monitors.equals(scheduledMonitors)) return;
+        Map<Long, ScheduleEntry> saved = Collections.emptyMap();
+        if (scheduledMonitors == null) {
+            saved = ScheduleStore.load(getApplicationContext());
+        }
+        Set<Long> unchanged = new HashSet<>();
+        if (scheduledMonitors != null) {
+            for (Monitor old : scheduledMonitors) {
+                for (Monitor m : monitors) {
+                    if (m.id == old.id && m.url.equals(old.url) && m.target.equals(old.target)) {
+                        unchanged.add(m.id);
+                    }
+                }
+            }
+        }
+        results.retain(unchanged);
+        scheduledMonitors = monitors;
+        monitorCount = monitors.size();
+        Set<Long> ids = new HashSet<>();
+        for (Monitor m : monitors) ids.add(m.id);
+        mismatched.retain(ids);
+        pushConnected.retainAll(ids);
+        monitorScheduler.schedule(polled(monitors), saved);
+        pushSubscriber.subscribe(monitors);
+    }
+
+    /**
+     * Reschedules polling after a push connection was established or lost.
+     */
+    private synchronized void schedulePolling() {
+        if (scheduledMonitors != null) {
+            monitorScheduler.schedule(polled(scheduledMonitors));
+        }
+    }
+
+    /**
+     * @param monitors All monitors
+     * @return The monitors that are not currently served by a push connection
+     */
+    private List<Monitor> polled(List<Monitor> monitors) {
+        if (pushConnected.isEmpty()) return monitors;
+        List<Monitor> out = new ArrayList<>(monitors.size());
+        for (Monitor m : monitors) {
+            if (!pushConnected.contains(m.id)) out.add(m);
+        }
+        return out;
+    }
+
+    /**
+     * Holds checks while offline and catches up once the network is back.
+     * Breakers opened by the failures of a lost network are closed first, so
+     * the catch-up checks are not rejected.
+     * @param online  True if the default network has internet access
+     * @param metered True if that network is metered or roaming
+     */
+    private void onNetworkChanged(boolean online, boolean metered) {
+        networkMetered = metered;
+        if (online) {
+            SharedFetcher.getInstance().resetBreakers();
+        }
+        monitorScheduler.setOnline(online);
+        applyIntervalStretch(SaveManager.getSettings(getApplicationContext()));
+    }
+
+    /**
+     * Stretches the polling intervals while the network is metered, if enabled.
+     * @param settings Current settings snapshot
+     */
+    private void applyIntervalStretch(Settings settings) {
+        monitorScheduler.setIntervalStretch(settings.meteredStretch && networkMetered
+                ? Constants.METERED_INTERVAL_FACTOR : 1.0);
     }
 
     /**
-     * Updates the checking interval at runtime and restarts the scheduler.
+     * Persists the schedule of a monitor after it was rescheduled.
+     * @param monitor Rescheduled monitor
+     */
+    private void saveSchedule(Monitor monitor) {
+        ScheduleEntry entry = monitorScheduler.getScheduleEntry(monitor.id);
+        if (entry != null) {
+            ScheduleStore.save(getApplicationContext(), monitor.id, entry);
+        }
+    }
+
+    /**
+     * Updates the checking interval at runtime and reschedules the monitors.
      * @param newInterval new interval in minutes
      */
     private void updateInterval(long newInterval) {
         this.intervalMinutes = newInterval;
-        if (!checkScheduler.isShutdown()) {
-            checkScheduler.shutdownNow();
-            checkScheduler = Executors.newSingleThreadScheduledExecutor();
-            startChecking();
-            notifyForeground(true);
+        this.effectiveMinutes = newInterval;
+        startChecking();
+        notifyForeground();
+    }
+
+    /**
+     * Refreshes the notification when the effective interval of the primary
+     * monitor changes because of backoff.
+     * @param monitor Rescheduled monitor
+     */
+    private void onIntervalChanged(Monitor monitor) {
+        if (monitor.id != Monitor.PRIMARY_ID) return;
+        long minutes = monitorScheduler.getEffectiveInterval(monitor.id) / 60_000L;
+        if (minutes != effectiveMinutes) {
+            effectiveMinutes = minutes;
+            notifyForeground();
         }
     }
 
     /**
-     * Performs the HTTP request, parses the date, and triggers alarm if needed.
+     * Checks the date fetched for a monitor against its target rules and
+     * triggers the alarm if a rule fires for any monitor.
+     * @param monitor Checked monitor
+     * @param result  Fetch result for the monitor's page
      */
-    private void checkAndAlarm() {
-        try {
-            String url      = SaveManager.getUrl(getApplicationContext());
-            String expected = SaveManager.getTarget(getApplicationContext());
-
-            Document doc = Jsoup.connect(url)
-                    .userAgent("Chrome")
-                    .ignoreHttpErrors(true)
-                    .get();
-            Elements scripts = doc.select("script");
-            String found = scripts.stream()
-                    .map(s -> s.data())
-                    .filter(d -> d.contains("#minmax"))
-                    .map(d -> {
-                        java.util.regex.Matcher m = java.util.regex.Pattern
-                                .compile("-\\s*(\\d{2}\\.\\d{2}\\.\\d{4})")
-                                .matcher(d);
-                        return m.find() ? m.group(1) : null;
-                    })
-                    .filter(txt -> txt != null)
-                    .findFirst()
-                    .orElseThrow(() -> new IOException("Date not found"));
-
-            if (!found.equals(expected)) {
-                if (!ringtone.isPlaying()) {
-                    ringtone.play();
-                    scheduleStop();
-                    notifyForeground(true);
-                }
-            } else {
-                if (ringtone.isPlaying()) ringtone.stop();
-                cancelScheduledStop();
-                notifyForeground(false);
+    private synchronized void checkAndAlarm(Monitor monitor, DateFetcher.Result result) {
+        long compareStart = System.nanoTime();
+        String rule = monitor.firedRule(result);
+        Metrics.get().recordNanos("check.compare", System.nanoTime() - compareStart);
+        recordCheck(monitor, result, rule);
+        results.publish(new CheckResult(monitor.id, result.date, rule,
+                System.currentTimeMillis(), result.latencyMillis));
+        if (monitor.id == Monitor.PRIMARY_ID) {
+            PhraseParser.saveResult(getApplicationContext(), monitor.url, result.date);
+        }
+
+        if (mismatched.record(monitor.id, rule)) {
+            int episode = alarm.ring();
+            if (episode >= 0) {
+                Metrics.get().increment("alarm.rings");
+                ringtone().play();
+                scheduleStop(episode);
+                // The user may have silenced the alarm between the transition and play().
+                if (!alarm.isRinging(episode)) stopRingtone();
             }
+        } else if (alarm.reset()) {
+            stopRingtone();
+            cancelScheduledStop();
+        }
+        notifyForeground();
+    }
 
-        } catch (IOException e) {
-            e.printStackTrace();
+    /**
+     * Counts the outcome of a check and appends it to the history log.
+     * @param monitor Checked monitor
+     * @param result  Fetch result, or null if the check failed
+     * @param rule    Description of the rule that fired, or null if the date matches
+     */
+    private void recordCheck(Monitor monitor, DateFetcher.Result result, String rule) {
+        Metrics.get().increment(result == null ? "check.error"
+                : rule == null ? "check.match" : "check.mismatch");
+        if (history == null) return;
+        if (result == null) {
+            history.append(System.currentTimeMillis(), (int) monitor.id,
+                    CheckHistory.STATUS_ERROR, false, 0, 0, PackedDate.NONE);
+            return;
         }
+        history.append(System.currentTimeMillis(), (int) monitor.id,
+                rule == null
+                        ? CheckHistory.STATUS_MATCH
+                        : CheckHistory.STATUS_MISMATCH,
+                result.unchanged, result.latencyMillis, result.bytes,
+                result.packedDate);
     }
 
     /**
-     * Schedules automatic stop of the ringtone after 2 minutes.
+     * Returns the alarm ringtone, looking it up on first use.
+     * @return The looping alarm ringtone
      */
-    private void scheduleStop() {
-        cancelScheduledStop();
-        stopFuture = stopScheduler.schedule(() -> {
-            if (ringtone.isPlaying()) ringtone.stop();
-            notifyForeground(false);
+    private synchronized Ringtone ringtone() {
+        if (ringtone == null) {
+            Uri alarmUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM);
+            Ringtone r = RingtoneManager.getRingtone(this, alarmUri);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+                r.setLooping(true);
+            }
+            ringtone = r;
+        }
+        return ringtone;
+    }
+
+    /**
+     * Stops the ringtone if it was ever looked up and is playing.
+     */
+    private void stopRingtone() {
+        Ringtone r = ringtone;
+        if (r != null && r.isPlaying()) r.stop();
+    }
+
+    /**
+     * Schedules the automatic stop of a ringing episode after
+     * {@link Constants#NOTIFICATION_TIME} minutes.
+     * @param episode Ringing episode to stop
+     */
+    private void scheduleStop(final int episode) {
+        ScheduledFuture<?> future = stopScheduler.schedule(() -> {
+            if (alarm.autoStop(episode)) {
+                stopRingtone();
+                notifyForeground();
+            }
         }, Constants.NOTIFICATION_TIME, TimeUnit.MINUTES);
+        ScheduledFuture<?> previous = stopFuture.getAndSet(future);
+        if (previous != null) previous.cancel(false);
     }
 
     /**
      * Cancels any scheduled stop tasks.
      */
     private void cancelScheduledStop() {
-        if (stopFuture != null && !stopFuture.isDone()) {
-            stopFuture.cancel(true);
-        }
+        ScheduledFuture<?> previous = stopFuture.getAndSet(null);
+        if (previous != null) previous.cancel(false);
     }
 
     /**
      * Builds the ongoing foreground notification.
+     * @param text           notification text
      * @param withStopAction whether to include the stop button action
      * @return configured Notification
      */
-    private Notification buildOngoingNotification(boolean withStopAction) {
+    private Notification buildOngoingNotification(String text, boolean withStopAction) {
         NotificationCompat.Builder b = new NotificationCompat.Builder(this, CHANNEL_ID)
                 .setContentTitle(getString(R.string.monitoring))
-                .setContentText("Interval: " +  intervalMinutes + " min")
+                .setContentText(text)
                 .setSmallIcon(R.drawable.baseline_access_alarm_24)
                 .setOngoing(true);
 
         if (withStopAction) {
-            Intent stopAlarm = new Intent(this, AlarmService.class)
-                    .setAction(ACTION_STOP_ALARM);
-            PendingIntent piStop = PendingIntent.getService(
-                    this, 0, stopAlarm, PendingIntent.FLAG_IMMUTABLE
-            );
-            b.addAction(R.drawable.baseline_stop_24, getString(R.string.stop), piStop);
+            b.addAction(R.drawable.baseline_stop_24, getString(R.string.stop), stopAlarmIntent);
         }
         return b.build();
     }
 
     /**
-     * Updates the foreground notification display.
-     * @param withStopAction whether to include the stop button action
+     * Builds the notification text with the current effective interval.
+     * @return Text such as "Interval: 15 min (base 10)"
      */
-    private void notifyForeground(boolean withStopAction) {
-        Notification notif = buildOngoingNotification(withStopAction);
-        NotificationManager nm = getSystemService(NotificationManager.class);
-        nm.notify(NOTIF_ID_FORE, notif);
+    private String buildIntervalText() {
+        long minutes = effectiveMinutes > 0 ? effectiveMinutes : intervalMinutes;
+        String text = "Interval: " + minutes + " min";
+        if (minutes != intervalMinutes) {
+            text += " (base " + intervalMinutes + ")";
+        }
+        return monitorCount > 1 ? "Pages: " + monitorCount + ", " + text : text;
+    }
+
+    /**
+     * Posts the foreground notification for the current alarm state and interval,
+     * and shows how many monitors are stalled while the schedule is not kept.
+     * Runs after each watchdog period as well, so a stall appears without a check.
+     * Nothing is built or posted when the visible content is the same as last time.
+     */
+    private synchronized void notifyForeground() {
+        String text = buildIntervalText();
+        SchedulerHealth health = monitorScheduler.getHealth();
+        if (health.isStalled()) {
+            text = getString(R.string.checks_stalled, health.stalledMonitors) + ", " + text;
+        }
+        boolean withStopAction = alarm.getState() == AlarmStateMachine.State.RINGING;
+        if (withStopAction) {
+            String rule = mismatched.firedRule();
+            if (rule != null) text = getString(R.string.rule_fired, rule) + ", " + text;
+        }
+        String visible = withStopAction + "|" + text;
+        if (visible.equals(postedNotification)) {
+            Metrics.get().increment("notify.skipped");
+            return;
+        }
+        postedNotification = visible;
+        Metrics.get().increment("notify.posted");
+        getSystemService(NotificationManager.class)
+                .notify(NOTIF_ID_FORE, buildOngoingNotification(text, withStopAction));
     }
 
     /**
      * Creates the notification channel if needed.
+     * @param nm Notification manager
      */
-    private void createChannel() {
+    static void createChannel(NotificationManager nm) {
         NotificationChannel chan = new NotificationChannel(
                 CHANNEL_ID,
                 "Alarm Service Channel",
                 NotificationManager.IMPORTANCE_HIGH
         );
         chan.setShowBadge(true);
-        getSystemService(NotificationManager.class).createNotificationChannel(chan);
+        nm.createNotificationChannel(chan);
     }
 
     /**
      * Stops all service tasks and removes the foreground status.
      */
     private void stopServiceTasks() {
-        if (!checkScheduler.isShutdown()) checkScheduler.shutdownNow();
+        networkWatcher.stop();
+        pushSubscriber.shutdown();
+        monitorScheduler.shutdown();
         if (!stopScheduler.isShutdown()) stopScheduler.shutdownNow();
-        if (ringtone.isPlaying()) ringtone.stop();
+        alarm.reset();
+        stopRingtone();
         stopForeground(true);
     }
 
@@ -250,19 +523,21 @@ public class AlarmService extends Service {
      */
     @Override
     public void onDestroy() {
+        SaveManager.removeListener(settingsListener);
         stopServiceTasks();
         super.onDestroy();
         isServiceRun = false;
     }
 
     /**
-     * Binding is not supported. Returns null.
+     * Returns the binder of the result stream. Binding does not start checks;
+     * clients bound without auto-create only see results while the service runs.
      * @param intent the Intent that was used to bind to this service
-     * @return null
+     * @return The {@link LocalBinder}
      */
     @Nullable
     @Override
     public IBinder onBind(Intent intent) {
-        return null;
+        return binder;
     }
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+/**
+ * BootReceiver resumes monitoring after a reboot or an app update when it was
+ * on before. Low-power jobs are persisted by WorkManager and need nothing; the
+ * foreground service is restarted with its saved schedule, so no page is
+ * fetched before it is due. Where the system does not allow starting the
+ * service from the background, a notification asks the user to reopen the app.
+ */
+package upwork.date.parser;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import androidx.core.app.NotificationCompat;
+
+public class BootReceiver extends BroadcastReceiver {
+
+    private static final int NOTIF_ID_RESUME = 1003;
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        if (!Intent.ACTION_BOOT_COMPLETED.equals(action)
+                && !Intent.ACTION_MY_PACKAGE_REPLACED.equals(action)) {
+            return;
+        }
+        Settings settings = SaveManager.getSettings(context);
+        if (!settings.monitoring || CheckWorker.isUsable(settings)) {
+            return;
+        }
+        try {
+            context.startForegroundService(new Intent(context, AlarmService.class)
+                    .setAction(AlarmService.ACTION_RESUME));
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            notifyResume(context);
+        }
+    }
+
+    /**
+     * Posts a notification that reopens the app, which resumes the service.
+     */
+    private static void notifyResume(Context context) {
+        NotificationManager nm = context.getSystemService(NotificationManager.class);
+        AlarmService.createChannel(nm);
+        PendingIntent open = PendingIntent.getActivity(
+                context, 0,
+                new Intent(context, MainActivity.class),
+                PendingIntent.FLAG_IMMUTABLE);
+        Notification notif = new NotificationCompat.Builder(context, AlarmService.CHANNEL_ID)
+                .setContentTitle(context.getString(R.string.app_name))
+                .setContentText(context.getString(R.string.tap_to_resume_monitoring))
+                .setSmallIcon(R.drawable.baseline_access_alarm_24)
+                .setContentIntent(open)
+                .setAutoCancel(true)
+                .build();
+        nm.notify(NOTIF_ID_RESUME, notif);
+    }
+}
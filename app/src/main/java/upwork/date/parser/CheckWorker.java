@@ -0,0 +1,229 @@
+/**
+ * CheckWorker performs a single low-power check of one monitor as a WorkManager
+ * job. No thread is kept alive between checks: each run fetches the page once,
+ * posts the alarm notification on a mismatch, and enqueues the next one-shot job
+ * with the delay taken from the monitor's {@link PollPolicy}. Jobs only run with
+ * a network, so nothing wakes up while offline.
+ */
+package upwork.date.parser;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.media.AudioAttributes;
+import android.media.RingtoneManager;
+import android.service.notification.StatusBarNotification;
+import androidx.annotation.NonNull;
+import androidx.core.app.NotificationCompat;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+public class CheckWorker extends Worker {
+
+    private static final String WORK_PREFIX   = "date_check_";
+    private static final String TAG_CHECK     = "date_check";
+    private static final String KEY_ID        = "monitor_id";
+    private static final String KEY_STREAK    = "streak";
+    private static final String KEY_LAST_DATE = "last_date";
+
+    private static final String ALARM_CHANNEL_ID = "alarm_channel";
+    private static final String NOTIF_TAG_ALARM  = "alarm";
+
+    private static final Random random = new Random();
+
+    public CheckWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Tells whether the low-power mode can be used for the given settings.
+     * Intervals below {@link Constants#LOW_POWER_MIN_INTERVAL} need the foreground service.
+     * @param settings Current settings snapshot
+     * @return True if checks should run as scheduled jobs
+     */
+    public static boolean isUsable(Settings settings) {
+        return settings.lowPower && settings.interval >= Constants.LOW_POWER_MIN_INTERVAL;
+    }
+
+    /**
+     * Schedules the first job of every monitor, replacing any pending chain.
+     * @param context Application context
+     */
+    public static void startAll(Context context) {
+        WorkManager wm = WorkManager.getInstance(context);
+        wm.cancelAllWorkByTag(TAG_CHECK);
+        for (Monitor monitor : SaveManager.getMonitors(context)) {
+            enqueue(wm, ExistingWorkPolicy.REPLACE, monitor.id, 0, null, 0L);
+        }
+    }
+
+    /**
+     * Cancels all pending jobs and removes the alarm notification.
+     * @param context Application context
+     */
+    public static void stopAll(Context context) {
+        WorkManager.getInstance(context).cancelAllWorkByTag(TAG_CHECK);
+        NotificationManager nm = context.getSystemService(NotificationManager.class);
+        for (StatusBarNotification sbn : nm.getActiveNotifications()) {
+            if (NOTIF_TAG_ALARM.equals(sbn.getTag())) {
+                nm.cancel(NOTIF_TAG_ALARM, sbn.getId());
+            }
+        }
+    }
+
+    /**
+     * Fetches the monitor's page once, alarms on mismatch and schedules the next run.
+     * @return Always success; failures only move the backoff one step
+     */
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        Settings settings = SaveManager.getSettings(context);
+        long id = getInputData().getLong(KEY_ID, Monitor.PRIMARY_ID);
+        Monitor monitor = null;
+        for (Monitor m : settings.monitors) {
+            if (m.id == id) monitor = m;
+        }
+        if (monitor == null || !settings.monitoring || !isUsable(settings)) {
+            return Result.success();
+        }
+
+        int streak = getInputData().getInt(KEY_STREAK, 0);
+        String lastDate = getInputData().getString(KEY_LAST_DATE);
+        CheckHistory history = openHistory(context);
+        try {
+            DateFetcher.Result result = SharedFetcher.getInstance()
+                    .fetch(monitor.url, monitor.extractor(DateExtractor.getDefault()));
+            String date = result.date;
+            String rule = monitor.firedRule(result);
+            boolean match = rule == null;
+            Metrics.get().increment(match ? "check.match" : "check.mismatch");
+            if (history != null) {
+                history.append(System.currentTimeMillis(), (int) monitor.id,
+                        match ? CheckHistory.STATUS_MATCH : CheckHistory.STATUS_MISMATCH,
+                        result.unchanged, result.latencyMillis, result.bytes,
+                        result.packedDate);
+            }
+            if (monitor.id == Monitor.PRIMARY_ID) {
+                PhraseParser.saveResult(context, monitor.url, date);
+            }
+            streak = match && date.equals(lastDate) ? streak + 1 : 0;
+            lastDate = date;
+            if (match) {
+                clearAlarm(context, monitor);
+            } else {
+                raiseAlarm(context, monitor, date, rule);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            Metrics.get().increment("check.error");
+            if (history != null) {
+                history.append(System.currentTimeMillis(), (int) monitor.id,
+                        CheckHistory.STATUS_ERROR, false, 0, 0, PackedDate.NONE);
+            }
+            streak++;
+        }
+
+        if (!isStopped()) {
+            long delay = monitor.policy.nextDelayMillis(streak, random);
+            if (settings.meteredStretch && NetworkWatcher.isMetered(context)) {
+                delay = (long) (delay * Constants.METERED_INTERVAL_FACTOR);
+            }
+            enqueue(WorkManager.getInstance(context), ExistingWorkPolicy.APPEND_OR_REPLACE,
+                    monitor.id, streak, lastDate, delay);
+        }
+        return Result.success();
+    }
+
+    private static CheckHistory openHistory(Context context) {
+        try {
+            return CheckHistory.open(
+                    new File(context.getFilesDir(), Constants.HISTORY_FILE), Constants.HISTORY_CAPACITY);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static void enqueue(WorkManager wm, ExistingWorkPolicy policy,
+                                long id, int streak, String lastDate, long delayMillis) {
+        Data input = new Data.Builder()
+                .putLong(KEY_ID, id)
+                .putInt(KEY_STREAK, streak)
+                .putString(KEY_LAST_DATE, lastDate)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(CheckWorker.class)
+                .setInitialDelay(delayMillis, TimeUnit.MILLISECONDS)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .setInputData(input)
+                .addTag(TAG_CHECK)
+                .build();
+        wm.enqueueUniqueWork(WORK_PREFIX + id, policy, request);
+    }
+
+    /**
+     * Posts the alarm notification with the alarm sound.
+     */
+    private static void raiseAlarm(Context context, Monitor monitor, String date, String rule) {
+        NotificationManager nm = context.getSystemService(NotificationManager.class);
+        createChannel(nm);
+        PendingIntent open = PendingIntent.getActivity(
+                context, 0,
+                new Intent(context, MainActivity.class),
+                PendingIntent.FLAG_IMMUTABLE);
+        Notification notif = new NotificationCompat.Builder(context, ALARM_CHANNEL_ID)
+                .setContentTitle(context.getString(R.string.phrase_does_not_match))
+                .setContentText(date + " / " + context.getString(R.string.rule_fired, rule))
+                .setSmallIcon(R.drawable.baseline_access_alarm_24)
+                .setCategory(NotificationCompat.CATEGORY_ALARM)
+                .setPriority(NotificationCompat.PRIORITY_MAX)
+                .setContentIntent(open)
+                .setAutoCancel(true)
+                .build();
+        nm.notify(NOTIF_TAG_ALARM, (int) monitor.id, notif);
+    }
+
+    /**
+     * Removes the alarm notification of a monitor that matches again.
+     */
+    private static void clearAlarm(Context context, Monitor monitor) {
+        context.getSystemService(NotificationManager.class)
+                .cancel(NOTIF_TAG_ALARM, (int) monitor.id);
+    }
+
+    /**
+     * Creates the alarm notification channel if needed.
+     */
+    private static void createChannel(NotificationManager nm) {
+        if (nm.getNotificationChannel(ALARM_CHANNEL_ID) != null) return;
+        NotificationChannel chan = new NotificationChannel(
+                ALARM_CHANNEL_ID,
+                "Alarm Channel",
+                NotificationManager.IMPORTANCE_HIGH
+        );
+        chan.setSound(
+                RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM),
+                new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_ALARM)
+                        .build());
+        chan.enableVibration(true);
+        chan.setShowBadge(true);
+        nm.createNotificationChannel(chan);
+    }
+}
@@ -1,16 +1,23 @@
 /**
  * MainActivity hosts the UI for configuring monitoring settings and displays
  * the current match status of the target phrase against the monitored page.
+ * While monitoring, results come from the service's {@link ResultStream}; the
+ * activity only fetches the page itself when asked to check.
  */
 package upwork.date.parser;
 
+import android.content.ComponentName;
 import android.content.Intent;
+import android.content.ServiceConnection;
 import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.IBinder;
 import android.text.Editable;
 import android.text.TextWatcher;
+import android.text.format.DateUtils;
 import android.view.View;
+import android.widget.AdapterView;
 import android.widget.Toast;
 import androidx.activity.EdgeToEdge;
 import androidx.annotation.NonNull;
@@ -21,11 +28,40 @@ import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 import upwork.date.parser.databinding.ActivityMainBinding;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class MainActivity extends AppCompatActivity {
 
     private ActivityMainBinding binding;
+    private boolean showingStale;
+    private ResultStream results;
 
+    private final ResultStream.Observer resultObserver = result -> {
+        if (result.monitorId != Monitor.PRIMARY_ID || !SaveManager.isMonitoring(this)) {
+            return;
+        }
+        if (result.isFailure()) {
+            showSavedResult();
+        } else {
+            showPhrase(result.date, result.rule, 0L);
+        }
+    };
+
+    private final ServiceConnection connection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder service) {
+            results = ((AlarmService.LocalBinder) service).results();
+            results.subscribe(ContextCompat.getMainExecutor(MainActivity.this), resultObserver);
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            detachResults();
+        }
+    };
 
     /**
      * Initializes UI and prepares edge-to-edge layout.
@@ -45,11 +81,38 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * Restores monitoring state when returning to this activity.
+     * Attaches to the service's result stream. The binding does not create
+     * the service; it connects whenever the service is running.
+     */
+    @Override
+    protected void onStart() {
+        super.onStart();
+        bindService(new Intent(this, AlarmService.class), connection, 0);
+    }
+
+    /**
+     * Detaches from the result stream.
+     */
+    @Override
+    protected void onStop() {
+        detachResults();
+        unbindService(connection);
+        super.onStop();
+    }
+
+    /**
+     * Restores monitoring state when returning to this activity and restarts
+     * the service if it should be running but is not, e.g. after a reboot.
      */
     @Override
     protected void onResume() {
         super.onResume();
+        Settings settings = SaveManager.getSettings(this);
+        if (settings.monitoring && !CheckWorker.isUsable(settings) && !AlarmService.isServiceRun) {
+            Intent svc = new Intent(this, AlarmService.class)
+                    .setAction(AlarmService.ACTION_RESUME);
+            startForegroundService(svc);
+        }
         setMonitoring();
     }
 
@@ -57,9 +120,19 @@ public class MainActivity extends AppCompatActivity {
      * Sets up UI fields with saved values and listeners.
      */
     private void initUI() {
-        binding.timeInterval.setText(String.valueOf(SaveManager.getInterval(this)));
-        binding.urlField.setText(SaveManager.getUrl(this));
-        binding.targetPhrase.setText(SaveManager.getTarget(this));
+        Settings settings = SaveManager.getSettings(this);
+        binding.timeInterval.setText(String.valueOf(settings.interval));
+        binding.urlField.setText(settings.url);
+        binding.targetPhrase.setText(settings.target);
+        binding.pushUrlField.setText(settings.pushUrl);
+        Monitor primary = settings.monitors.get(0);
+        binding.sourceSpinner.setSelection(primary.source.ordinal());
+        binding.jsonPathField.setText(primary.path);
+        binding.jsonPathField.setVisibility(primary.source == SourceType.JSON ? View.VISIBLE : View.GONE);
+        binding.lowPowerSwitch.setChecked(settings.lowPower);
+        binding.meteredSwitch.setChecked(settings.meteredStretch);
+        binding.backoffSwitch.setChecked(primary.policy.backoffFactor > 1.0);
+        binding.extraPagesField.setText(formatExtraPages(settings.monitors));
         setListeners();
         checkInputs();
         checkNotificationPermission();
@@ -74,14 +147,18 @@ public class MainActivity extends AppCompatActivity {
                 stopMonitoring();
                 SaveManager.isMonitoring(this, false);
             } else {
-                startMonitoring();
                 SaveManager.isMonitoring(this, true);
+                startMonitoring();
             }
             setMonitoring();
         });
 
         binding.checkNowBtn.setOnClickListener(view -> checkTargetPhrase());
         binding.applyBtn.setOnClickListener(view -> applyInputs());
+        binding.titleLabel.setOnLongClickListener(view -> {
+            startActivity(new Intent(this, MetricsActivity.class));
+            return true;
+        });
 
         TextWatcher watcher = new TextWatcher() {
             @Override public void beforeTextChanged(CharSequence s, int st, int c, int a) {}
@@ -92,28 +169,128 @@ public class MainActivity extends AppCompatActivity {
         binding.timeInterval.addTextChangedListener(watcher);
         binding.urlField.addTextChangedListener(watcher);
         binding.targetPhrase.addTextChangedListener(watcher);
+        binding.pushUrlField.addTextChangedListener(watcher);
+        binding.jsonPathField.addTextChangedListener(watcher);
+        binding.extraPagesField.addTextChangedListener(watcher);
+        binding.sourceSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                binding.jsonPathField.setVisibility(
+                        selectedSource() == SourceType.JSON ? View.VISIBLE : View.GONE);
+                checkInputs();
+            }
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {}
+        });
+        binding.lowPowerSwitch.setOnCheckedChangeListener((button, checked) -> checkInputs());
+        binding.meteredSwitch.setOnCheckedChangeListener((button, checked) -> checkInputs());
+        binding.backoffSwitch.setOnCheckedChangeListener((button, checked) -> checkInputs());
     }
 
     /**
      * Validates input fields and toggles the Apply button visibility.
      */
     private void checkInputs() {
+        Settings settings = SaveManager.getSettings(this);
         boolean showBtn = false;
         String interval = binding.timeInterval.getText().toString();
-        if (!interval.equals(String.valueOf(SaveManager.getInterval(this)))) {
+        if (!interval.equals(String.valueOf(settings.interval))) {
             showBtn = true;
         }
         String url = binding.urlField.getText().toString();
-        if (!url.equals(SaveManager.getUrl(this))) {
+        if (!url.equals(settings.url)) {
             showBtn = true;
         }
         String target = binding.targetPhrase.getText().toString();
-        if (!target.equals(SaveManager.getTarget(this))) {
+        if (!target.equals(settings.target)) {
+            showBtn = true;
+        }
+        String pushUrl = binding.pushUrlField.getText().toString().trim();
+        if (!pushUrl.equals(settings.pushUrl)) {
+            showBtn = true;
+        }
+        Monitor primary = settings.monitors.get(0);
+        if (selectedSource() != primary.source
+                || !binding.jsonPathField.getText().toString().trim().equals(primary.path)) {
+            showBtn = true;
+        }
+        if (binding.lowPowerSwitch.isChecked() != settings.lowPower) {
+            showBtn = true;
+        }
+        if (binding.meteredSwitch.isChecked() != settings.meteredStretch) {
+            showBtn = true;
+        }
+        if (binding.backoffSwitch.isChecked() != primary.policy.backoffFactor > 1.0) {
+            showBtn = true;
+        }
+        String extraPages = binding.extraPagesField.getText().toString().trim();
+        if (!extraPages.equals(formatExtraPages(settings.monitors))) {
             showBtn = true;
         }
         binding.applyBtn.setVisibility(showBtn ? View.VISIBLE : View.GONE);
     }
 
+    /**
+     * @return Source type chosen in the spinner, whose entries follow {@link SourceType} order
+     */
+    private SourceType selectedSource() {
+        int position = binding.sourceSpinner.getSelectedItemPosition();
+        SourceType[] types = SourceType.values();
+        return position >= 0 && position < types.length ? types[position] : SourceType.HTML;
+    }
+
+    /**
+     * Formats the monitors other than the primary one as "URL target" lines.
+     * @param monitors Saved monitors, primary first
+     * @return One line per extra page
+     */
+    private static String formatExtraPages(List<Monitor> monitors) {
+        StringBuilder text = new StringBuilder();
+        for (Monitor m : monitors) {
+            if (m.id == Monitor.PRIMARY_ID) continue;
+            if (text.length() > 0) text.append('\n');
+            text.append(m.url).append(' ').append(m.target);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Parses the extra pages field, one "URL target" per line as in the batch
+     * input. A page keeps the id it had for the same URL, so its schedule and
+     * history survive the edit; new pages get the next free id.
+     * @param text     Contents of the extra pages field
+     * @param interval Polling interval entered for the primary page
+     * @param backoff  Backoff factor chosen for the primary page
+     * @return The extra monitors, or null after showing an error
+     */
+    private List<Monitor> parseExtraPages(String text, int interval, double backoff) {
+        List<Monitor> saved = SaveManager.getMonitors(this);
+        PollPolicy policy = new PollPolicy(interval, Math.max(interval, Constants.DEFAULT_MAX_INTERVAL),
+                backoff, Constants.DEFAULT_JITTER);
+        Map<String, Long> ids = new HashMap<>();
+        long nextId = Monitor.PRIMARY_ID + 1;
+        for (Monitor m : saved) {
+            if (m.id == Monitor.PRIMARY_ID) continue;
+            ids.put(m.url, m.id);
+            nextId = Math.max(nextId, m.id + 1);
+        }
+        List<Monitor> monitors = new ArrayList<>();
+        String[] lines = text.split("\n");
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i].trim();
+            if (line.isEmpty()) continue;
+            String[] parts = line.split("\\s+", 2);
+            if (parts.length < 2) {
+                Toast.makeText(this, getString(R.string.extra_pages_incorrect_format, i + 1),
+                        Toast.LENGTH_SHORT).show();
+                return null;
+            }
+            Long id = ids.remove(parts[0]);
+            monitors.add(new Monitor(id != null ? id : nextId++, parts[0], parts[1].trim(), policy));
+        }
+        return monitors;
+    }
+
     /**
      * Applies and saves user inputs, then triggers an immediate check.
      */
@@ -139,15 +316,47 @@ public class MainActivity extends AppCompatActivity {
             Toast.makeText(this, getString(R.string.target_phrase_cannot_be_empty), Toast.LENGTH_SHORT).show();
             return;
         }
+        SourceType source = selectedSource();
+        String path = binding.jsonPathField.getText().toString().trim();
+        if (source == SourceType.JSON && path.isEmpty()) {
+            Toast.makeText(this, getString(R.string.json_path_cannot_be_empty), Toast.LENGTH_SHORT).show();
+            return;
+        }
+        double backoff = binding.backoffSwitch.isChecked()
+                ? Constants.BACKOFF_FACTOR : Constants.DEFAULT_BACKOFF_FACTOR;
+        List<Monitor> monitors = parseExtraPages(
+                binding.extraPagesField.getText().toString(), interval, backoff);
+        if (monitors == null) {
+            return;
+        }
         binding.applyBtn.setVisibility(View.GONE);
-        SaveManager.setInterval(this, interval);
-        SaveManager.setUrl(this, url);
-        SaveManager.setTarget(this, target);
+        boolean wasLowPower = CheckWorker.isUsable(SaveManager.getSettings(this));
+        SaveManager.edit(this)
+                .setInterval(interval)
+                .setUrl(url)
+                .setTarget(target)
+                .setPushUrl(binding.pushUrlField.getText().toString().trim())
+                .setSource(source, source == SourceType.JSON ? path : "")
+                .setLowPower(binding.lowPowerSwitch.isChecked())
+                .setMeteredStretch(binding.meteredSwitch.isChecked())
+                .setBackoff(Math.max(interval, Constants.DEFAULT_MAX_INTERVAL), backoff,
+                        Constants.DEFAULT_JITTER)
+                .setMonitors(monitors)
+                .apply();
         if (SaveManager.isMonitoring(this)) {
-            checkTargetPhrase();
-            Intent svc = new Intent(this, AlarmService.class)
-                    .setAction(AlarmService.ACTION_UPDATE_INTERVAL);
-            startForegroundService(svc);
+            showLastResult();
+            refreshWithoutService();
+            boolean lowPower = CheckWorker.isUsable(SaveManager.getSettings(this));
+            if (lowPower != wasLowPower) {
+                stopMonitoring();
+                startMonitoring();
+            } else if (lowPower) {
+                CheckWorker.startAll(this);
+            } else {
+                Intent svc = new Intent(this, AlarmService.class)
+                        .setAction(AlarmService.ACTION_UPDATE_INTERVAL);
+                startForegroundService(svc);
+            }
         }
     }
 
@@ -160,7 +369,8 @@ public class MainActivity extends AppCompatActivity {
             binding.startStopText.setText(getString(R.string.stop));
             binding.matchCard.setVisibility(View.VISIBLE);
             binding.startStopText.setTextColor(getColor(R.color.button_stop_text));
-            checkTargetPhrase();
+            showLastResult();
+            refreshWithoutService();
         } else {
             binding.titleLabel.setText(getString(R.string.stopped));
             binding.startStopText.setText(getString(R.string.start));
@@ -170,9 +380,14 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * Initiates an asynchronous check of the target phrase via WorkManager.
+     * Starts monitoring either as low-power WorkManager jobs or, for short
+     * intervals or when low-power mode is off, in the foreground service.
      */
     private void startMonitoring() {
+        if (CheckWorker.isUsable(SaveManager.getSettings(this))) {
+            CheckWorker.startAll(this);
+            return;
+        }
         Intent svc = new Intent(this, AlarmService.class)
                 .setAction(AlarmService.ACTION_START);
         startForegroundService(svc);
@@ -182,6 +397,7 @@ public class MainActivity extends AppCompatActivity {
      * Cancels active monitoring jobs and stops any active alarm service.
      */
     private void stopMonitoring() {
+        CheckWorker.stopAll(this);
         if (AlarmService.isServiceRun) {
             Intent intent = new Intent(this, AlarmService.class)
                     .setAction(AlarmService.ACTION_STOP_SERVICE);
@@ -189,16 +405,64 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Stops receiving results from the service.
+     */
+    private void detachResults() {
+        if (results != null) {
+            results.unsubscribe(resultObserver);
+            results = null;
+        }
+    }
+
+    /**
+     * Renders the latest result published by the service, or else the last
+     * saved result of the current URL as stale until the next check replaces it.
+     */
+    private void showLastResult() {
+        CheckResult latest = results != null ? results.latest(Monitor.PRIMARY_ID) : null;
+        if (latest != null && !latest.isFailure()) {
+            checkPhraseMatching(latest.date, 0L);
+            return;
+        }
+        showSavedResult();
+    }
+
+    /**
+     * Renders the last saved result of the current URL as stale, e.g. while
+     * checks fail.
+     */
+    private void showSavedResult() {
+        LastResult last = PhraseParser.loadResult(this);
+        if (last != null && last.isFor(SaveManager.getUrl(this))) {
+            checkPhraseMatching(last.date, last.fetchedAtMillis);
+        }
+    }
+
+    /**
+     * Checks the page once while monitoring in low-power mode. The scheduled
+     * jobs publish nothing to the activity, so without this the saved result
+     * would stay on screen as stale until the activity is reopened.
+     */
+    private void refreshWithoutService() {
+        if (results == null && CheckWorker.isUsable(SaveManager.getSettings(this))) {
+            checkTargetPhrase();
+        }
+    }
+
     /**
      * Triggers a one-time asynchronous check of the current target phrase.
+     * Used on request and in low-power mode; while the service runs, its
+     * published results update the screen.
      */
     private void checkTargetPhrase() {
         PhraseParser.parsePhraseAsync(
-                SaveManager.getUrl(this),
+                this,
+                SaveManager.getSettings(this).monitors.get(0),
                 new PhraseParser.OnPhraseParsedListener() {
                     @Override
                     public void onDateParsed(@NonNull String phrase) {
-                        checkPhraseMatching(phrase);
+                        checkPhraseMatching(phrase, 0L);
                     }
                     @Override
                     public void onError(@NonNull Exception error) {
@@ -207,24 +471,46 @@ public class MainActivity extends AppCompatActivity {
                                         error.getLocalizedMessage(),
                                         Toast.LENGTH_SHORT)
                                 .show();
-                        binding.matchCard.setVisibility(View.GONE);
+                        if (!showingStale) {
+                            binding.matchCard.setVisibility(View.GONE);
+                        }
                     }
                 }
         );
     }
 
     /**
-     * Displays the parsed phrase and updates UI color based on match result.
+     * Displays the parsed phrase and updates UI color based on the target rules.
+     * @param phrase     Parsed date
+     * @param staleSince Fetch time of a saved result, or 0 for a fresh one
+     */
+    private void checkPhraseMatching(String phrase, long staleSince) {
+        TargetRules rules = SaveManager.getSettings(this).monitors.get(0).rules;
+        showPhrase(phrase, rules.describe(rules.firedRule(PackedDate.parse(phrase), phrase)), staleSince);
+    }
+
+    /**
+     * Displays a phrase with an already known match state.
+     * @param phrase     Parsed date
+     * @param rule       Description of the target rule that fired, or null if the phrase matches
+     * @param staleSince Fetch time of a saved result, or 0 for a fresh one
      */
-    private void checkPhraseMatching(String phrase) {
+    private void showPhrase(String phrase, String rule, long staleSince) {
+        boolean isMatch = rule == null;
+        showingStale = staleSince > 0;
         binding.matchCard.setVisibility(View.VISIBLE);
+        binding.matchCard.setAlpha(showingStale ? 0.6f : 1f);
         binding.parsedResult.setText(phrase);
-        boolean isMatch = phrase.equals(SaveManager.getTarget(this));
         int colorRes = isMatch ? R.color.match_color : R.color.not_match_color;
         int textRes = isMatch ? R.string.match : R.string.not_match;
         binding.matchCard.setCardBackgroundColor(getColor(colorRes));
         binding.matchText.setTextColor(getColor(colorRes));
-        binding.matchText.setText(getString(textRes));
+        String status = isMatch ? getString(textRes)
+                : getString(R.string.not_match_rule, getString(textRes), rule);
+        binding.matchText.setText(showingStale
+                ? getString(R.string.stale_result, status,
+                        DateUtils.getRelativeTimeSpanString(staleSince))
+                : status);
         binding.parsedResult.setTextColor(getColor(colorRes));
 
     }
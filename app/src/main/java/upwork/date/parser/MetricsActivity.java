@@ -0,0 +1,95 @@
+/**
+ * MetricsActivity is a debug screen that shows the current check metrics,
+ * the latest checks and the date changes of the last day from the
+ * {@link CheckHistory}. Opening it also writes the dump to logcat and to a
+ * file in the app's files directory so it can be pulled from a device.
+ */
+package upwork.date.parser;
+
+import android.os.Bundle;
+import android.text.format.DateUtils;
+import android.util.Log;
+import androidx.appcompat.app.AppCompatActivity;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import upwork.date.parser.databinding.ActivityMetricsBinding;
+
+public class MetricsActivity extends AppCompatActivity {
+
+    private static final String TAG = "Metrics";
+    private static final String DUMP_FILE = "metrics.txt";
+    private static final int RECENT_CHECKS = 20;
+
+    private ActivityMetricsBinding binding;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        binding = ActivityMetricsBinding.inflate(getLayoutInflater());
+        setContentView(binding.getRoot());
+    }
+
+    /**
+     * Refreshes the dump every time the screen is shown.
+     */
+    @Override
+    protected void onResume() {
+        super.onResume();
+        StringBuilder text = new StringBuilder(Metrics.get().dump());
+        appendHistory(text);
+        String dump = text.toString();
+        binding.metricsText.setText(dump.isEmpty() ? "No checks recorded yet" : dump);
+        Log.i(TAG, dump);
+        writeDump(dump);
+    }
+
+    /**
+     * Appends the latest checks and the date changes of the last day.
+     * @param text Dump to append to
+     */
+    private void appendHistory(StringBuilder text) {
+        CheckHistory history;
+        try {
+            history = CheckHistory.open(
+                    new File(getFilesDir(), Constants.HISTORY_FILE), Constants.HISTORY_CAPACITY);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        if (history.size() == 0) return;
+        text.append("\nlast checks\n");
+        for (CheckHistory.Record record : history.last(RECENT_CHECKS)) {
+            appendRecord(text, record);
+        }
+        long now = System.currentTimeMillis();
+        List<CheckHistory.Record> changes = history.changes(now - DateUtils.DAY_IN_MILLIS, now + 1);
+        text.append("\nchanges in the last day ").append(changes.size()).append('\n');
+        for (CheckHistory.Record record : changes) {
+            appendRecord(text, record);
+        }
+    }
+
+    private static void appendRecord(StringBuilder text, CheckHistory.Record record) {
+        String status = record.status == CheckHistory.STATUS_MATCH ? "match"
+                : record.status == CheckHistory.STATUS_MISMATCH ? "mismatch" : "error";
+        String date = record.date == PackedDate.NONE ? "-" : PackedDate.format(record.date);
+        text.append(String.format(Locale.US, "%tF %<tT page=%d %s %s %dms%s\n",
+                record.timestamp, record.urlId, status, date, record.latencyMillis,
+                (record.flags & CheckHistory.FLAG_CACHED) != 0 ? " cached" : ""));
+    }
+
+    /**
+     * Writes the dump to {@link #DUMP_FILE}, replacing the previous one.
+     */
+    private void writeDump(String dump) {
+        try (FileOutputStream out = new FileOutputStream(new File(getFilesDir(), DUMP_FILE))) {
+            out.write(dump.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
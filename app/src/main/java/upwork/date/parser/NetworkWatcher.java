@@ -0,0 +1,109 @@
+/**
+ * NetworkWatcher follows the default network and reports whether checks can
+ * reach the internet and whether the connection is metered or roaming. Only
+ * changes are reported, on the connectivity callback thread.
+ */
+package upwork.date.parser;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.os.Build;
+import androidx.annotation.NonNull;
+
+public class NetworkWatcher {
+
+    /**
+     * Receives network changes.
+     */
+    public interface Listener {
+
+        /**
+         * Invoked once on start and then whenever the state changes.
+         * @param online  True if the default network has internet access
+         * @param metered True if that network is metered or roaming
+         */
+        void onNetworkChanged(boolean online, boolean metered);
+    }
+
+    private final ConnectivityManager cm;
+    private final Listener listener;
+    private boolean registered;
+    private boolean reported;
+    private boolean online;
+    private boolean metered;
+
+    private final ConnectivityManager.NetworkCallback callback = new ConnectivityManager.NetworkCallback() {
+        @Override
+        public void onCapabilitiesChanged(@NonNull Network network, @NonNull NetworkCapabilities caps) {
+            update(caps);
+        }
+
+        @Override
+        public void onLost(@NonNull Network network) {
+            // Another network may already have taken over as the default.
+            Network active = cm.getActiveNetwork();
+            update(active == null || active.equals(network) ? null : cm.getNetworkCapabilities(active));
+        }
+    };
+
+    /**
+     * @param context  Application context
+     * @param listener Receiver of network changes
+     */
+    public NetworkWatcher(Context context, Listener listener) {
+        this.cm = context.getSystemService(ConnectivityManager.class);
+        this.listener = listener;
+    }
+
+    /**
+     * Reports the current state and starts following the default network.
+     */
+    public synchronized void start() {
+        if (registered) return;
+        registered = true;
+        update(cm.getNetworkCapabilities(cm.getActiveNetwork()));
+        cm.registerDefaultNetworkCallback(callback);
+    }
+
+    /**
+     * Stops following the network.
+     */
+    public synchronized void stop() {
+        if (!registered) return;
+        registered = false;
+        reported = false;
+        cm.unregisterNetworkCallback(callback);
+    }
+
+    /**
+     * Tells whether the active network is metered or roaming.
+     * @param context Application context
+     * @return False when there is no active network
+     */
+    public static boolean isMetered(Context context) {
+        ConnectivityManager cm = context.getSystemService(ConnectivityManager.class);
+        NetworkCapabilities caps = cm.getNetworkCapabilities(cm.getActiveNetwork());
+        return caps != null && isMetered(caps);
+    }
+
+    private static boolean isMetered(NetworkCapabilities caps) {
+        if (!caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED)) {
+            return true;
+        }
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.P
+                && !caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_ROAMING);
+    }
+
+    private synchronized void update(NetworkCapabilities caps) {
+        if (!registered) return;
+        boolean nowOnline = caps != null && caps.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+        boolean nowMetered = nowOnline && isMetered(caps);
+        if (reported && nowOnline == online && nowMetered == metered) return;
+        reported = true;
+        online = nowOnline;
+        metered = nowMetered;
+        listener.onNetworkChanged(online, metered);
+    }
+}
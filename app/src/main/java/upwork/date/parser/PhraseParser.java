@@ -1,21 +1,18 @@
 /**
  * PhraseParser provides an asynchronous helper to fetch and parse the target phrase
- * (date) from the monitored page's embedded script tag.
+ * (date) from the monitored page's embedded script tag, and keeps the last
+ * successful result on disk so it can be shown before the next fetch completes.
  */
 package upwork.date.parser;
 
+import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
 import androidx.annotation.NonNull;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
+import java.io.File;
 import java.io.IOException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class PhraseParser {
 
@@ -41,47 +38,66 @@ public class PhraseParser {
     }
 
     /**
-     * Asynchronously connects to the given URL, extracts the date string from
-     * a <script> element containing "#minmax", and invokes the listener callbacks
-     * on the main thread.
-     * @param url      Page URL to fetch and parse
+     * Asynchronously connects to the monitor's URL, extracts the date string from
+     * a <script> element containing "#minmax", or from the text or JSON response
+     * the monitor is configured for, via {@link SharedFetcher}, and invokes
+     * the listener callbacks on the main thread. Calls racing with the service
+     * for the same page share one network request. A successful result is
+     * saved with {@link #saveResult(Context, String, String)}.
+     * @param context  Context used to locate the result file
+     * @param monitor  Monitor whose page is fetched and parsed
      * @param listener Listener to receive onDateParsed or onError callbacks
      */
     public static void parsePhraseAsync(
-            @NonNull final String url,
+            @NonNull Context context,
+            @NonNull final Monitor monitor,
             @NonNull final OnPhraseParsedListener listener) {
+        final Context appContext = context.getApplicationContext();
+        final String url = monitor.url;
+        final DateExtractor extractor = monitor.extractor(DateExtractor.getDefault());
         executor.execute(() -> {
+            long start = System.nanoTime();
             try {
-                Document doc = Jsoup.connect(url)
-                        .userAgent("Chrome")
-                        .ignoreHttpErrors(true)
-                        .get();
-
-                Elements scripts = doc.select("script");
-                Pattern datePattern = Pattern.compile("-\\s*(\\d{2}\\.\\d{2}\\.\\d{4})");
-                String date = null;
-
-                for (Element script : scripts) {
-                    if (!script.toString().contains("#minmax")) {
-                        continue;
-                    }
-                    Matcher m = datePattern.matcher(script.data());
-                    if (m.find()) {
-                        date = m.group(1);
-                        break;
-                    }
-                }
-
-                if (date != null) {
-                    final String result = date;
-                    mainHandler.post(() -> listener.onDateParsed(result));
-                } else {
-                    throw new IOException("Failed to parse date in script");
-                }
-
+                final String result = SharedFetcher.getInstance()
+                        .fetch(url, extractor).date;
+                Metrics.get().increment("ui.ok");
+                saveResult(appContext, url, result);
+                mainHandler.post(() -> listener.onDateParsed(result));
             } catch (Exception e) {
+                Metrics.get().increment("ui.error");
                 mainHandler.post(() -> listener.onError(e));
+            } finally {
+                Metrics.get().recordNanos("ui.check", System.nanoTime() - start);
             }
         });
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the last successful result saved on disk. The file is a few
+     * bytes, so this is cheap enough to call before the first frame.
+     * @param context Application context
+     * @return The saved result or null if nothing was saved yet
+     */
+    public static LastResult loadResult(@NonNull Context context) {
+        return LastResult.read(resultFile(context));
+    }
+
+    /**
+     * Saves a successful result so the next start can show it immediately.
+     * Must be called off the main thread.
+     * @param context Application context
+     * @param url     Page URL the date was taken from
+     * @param date    Extracted date
+     */
+    public static void saveResult(@NonNull Context context, @NonNull String url, @NonNull String date) {
+        try {
+            new LastResult(url, date, System.currentTimeMillis()).write(resultFile(context));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static File resultFile(Context context) {
+        return new File(context.getFilesDir(), Constants.LAST_RESULT_FILE);
+    }
+}
@@ -1,20 +1,231 @@
 /**
  * SaveManager handles storing and retrieving user settings in SharedPreferences.
+ * Reads are served from an immutable {@link Settings} snapshot kept in memory
+ * and refreshed whenever the preferences change.
  */
 package upwork.date.parser;
 
 import android.content.Context;
+import android.content.SharedPreferences;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class SaveManager {
 
+    /**
+     * Callback interface for receiving settings changes.
+     */
+    public interface OnSettingsChangedListener {
+
+        /**
+         * Invoked after the settings snapshot has changed.
+         * @param settings The new snapshot
+         */
+        void onSettingsChanged(Settings settings);
+    }
+
+    private static final String TABLE = "TABLE";
+
+    private static volatile Settings snapshot;
+    private static SharedPreferences prefs;
+    private static final CopyOnWriteArrayList<OnSettingsChangedListener> listeners =
+            new CopyOnWriteArrayList<>();
+
+    private static final SharedPreferences.OnSharedPreferenceChangeListener prefsListener =
+            (sharedPreferences, key) -> reload(sharedPreferences);
+
+    /**
+     * Batched editor that commits all changes in one SharedPreferences transaction.
+     */
+    public static class Editor {
+
+        private final SharedPreferences.Editor editor;
+
+        private Editor(SharedPreferences.Editor editor) {
+            this.editor = editor;
+        }
+
+        /**
+         * @param url URL string to store
+         * @return This editor
+         */
+        public Editor setUrl(String url) {
+            editor.putString("parse_url", url);
+            return this;
+        }
+
+        /**
+         * @param pushUrl Server-Sent Events URL of the primary page, empty to only poll
+         * @return This editor
+         */
+        public Editor setPushUrl(String pushUrl) {
+            editor.putString("push_url", pushUrl);
+            return this;
+        }
+
+        /**
+         * @param source Kind of response the primary date is read from
+         * @param path   Path of the date value for a JSON source, otherwise empty
+         * @return This editor
+         */
+        public Editor setSource(SourceType source, String path) {
+            editor.putString("source_type", source.name());
+            editor.putString("json_path", path);
+            return this;
+        }
+
+        /**
+         * @param interval Interval in minutes to store
+         * @return This editor
+         */
+        public Editor setInterval(int interval) {
+            editor.putInt("parse_interval", interval);
+            return this;
+        }
+
+        /**
+         * Stores the adaptive polling settings of the primary monitor. Its base
+         * interval is the one set with {@link #setInterval(int)}.
+         * @param maxInterval   Upper bound of the backed-off interval in minutes
+         * @param backoffFactor Multiplier per unchanged or failed check
+         * @param jitter        Relative random spread of each delay
+         * @return This editor
+         */
+        public Editor setBackoff(int maxInterval, double backoffFactor, double jitter) {
+            editor.putInt("max_interval", maxInterval);
+            editor.putFloat("backoff_factor", (float) backoffFactor);
+            editor.putFloat("jitter", (float) jitter);
+            return this;
+        }
+
+        /**
+         * @param phrase The target phrase to store
+         * @return This editor
+         */
+        public Editor setTarget(String phrase) {
+            editor.putString("target_phrase", phrase);
+            return this;
+        }
+
+        /**
+         * @param isMonitoring True to enable monitoring, false to disable
+         * @return This editor
+         */
+        public Editor setMonitoring(boolean isMonitoring) {
+            editor.putBoolean("is_monitoring", isMonitoring);
+            return this;
+        }
+
+        /**
+         * @param lowPower True to run checks as scheduled jobs instead of the service
+         * @return This editor
+         */
+        public Editor setLowPower(boolean lowPower) {
+            editor.putBoolean("low_power", lowPower);
+            return this;
+        }
+
+        /**
+         * @param meteredStretch True to check less often on metered or roaming networks
+         * @return This editor
+         */
+        public Editor setMeteredStretch(boolean meteredStretch) {
+            editor.putBoolean("metered_stretch", meteredStretch);
+            return this;
+        }
+
+        /**
+         * Stores the additional monitors. The primary monitor, if present in the
+         * list, is skipped since it is stored in its own keys.
+         * @param monitors Monitors to store
+         * @return This editor
+         */
+        public Editor setMonitors(List<Monitor> monitors) {
+            JSONArray array = new JSONArray();
+            try {
+                for (Monitor m : monitors) {
+                    if (m.id == Monitor.PRIMARY_ID) continue;
+                    array.put(new JSONObject()
+                            .put("id", m.id)
+                            .put("url", m.url)
+                            .put("target", m.target)
+                            .put("interval", m.policy.baseMinutes)
+                            .put("max_interval", m.policy.maxMinutes)
+                            .put("backoff", m.policy.backoffFactor)
+                            .put("jitter", m.policy.jitter)
+                            .put("push_url", m.pushUrl)
+                            .put("source", m.source.name())
+                            .put("path", m.path));
+                }
+            } catch (JSONException e) {
+                e.printStackTrace();
+                return this;
+            }
+            editor.putString("monitors", array.toString());
+            return this;
+        }
+
+        /**
+         * Commits all changes at once and refreshes the in-memory snapshot.
+         */
+        public void apply() {
+            editor.apply();
+            reload(prefs);
+        }
+    }
+
+    /**
+     * Returns the current settings snapshot, loading it on first use.
+     * @param context Application context
+     * @return The immutable settings snapshot
+     */
+    public static Settings getSettings(Context context) {
+        Settings s = snapshot;
+        if (s == null) {
+            s = init(context);
+        }
+        return s;
+    }
+
+    /**
+     * Starts a batched edit of the settings.
+     * @param context Application context
+     * @return Editor whose changes are committed together by {@link Editor#apply()}
+     */
+    public static Editor edit(Context context) {
+        init(context);
+        return new Editor(prefs.edit());
+    }
+
+    /**
+     * Registers a listener notified on every settings change.
+     * @param context Application context
+     * @param listener Listener to add
+     */
+    public static void addListener(Context context, OnSettingsChangedListener listener) {
+        init(context);
+        listeners.addIfAbsent(listener);
+    }
+
+    /**
+     * Unregisters a listener added with {@link #addListener(Context, OnSettingsChangedListener)}.
+     * @param listener Listener to remove
+     */
+    public static void removeListener(OnSettingsChangedListener listener) {
+        listeners.remove(listener);
+    }
+
     /**
      * Retrieves the saved URL or returns the default if not set.
      * @param context Application context
      * @return The stored URL string
      */
     public static String getUrl(Context context) {
-        return context.getSharedPreferences("TABLE", Context.MODE_PRIVATE)
-                .getString("parse_url", Constants.DEFAULT_URL);
+        return getSettings(context).url;
     }
 
     /**
@@ -23,10 +234,7 @@ public class SaveManager {
      * @param url URL string to store
      */
     public static void setUrl(Context context, String url) {
-        context.getSharedPreferences("TABLE", Context.MODE_PRIVATE)
-                .edit()
-                .putString("parse_url", url)
-                .apply();
+        edit(context).setUrl(url).apply();
     }
 
     /**
@@ -35,8 +243,7 @@ public class SaveManager {
      * @return The stored interval value
      */
     public static int getInterval(Context context) {
-        return context.getSharedPreferences("TABLE", Context.MODE_PRIVATE)
-                .getInt("parse_interval", Constants.DEFAULT_INTERVAL);
+        return getSettings(context).interval;
     }
 
     /**
@@ -45,10 +252,7 @@ public class SaveManager {
      * @param interval Interval in minutes to store
      */
     public static void setInterval(Context context, int interval) {
-        context.getSharedPreferences("TABLE", Context.MODE_PRIVATE)
-                .edit()
-                .putInt("parse_interval", interval)
-                .apply();
+        edit(context).setInterval(interval).apply();
     }
 
     /**
@@ -57,8 +261,7 @@ public class SaveManager {
      * @return The stored target phrase
      */
     public static String getTarget(Context context) {
-        return context.getSharedPreferences("TABLE", Context.MODE_PRIVATE)
-                .getString("target_phrase", Constants.DEFAULT_TARGET_PHRASE);
+        return getSettings(context).target;
     }
 
     /**
@@ -67,10 +270,7 @@ public class SaveManager {
      * @param phrase The phrase to store
      */
     public static void setTarget(Context context, String phrase) {
-        context.getSharedPreferences("TABLE", Context.MODE_PRIVATE)
-                .edit()
-                .putString("target_phrase", phrase)
-                .apply();
+        edit(context).setTarget(phrase).apply();
     }
 
     /**
@@ -79,8 +279,7 @@ public class SaveManager {
      * @return True if monitoring is active, false otherwise
      */
     public static boolean isMonitoring(Context context) {
-        return context.getSharedPreferences("TABLE", Context.MODE_PRIVATE)
-                .getBoolean("is_monitoring", false);
+        return getSettings(context).monitoring;
     }
 
     /**
@@ -89,9 +288,103 @@ public class SaveManager {
      * @param isMonitoring True to enable monitoring, false to disable
      */
     public static void isMonitoring(Context context, boolean isMonitoring) {
-        context.getSharedPreferences("TABLE", Context.MODE_PRIVATE)
-                .edit()
-                .putBoolean("is_monitoring", isMonitoring)
-                .apply();
+        edit(context).setMonitoring(isMonitoring).apply();
+    }
+
+    /**
+     * Retrieves all monitors. The first one is always the primary monitor built
+     * from the saved URL, target phrase and interval; it is followed by the
+     * additional monitors stored with {@link #setMonitors(Context, List)}.
+     * @param context Application context
+     * @return The list of monitors to check
+     */
+    public static List<Monitor> getMonitors(Context context) {
+        return getSettings(context).monitors;
+    }
+
+    /**
+     * Saves the additional monitors in SharedPreferences.
+     * @param context Application context
+     * @param monitors Monitors to store
+     */
+    public static void setMonitors(Context context, List<Monitor> monitors) {
+        edit(context).setMonitors(monitors).apply();
+    }
+
+    /**
+     * Opens the preferences, registers the change listener and loads the first snapshot.
+     */
+    private static synchronized Settings init(Context context) {
+        if (prefs == null) {
+            prefs = context.getApplicationContext().getSharedPreferences(TABLE, Context.MODE_PRIVATE);
+            prefs.registerOnSharedPreferenceChangeListener(prefsListener);
+            snapshot = read(prefs);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Rebuilds the snapshot and notifies listeners if it changed.
+     */
+    private static void reload(SharedPreferences sharedPreferences) {
+        Settings next = read(sharedPreferences);
+        Settings previous;
+        synchronized (SaveManager.class) {
+            previous = snapshot;
+            if (next.equals(previous)) return;
+            snapshot = next;
+        }
+        for (OnSettingsChangedListener l : listeners) {
+            l.onSettingsChanged(next);
+        }
+    }
+
+    private static Settings read(SharedPreferences p) {
+        String url = p.getString("parse_url", Constants.DEFAULT_URL);
+        String target = p.getString("target_phrase", Constants.DEFAULT_TARGET_PHRASE);
+        String pushUrl = p.getString("push_url", "");
+        int interval = p.getInt("parse_interval", Constants.DEFAULT_INTERVAL);
+        boolean monitoring = p.getBoolean("is_monitoring", false);
+        boolean lowPower = p.getBoolean("low_power", false);
+        boolean meteredStretch = p.getBoolean("metered_stretch", false);
+
+        List<Monitor> monitors = new ArrayList<>();
+        monitors.add(new Monitor(Monitor.PRIMARY_ID, url, target, new PollPolicy(
+                interval,
+                p.getInt("max_interval", Math.max(interval, Constants.DEFAULT_MAX_INTERVAL)),
+                p.getFloat("backoff_factor", (float) Constants.DEFAULT_BACKOFF_FACTOR),
+                p.getFloat("jitter", (float) Constants.DEFAULT_JITTER)), pushUrl,
+                sourceOf(p.getString("source_type", null)), p.getString("json_path", "")));
+        try {
+            JSONArray array = new JSONArray(p.getString("monitors", "[]"));
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject o = array.getJSONObject(i);
+                int base = Math.max(Constants.MINIMUM_INTERVAL, o.optInt("interval", Constants.DEFAULT_INTERVAL));
+                monitors.add(new Monitor(
+                        o.getLong("id"),
+                        o.getString("url"),
+                        o.getString("target"),
+                        new PollPolicy(
+                                base,
+                                o.optInt("max_interval", Math.max(base, Constants.DEFAULT_MAX_INTERVAL)),
+                                o.optDouble("backoff", Constants.DEFAULT_BACKOFF_FACTOR),
+                                o.optDouble("jitter", Constants.DEFAULT_JITTER)),
+                        o.optString("push_url", ""),
+                        sourceOf(o.optString("source", null)),
+                        o.optString("path", "")));
+            }
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+        return new Settings(url, target, pushUrl, interval, monitoring, lowPower, meteredStretch, monitors);
+    }
+
+    private static SourceType sourceOf(String name) {
+        if (name != null) {
+            for (SourceType type : SourceType.values()) {
+                if (type.name().equals(name)) return type;
+            }
+        }
+        return SourceType.HTML;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,69 @@
+/**
+ * ScheduleStore persists the check schedule of the monitoring service in its
+ * own SharedPreferences file: the next due time, last date and streak of each
+ * monitor. It is kept apart from the user settings so frequent writes do not
+ * reload the settings snapshot.
+ */
+package upwork.date.parser;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ScheduleStore {
+
+    private static final String TABLE = "SCHEDULE";
+
+    private static final String KEY_DUE     = "due_";
+    private static final String KEY_DATE    = "date_";
+    private static final String KEY_STREAK  = "streak_";
+
+    private ScheduleStore() {
+    }
+
+    /**
+     * Loads the saved schedule of all monitors.
+     * @param context Application context
+     * @return Entries by monitor id, empty if nothing was saved
+     */
+    public static Map<Long, ScheduleEntry> load(Context context) {
+        Map<Long, ScheduleEntry> entries = new HashMap<>();
+        SharedPreferences p = prefs(context);
+        for (String key : p.getAll().keySet()) {
+            if (!key.startsWith(KEY_DUE)) continue;
+            String id = key.substring(KEY_DUE.length());
+            entries.put(Long.parseLong(id), new ScheduleEntry(
+                    p.getLong(key, 0L),
+                    p.getString(KEY_DATE + id, null),
+                    p.getInt(KEY_STREAK + id, 0)));
+        }
+        return entries;
+    }
+
+    /**
+     * Saves the schedule of one monitor.
+     * @param context Application context
+     * @param id      Monitor identifier
+     * @param entry   Scheduling state to save
+     */
+    public static void save(Context context, long id, ScheduleEntry entry) {
+        prefs(context).edit()
+                .putLong(KEY_DUE + id, entry.dueAtMillis)
+                .putString(KEY_DATE + id, entry.lastDate)
+                .putInt(KEY_STREAK + id, entry.streak)
+                .apply();
+    }
+
+    /**
+     * Forgets the whole schedule so the next start checks every page right away.
+     * @param context Application context
+     */
+    public static void clear(Context context) {
+        prefs(context).edit().clear().apply();
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(TABLE, Context.MODE_PRIVATE);
+    }
+}
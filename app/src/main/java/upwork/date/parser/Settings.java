@@ -0,0 +1,68 @@
+/**
+ * Settings is an immutable snapshot of all user settings stored by {@link SaveManager}.
+ */
+package upwork.date.parser;
+
+import java.util.Collections;
+import java.util.List;
+
+public class Settings {
+
+    public final String url;
+    public final String target;
+    public final String pushUrl;
+    public final int interval;
+    public final boolean monitoring;
+    public final boolean lowPower;
+    public final boolean meteredStretch;
+    public final List<Monitor> monitors;
+
+    /**
+     * @param url        Primary page URL
+     * @param target     Primary target phrase
+     * @param pushUrl    Primary push URL, empty if the page is only polled
+     * @param interval   Primary polling interval in minutes
+     * @param monitoring Whether background monitoring is enabled
+     * @param lowPower   Whether checks should run as scheduled jobs instead of the service
+     * @param meteredStretch Whether checks run less often on metered or roaming networks
+     * @param monitors   All monitors, the primary one first
+     */
+    public Settings(String url, String target, String pushUrl, int interval, boolean monitoring,
+                    boolean lowPower, boolean meteredStretch, List<Monitor> monitors) {
+        this.url = url;
+        this.target = target;
+        this.pushUrl = pushUrl;
+        this.interval = interval;
+        this.monitoring = monitoring;
+        this.lowPower = lowPower;
+        this.meteredStretch = meteredStretch;
+        this.monitors = Collections.unmodifiableList(monitors);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Settings)) return false;
+        Settings other = (Settings) o;
+        return interval == other.interval
+                && monitoring == other.monitoring
+                && lowPower == other.lowPower
+                && meteredStretch == other.meteredStretch
+                && url.equals(other.url)
+                && target.equals(other.target)
+                && pushUrl.equals(other.pushUrl)
+                && monitors.equals(other.monitors);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = url.hashCode();
+        h = h * 31 + target.hashCode();
+        h = h * 31 + pushUrl.hashCode();
+        h = h * 31 + interval;
+        h = h * 31 + (monitoring ? 1 : 0);
+        h = h * 31 + (lowPower ? 1 : 0);
+        h = h * 31 + (meteredStretch ? 1 : 0);
+        return h * 31 + monitors.hashCode();
+    }
+}
@@ -0,0 +1,268 @@
+/**
+ * BatchChecker checks a list of pages from the command line. Each input line
+ * holds a URL and its target rules (see {@link TargetRules}) separated by
+ * whitespace; lines that are empty or start with '#' are skipped. Pages are fetched concurrently on a
+ * bounded pool and every result is written as one JSON object per line.
+ * With --nio the pages are fetched on a {@link NioHttpEngine} instead, so
+ * --threads bounds the fetches in flight rather than the threads; the pool then
+ * only runs blocking fallbacks such as HTTPS pages.
+ * A summary with the throughput is printed to stderr at the end.
+ */
+package upwork.date.parser.batch;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import upwork.date.parser.Constants;
+import upwork.date.parser.DateExtractor;
+import upwork.date.parser.DateFetcher;
+import upwork.date.parser.FetchPool;
+import upwork.date.parser.NioHttpEngine;
+import upwork.date.parser.SharedFetcher;
+import upwork.date.parser.TargetRules;
+
+public class BatchChecker {
+
+    private static final String USAGE =
+            "Usage: BatchChecker [--threads N] [--per-host N] [--nio] [--out FILE] INPUT|-";
+
+    private final FetchPool pool;
+    private final Semaphore slots;
+    private final int permits;
+    private final NioHttpEngine engine;
+    private final SharedFetcher fetcher = new SharedFetcher(0L);
+    private final DateExtractor extractor = DateExtractor.getDefault();
+    private final Writer out;
+
+    private final AtomicInteger matched = new AtomicInteger();
+    private final AtomicInteger mismatched = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    /**
+     * @param threads      Number of concurrent fetches
+     * @param perHostLimit Maximum number of concurrent fetches for one host
+     * @param out          Destination of the JSON lines
+     */
+    public BatchChecker(int threads, int perHostLimit, Writer out) {
+        this(threads, perHostLimit, out, null);
+    }
+
+    /**
+     * @param threads      Number of concurrent fetches
+     * @param perHostLimit Maximum number of concurrent blocking fetches for one host
+     * @param out          Destination of the JSON lines
+     * @param engine       Non-blocking engine for the fetches, or null to use the pool
+     */
+    public BatchChecker(int threads, int perHostLimit, Writer out, NioHttpEngine engine) {
+        this.pool = new FetchPool(engine != null ? Math.min(threads, perHostLimit) : threads, perHostLimit);
+        this.engine = engine;
+        // Keeps the input from being read far ahead of the workers; with the
+        // engine every permit is one fetch in flight.
+        this.permits = engine != null ? threads : threads * 4;
+        this.slots = new Semaphore(permits);
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = 32;
+        int perHost = 8;
+        boolean nio = false;
+        String outPath = null;
+        String inPath = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--per-host":
+                    perHost = Integer.parseInt(args[++i]);
+                    break;
+                case "--nio":
+                    nio = true;
+                    break;
+                case "--out":
+                    outPath = args[++i];
+                    break;
+                default:
+                    inPath = args[i];
+                    break;
+            }
+        }
+        if (inPath == null || threads < 1 || perHost < 1) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        InputStream in = inPath.equals("-") ? System.in : new FileInputStream(inPath);
+        OutputStream os = outPath == null ? System.out : new FileOutputStream(outPath);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+             Writer writer = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8))) {
+            BatchChecker checker = new BatchChecker(threads, perHost, writer,
+                    nio ? NioHttpEngine.getDefault() : null);
+            long start = System.nanoTime();
+            int total = checker.run(reader);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.err.println(String.format(Locale.US,
+                    "checked=%d match=%d mismatch=%d error=%d time=%.1fs rate=%.1f/s",
+                    total, checker.matched.get(), checker.mismatched.get(), checker.failed.get(),
+                    seconds, seconds > 0 ? total / seconds : 0.0));
+        }
+    }
+
+    /**
+     * Checks every page listed in the input and waits until all are done.
+     * @param reader Input lines of the form "URL TARGET"
+     * @return Number of pages checked
+     * @throws IOException          If the input cannot be read
+     * @throws InterruptedException If interrupted while waiting for free workers
+     */
+    public int run(BufferedReader reader) throws IOException, InterruptedException {
+        int total = 0;
+        String line;
+        try {
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\\s+", 2);
+                final String url = parts[0];
+                final String target = parts.length > 1 ? parts[1] : null;
+                slots.acquire();
+                if (engine != null) {
+                    checkAsync(url, target);
+                    total++;
+                    continue;
+                }
+                pool.submit(url, () -> {
+                    try {
+                        check(url, target);
+                    } finally {
+                        slots.release();
+                    }
+                });
+                total++;
+            }
+            slots.acquire(permits);
+            slots.release(permits);
+        } finally {
+            pool.shutdown();
+            synchronized (out) {
+                out.flush();
+            }
+        }
+        return total;
+    }
+
+    private void check(String url, String target) {
+        long start = System.nanoTime();
+        try {
+            report(url, target, start, fetcher.fetch(url, extractor), null);
+        } catch (Exception e) {
+            report(url, target, start, null, e);
+        }
+    }
+
+    /**
+     * Starts a check on the engine; the slot is released when it completes.
+     */
+    private void checkAsync(final String url, final String target) {
+        final long start = System.nanoTime();
+        try {
+            DateFetcher.fetchAsync(url, extractor, null,
+                    Constants.CONNECT_TIMEOUT_MILLIS, Constants.READ_TIMEOUT_MILLIS,
+                    start + Constants.CHECK_DEADLINE_MILLIS * 1_000_000L,
+                    engine, task -> pool.submit(url, task))
+                    .whenComplete((result, error) -> {
+                        try {
+                            report(url, target, start, result, error);
+                        } finally {
+                            slots.release();
+                        }
+                    });
+        } catch (RuntimeException e) {
+            report(url, target, start, null, e);
+            slots.release();
+        }
+    }
+
+    private void report(String url, String target, long start, DateFetcher.Result result, Throwable error) {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"url\":");
+        quote(json, url);
+        json.append(",\"target\":");
+        quote(json, target);
+        if (error == null) {
+            json.append(",\"date\":");
+            quote(json, result.date);
+            if (target != null) {
+                TargetRules rules = TargetRules.compile(target);
+                String rule = rules.describe(rules.firedRule(result.packedDate, result.date));
+                (rule == null ? matched : mismatched).incrementAndGet();
+                json.append(",\"match\":").append(rule == null);
+                json.append(",\"rule\":");
+                quote(json, rule);
+            }
+            json.append(",\"bytes\":").append(result.bytes);
+        } else {
+            failed.incrementAndGet();
+            json.append(",\"error\":");
+            quote(json, error.getClass().getSimpleName() + ": " + error.getMessage());
+        }
+        json.append(",\"latency_ms\":").append((System.nanoTime() - start) / 1_000_000L).append("}\n");
+        synchronized (out) {
+            try {
+                out.write(json.toString());
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static void quote(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                    break;
+            }
+        }
+        sb.append('"');
+    }
+}
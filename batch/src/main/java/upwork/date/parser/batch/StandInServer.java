@@ -0,0 +1,130 @@
+/**
+ * StandInServer is a local HTTP stand-in for the monitored site, used to
+ * measure the batch checker's throughput without hitting real servers. Every
+ * path returns the same page with the date script; the page size, the response
+ * delay and the date are configurable, and the ETag validator is honoured.
+ */
+package upwork.date.parser.batch;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+
+public class StandInServer {
+
+    private static final String USAGE =
+            "Usage: StandInServer [--port N] [--delay MILLIS] [--size BYTES] [--date DD.MM.YYYY]";
+
+    private final HttpServer server;
+    private final byte[] page;
+    private final String etag;
+    private final long delayMillis;
+
+    /**
+     * @param port        Port to listen on, 0 for any free port
+     * @param sizeBytes   Approximate size of the served page
+     * @param date        Date placed in the marker script
+     * @param delayMillis Delay before each response
+     * @throws IOException If the port cannot be bound
+     */
+    public StandInServer(int port, int sizeBytes, String date, long delayMillis) throws IOException {
+        this.page = buildPage(sizeBytes, date);
+        this.etag = "\"" + Integer.toHexString(Arrays.hashCode(page)) + "\"";
+        this.delayMillis = delayMillis;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(Executors.newFixedThreadPool(64));
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 8080;
+        int size = 64 * 1024;
+        long delay = 0L;
+        String date = "31.10.2025";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--size":
+                    size = Integer.parseInt(args[++i]);
+                    break;
+                case "--delay":
+                    delay = Long.parseLong(args[++i]);
+                    break;
+                case "--date":
+                    date = args[++i];
+                    break;
+                default:
+                    System.err.println(USAGE);
+                    System.exit(2);
+            }
+        }
+        StandInServer server = new StandInServer(port, size, date, delay);
+        server.start();
+        System.err.println("Serving on http://127.0.0.1:" + server.getPort() + "/");
+    }
+
+    /**
+     * Starts serving in the background.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops the server immediately.
+     */
+    public void stop() {
+        server.stop(0);
+    }
+
+    /**
+     * @return The bound port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (delayMillis > 0) {
+                Thread.sleep(delayMillis);
+            }
+            exchange.getResponseHeaders().set("ETag", etag);
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, page.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(page);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static byte[] buildPage(int sizeBytes, String date) {
+        StringBuilder sb = new StringBuilder(sizeBytes + 256);
+        sb.append("<!DOCTYPE html>\n<html><head><title>Stand-in</title></head><body>\n");
+        int row = 0;
+        while (sb.length() < sizeBytes / 2) {
+            sb.append("<p class=\"row\">Row ").append(row++).append(" of filler text</p>\n");
+        }
+        sb.append("<script>$('#minmax').text('01.10.2025 - ").append(date).append("');</script>\n");
+        while (sb.length() < sizeBytes) {
+            sb.append("<p class=\"row\">Row ").append(row++).append(" of filler text</p>\n");
+        }
+        sb.append("</body></html>\n");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
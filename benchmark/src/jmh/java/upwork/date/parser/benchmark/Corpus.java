@@ -0,0 +1,98 @@
+/**
+ * Corpus builds benchmark pages of a given size from the bundled seed HTML.
+ * Pages are generated rather than stored so that the 10 MB inputs do not have
+ * to live in the repository; generation is deterministic, so every run sees
+ * the same bytes.
+ */
+package upwork.date.parser.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+public class Corpus {
+
+    /**
+     * Where the script with the date marker is placed in the page.
+     */
+    public enum Position {
+        START, MIDDLE, END, MISSING
+    }
+
+    private static final String HEAD = resource("head.html");
+    private static final String BLOCK = resource("block.html");
+    private static final String MARKER = resource("marker.html");
+    private static final String TAIL = resource("tail.html");
+
+    private Corpus() {
+    }
+
+    /**
+     * Generates a page of roughly the requested size. The page is the seed head,
+     * repeated office sections and the tail, with the marker script inserted
+     * before the first section, in the middle, after the last one, or not at all.
+     * @param sizeBytes Target size of the UTF-8 encoded page
+     * @param position  Position of the marker script
+     * @return The page HTML
+     */
+    public static String page(int sizeBytes, Position position) {
+        int fixed = utf8Length(HEAD) + utf8Length(TAIL)
+                + (position == Position.MISSING ? 0 : utf8Length(MARKER));
+        StringBuilder blocks = new StringBuilder(sizeBytes);
+        int blockBytes = 0;
+        int count = 0;
+        int middleAt = -1;
+        while (fixed + blockBytes < sizeBytes) {
+            if (middleAt < 0 && fixed + blockBytes >= sizeBytes / 2) {
+                middleAt = blocks.length();
+            }
+            String block = BLOCK.replace("{id}", Integer.toString(++count));
+            blocks.append(block);
+            blockBytes += utf8Length(block);
+        }
+        if (middleAt < 0) {
+            middleAt = blocks.length();
+        }
+
+        StringBuilder page = new StringBuilder(sizeBytes + MARKER.length());
+        page.append(HEAD);
+        switch (position) {
+            case START:
+                page.append(MARKER).append(blocks);
+                break;
+            case MIDDLE:
+                page.append(blocks, 0, middleAt).append(MARKER).append(blocks, middleAt, blocks.length());
+                break;
+            case END:
+                page.append(blocks).append(MARKER);
+                break;
+            default:
+                page.append(blocks);
+                break;
+        }
+        return page.append(TAIL).toString();
+    }
+
+    private static int utf8Length(String text) {
+        return text.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static String resource(String name) {
+        try (InputStream in = Corpus.class.getResourceAsStream("/corpus/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing corpus resource " + name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                out.write(buf, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * ExtractionBenchmark measures each step of the date extraction path on
+ * generated pages: the Jsoup parse, the script selection, the marker filter,
+ * the former date regex against the date scanner that replaced it, the full
+ * Jsoup pipeline, and the streaming scanner used as the primary extractor.
+ * Run with the gc profiler to get allocation rates.
+ */
+package upwork.date.parser.benchmark;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import upwork.date.parser.DateExtractor;
+import upwork.date.parser.PageScanner;
+
+@State(Scope.Benchmark)
+public class ExtractionBenchmark {
+
+    private static final int CHUNK = 8192;
+    private static final Pattern LEGACY_PATTERN =
+            Pattern.compile("-\\s*(\\d{2}\\.\\d{2}\\.\\d{4})");
+
+    @Param({"10240", "102400", "1048576", "10485760"})
+    public int size;
+
+    @Param({"START", "MIDDLE", "END", "MISSING"})
+    public Corpus.Position position;
+
+    private final DateExtractor extractor = DateExtractor.getDefault();
+
+    private String html;
+    private char[] chars;
+    private Document document;
+    private List<String> scripts;
+    private String markerScript;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        html = Corpus.page(size, position);
+        chars = html.toCharArray();
+        document = Jsoup.parse(html);
+        scripts = new ArrayList<>();
+        for (Element script : document.select("script")) {
+            scripts.add(script.data());
+        }
+        markerScript = scripts.get(scripts.size() - 1);
+        for (String script : scripts) {
+            if (extractor.containsMarker(script)) {
+                markerScript = script;
+                break;
+            }
+        }
+        String expected = position == Corpus.Position.MISSING ? null : "31.10.2025";
+        String date = extractor.extract(document);
+        if (expected == null ? date != null : !expected.equals(date)) {
+            throw new IllegalStateException("Unexpected date " + date + " for " + position);
+        }
+    }
+
+    /**
+     * Builds the Jsoup document.
+     */
+    @Benchmark
+    public Document jsoupParse() {
+        return Jsoup.parse(html);
+    }
+
+    /**
+     * Selects all script elements of an already parsed document.
+     */
+    @Benchmark
+    public Elements jsoupSelectScripts() {
+        return document.select("script");
+    }
+
+    /**
+     * Filters the script bodies by the marker.
+     */
+    @Benchmark
+    public int markerFilter() {
+        int found = 0;
+        for (String script : scripts) {
+            if (extractor.containsMarker(script)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Runs the regex the default rule used before the date scanner on the
+     * script holding the marker.
+     */
+    @Benchmark
+    public String regex() {
+        Matcher m = LEGACY_PATTERN.matcher(markerScript);
+        return m.find() ? m.group(1) : null;
+    }
+
+    /**
+     * Runs the date scanner on the script holding the marker.
+     */
+    @Benchmark
+    public int dateScanner() {
+        return extractor.scan(markerScript);
+    }
+
+    /**
+     * The whole fallback path: parse, select, filter and match.
+     */
+    @Benchmark
+    public String jsoupPipeline() {
+        return extractor.extract(Jsoup.parse(html));
+    }
+
+    /**
+     * The streaming path, fed in the chunk size used by the fetcher.
+     */
+    @Benchmark
+    public String streamingScanner() {
+        PageScanner scanner = extractor.newScanner();
+        for (int off = 0; off < chars.length; off += CHUNK) {
+            if (scanner.feed(chars, off, Math.min(CHUNK, chars.length - off))) {
+                break;
+            }
+        }
+        return scanner.result();
+    }
+}
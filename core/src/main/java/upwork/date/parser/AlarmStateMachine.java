@@ -0,0 +1,106 @@
+/**
+ * AlarmStateMachine models the alarm lifecycle: idle, ringing, snoozed by the
+ * user, or auto-stopped after the ringing timeout. The state and the ringing
+ * episode are swapped atomically as one immutable snapshot, so every transition
+ * is won by exactly one thread and only that thread performs the side effect
+ * (playing or stopping the ringtone). Stale auto-stop tasks of an earlier
+ * episode are ignored.
+ */
+package upwork.date.parser;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+public class AlarmStateMachine {
+
+    /**
+     * Visible alarm states.
+     */
+    public enum State {
+        IDLE, RINGING, SNOOZED, AUTO_STOPPED
+    }
+
+    /**
+     * Immutable pair of state and ringing episode.
+     */
+    private static class Snapshot {
+        final State state;
+        final int episode;
+
+        Snapshot(State state, int episode) {
+            this.state = state;
+            this.episode = episode;
+        }
+    }
+
+    private final AtomicReference<Snapshot> current =
+            new AtomicReference<>(new Snapshot(State.IDLE, 0));
+
+    /**
+     * @return The current state
+     */
+    public State getState() {
+        return current.get().state;
+    }
+
+    /**
+     * Starts ringing unless already ringing. Snoozed and auto-stopped alarms
+     * ring again, since the mismatch is still there on a later check.
+     * @return The new ringing episode, or -1 if the alarm was already ringing
+     */
+    public int ring() {
+        while (true) {
+            Snapshot s = current.get();
+            if (s.state == State.RINGING) return -1;
+            Snapshot next = new Snapshot(State.RINGING, s.episode + 1);
+            if (current.compareAndSet(s, next)) return next.episode;
+        }
+    }
+
+    /**
+     * Silences the ringing alarm on user request.
+     * @return True if the alarm was ringing
+     */
+    public boolean snooze() {
+        return leaveRinging(State.SNOOZED, -1);
+    }
+
+    /**
+     * Silences the alarm when its ringing timeout of the given episode expires.
+     * @param episode Episode returned by {@link #ring()}
+     * @return True if that episode was still ringing
+     */
+    public boolean autoStop(int episode) {
+        return leaveRinging(State.AUTO_STOPPED, episode);
+    }
+
+    /**
+     * Returns to idle because every monitor matches again or monitoring stopped.
+     * @return True if the alarm was ringing
+     */
+    public boolean reset() {
+        while (true) {
+            Snapshot s = current.get();
+            if (s.state == State.IDLE) return false;
+            if (current.compareAndSet(s, new Snapshot(State.IDLE, s.episode))) {
+                return s.state == State.RINGING;
+            }
+        }
+    }
+
+    /**
+     * @param episode Episode returned by {@link #ring()}
+     * @return True if that episode is still ringing
+     */
+    public boolean isRinging(int episode) {
+        Snapshot s = current.get();
+        return s.state == State.RINGING && s.episode == episode;
+    }
+
+    private boolean leaveRinging(State target, int episode) {
+        while (true) {
+            Snapshot s = current.get();
+            if (s.state != State.RINGING || (episode >= 0 && s.episode != episode)) return false;
+            if (current.compareAndSet(s, new Snapshot(target, s.episode))) return true;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * CheckFailure classifies why a check failed, so failures that go away on
+ * their own, such as a lost connection, can be told apart from errors in the
+ * check itself that would otherwise silently repeat on every run.
+ */
+package upwork.date.parser;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Locale;
+
+public enum CheckFailure {
+    /** The host could not be reached or the connection broke. */
+    NETWORK,
+    /** A timeout or the check deadline was exceeded. */
+    TIMEOUT,
+    /** The circuit breaker of the host rejected the check. */
+    BREAKER_OPEN,
+    /** The page was loaded but contains no date. */
+    NO_DATE,
+    /** The check threw an unexpected runtime exception or error. */
+    INTERNAL,
+    /** The receiver of the result threw while handling it. */
+    LISTENER;
+
+    /**
+     * Classifies an error thrown by a fetch. Checked wrappers of runtime
+     * exceptions and errors are unwrapped first.
+     * @param error Thrown error
+     * @return The failure class; never {@link #LISTENER}
+     */
+    public static CheckFailure classify(Throwable error) {
+        if (error instanceof IOException && !(error instanceof SocketTimeoutException)
+                && (error.getCause() instanceof RuntimeException || error.getCause() instanceof Error)) {
+            return INTERNAL;
+        }
+        if (error instanceof DateFetcher.NoDateException) return NO_DATE;
+        if (error instanceof CircuitBreaker.OpenException) return BREAKER_OPEN;
+        if (error instanceof SocketTimeoutException) return TIMEOUT;
+        if (error instanceof IOException) return NETWORK;
+        return INTERNAL;
+    }
+
+    /**
+     * @return Name of the counter of this failure class in {@link Metrics}
+     */
+    public String metric() {
+        return "check.failure." + name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,261 @@
+/**
+ * CheckHistory is an append-only log of past checks kept in a memory-mapped
+ * ring buffer file. Every check is one fixed-size binary record; when the
+ * buffer is full the oldest records are overwritten. Appends write straight
+ * into the mapping and do not allocate, and queries read only the records
+ * they need.
+ */
+package upwork.date.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CheckHistory {
+
+    public static final int STATUS_MATCH    = 1;
+    public static final int STATUS_MISMATCH = 2;
+    public static final int STATUS_ERROR    = 3;
+
+    public static final int FLAG_CHANGED = 1;
+    public static final int FLAG_CACHED  = 2;
+
+    private static final int MAGIC       = 0x43484B31; // "CHK1"
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_SIZE = 32;
+
+    private static final int H_MAGIC    = 0;
+    private static final int H_CAPACITY = 4;
+    private static final int H_RECORD   = 8;
+    private static final int H_WRITTEN  = 16;
+
+    private static final int R_TIME    = 0;
+    private static final int R_URL_ID  = 8;
+    private static final int R_STATUS  = 12;
+    private static final int R_FLAGS   = 13;
+    private static final int R_LATENCY = 16;
+    private static final int R_BYTES   = 20;
+    private static final int R_DATE    = 24;
+
+    private static final Map<String, CheckHistory> opened = new HashMap<>();
+
+    /**
+     * One decoded check record.
+     */
+    public static class Record {
+
+        public final long timestamp;
+        public final int urlId;
+        public final int status;
+        public final int flags;
+        public final int latencyMillis;
+        public final int bytes;
+        public final int date;
+
+        Record(long timestamp, int urlId, int status, int flags, int latencyMillis, int bytes, int date) {
+            this.timestamp = timestamp;
+            this.urlId = urlId;
+            this.status = status;
+            this.flags = flags;
+            this.latencyMillis = latencyMillis;
+            this.bytes = bytes;
+            this.date = date;
+        }
+
+        /**
+         * @return True if the extracted date differs from the previous check of the same URL
+         */
+        public boolean isChange() {
+            return (flags & FLAG_CHANGED) != 0;
+        }
+    }
+
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private long written;
+    private int[] lastIds = new int[8];
+    private int[] lastDates = new int[8];
+    private int lastCount;
+
+    private CheckHistory(MappedByteBuffer buffer, int capacity, long written) {
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.written = written;
+        long first = Math.max(0, written - capacity);
+        for (long i = first; i < written; i++) {
+            int at = offset(i);
+            if (buffer.get(at + R_STATUS) != STATUS_ERROR) {
+                remember(buffer.getInt(at + R_URL_ID), buffer.getInt(at + R_DATE));
+            }
+        }
+    }
+
+    /**
+     * Opens or creates the history file. A file with a different capacity or
+     * an unknown layout is reset. Each file is mapped once per process.
+     * @param file     History file
+     * @param capacity Maximum number of records kept
+     * @return The shared history instance for the file
+     * @throws IOException If the file cannot be mapped
+     */
+    public static CheckHistory open(File file, int capacity) throws IOException {
+        synchronized (opened) {
+            String path = file.getAbsolutePath();
+            CheckHistory history = opened.get(path);
+            if (history == null) {
+                history = map(file, capacity);
+                opened.put(path, history);
+            }
+            return history;
+        }
+    }
+
+    /**
+     * Maps the file without sharing the instance, as a new process would.
+     * @param file     History file
+     * @param capacity Maximum number of records kept
+     * @return A new history instance for the file
+     * @throws IOException If the file cannot be mapped
+     */
+    static CheckHistory map(File file, int capacity) throws IOException {
+        long size = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+             FileChannel channel = raf.getChannel()) {
+            boolean valid = raf.length() == size;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (!valid
+                    || buffer.getInt(H_MAGIC) != MAGIC
+                    || buffer.getInt(H_CAPACITY) != capacity
+                    || buffer.getInt(H_RECORD) != RECORD_SIZE) {
+                buffer.putInt(H_MAGIC, MAGIC);
+                buffer.putInt(H_CAPACITY, capacity);
+                buffer.putInt(H_RECORD, RECORD_SIZE);
+                buffer.putLong(H_WRITTEN, 0L);
+            }
+            return new CheckHistory(buffer, capacity, buffer.getLong(H_WRITTEN));
+        }
+    }
+
+    /**
+     * Appends one check record, overwriting the oldest one when full.
+     * @param timestamp     Check time in milliseconds since the epoch
+     * @param urlId         Identifier of the checked URL, e.g. the monitor id
+     * @param status        One of the STATUS_ constants
+     * @param cached        True if the result was served without parsing the page
+     * @param latencyMillis Duration of the check
+     * @param bytes         Bytes transferred
+     * @param date          Extracted date as a {@link PackedDate}, or {@link PackedDate#NONE}
+     */
+    public synchronized void append(long timestamp, int urlId, int status, boolean cached,
+                                    int latencyMillis, int bytes, int date) {
+        int flags = cached ? FLAG_CACHED : 0;
+        if (status != STATUS_ERROR && remember(urlId, date)) {
+            flags |= FLAG_CHANGED;
+        }
+        int at = offset(written);
+        buffer.putLong(at + R_TIME, timestamp);
+        buffer.putInt(at + R_URL_ID, urlId);
+        buffer.put(at + R_STATUS, (byte) status);
+        buffer.put(at + R_FLAGS, (byte) flags);
+        buffer.putInt(at + R_LATENCY, latencyMillis);
+        buffer.putInt(at + R_BYTES, bytes);
+        buffer.putInt(at + R_DATE, date);
+        written++;
+        buffer.putLong(H_WRITTEN, written);
+    }
+
+    /**
+     * @return Number of records currently stored
+     */
+    public synchronized int size() {
+        return (int) Math.min(written, capacity);
+    }
+
+    /**
+     * Returns the most recent checks, newest first.
+     * @param n Maximum number of records
+     * @return Up to n records
+     */
+    public synchronized List<Record> last(int n) {
+        int count = Math.min(n, size());
+        List<Record> out = new ArrayList<>(count);
+        for (long i = written - 1; i >= written - count; i--) {
+            out.add(read(i));
+        }
+        return out;
+    }
+
+    /**
+     * Returns the checks in which the date changed within a time range, oldest first.
+     * @param fromMillis Inclusive start of the range
+     * @param toMillis   Exclusive end of the range
+     * @return Matching change records
+     */
+    public synchronized List<Record> changes(long fromMillis, long toMillis) {
+        List<Record> out = new ArrayList<>();
+        for (long i = written - size(); i < written; i++) {
+            int at = offset(i);
+            long time = buffer.getLong(at + R_TIME);
+            if (time >= fromMillis && time < toMillis
+                    && (buffer.get(at + R_FLAGS) & FLAG_CHANGED) != 0) {
+                out.add(read(i));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Flushes the mapped records to storage.
+     */
+    public synchronized void flush() {
+        buffer.force();
+    }
+
+    private int offset(long index) {
+        return HEADER_SIZE + (int) (index % capacity) * RECORD_SIZE;
+    }
+
+    private Record read(long index) {
+        int at = offset(index);
+        return new Record(
+                buffer.getLong(at + R_TIME),
+                buffer.getInt(at + R_URL_ID),
+                buffer.get(at + R_STATUS),
+                buffer.get(at + R_FLAGS),
+                buffer.getInt(at + R_LATENCY),
+                buffer.getInt(at + R_BYTES),
+                buffer.getInt(at + R_DATE));
+    }
+
+    /**
+     * Records the latest date of a URL.
+     * @return True if it differs from the previously recorded date
+     */
+    private boolean remember(int urlId, int date) {
+        for (int i = 0; i < lastCount; i++) {
+            if (lastIds[i] == urlId) {
+                boolean changed = lastDates[i] != date;
+                lastDates[i] = date;
+                return changed;
+            }
+        }
+        if (lastCount == lastIds.length) {
+            int[] ids = new int[lastCount * 2];
+            int[] dates = new int[lastCount * 2];
+            System.arraycopy(lastIds, 0, ids, 0, lastCount);
+            System.arraycopy(lastDates, 0, dates, 0, lastCount);
+            lastIds = ids;
+            lastDates = dates;
+        }
+        lastIds[lastCount] = urlId;
+        lastDates[lastCount] = date;
+        lastCount++;
+        return true;
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * CheckResult is the outcome of one check as published to observers: the
+ * monitor, the date found, whether it matched the target and which target
+ * rule fired if not, when the check finished and how long the fetch took.
+ * A failed check has no date and carries the class of its failure instead.
+ * Instances are immutable.
+ */
+package upwork.date.parser;
+
+public class CheckResult {
+
+    public final long monitorId;
+    public final String date;
+    public final boolean match;
+    public final String rule;
+    public final long timestampMillis;
+    public final int latencyMillis;
+    public final CheckFailure failure;
+
+    /**
+     * @param monitorId       Identifier of the checked monitor
+     * @param date            Extracted date string
+     * @param rule            Description of the target rule that fired, or null if none did
+     * @param timestampMillis Wall-clock time the check finished
+     * @param latencyMillis   Duration of the fetch, 0 if the date was pushed
+     */
+    public CheckResult(long monitorId, String date, String rule, long timestampMillis, int latencyMillis) {
+        this.monitorId = monitorId;
+        this.date = date;
+        this.match = rule == null;
+        this.rule = rule;
+        this.timestampMillis = timestampMillis;
+        this.latencyMillis = latencyMillis;
+        this.failure = null;
+    }
+
+    private CheckResult(long monitorId, CheckFailure failure, long timestampMillis, int latencyMillis) {
+        this.monitorId = monitorId;
+        this.date = null;
+        this.match = false;
+        this.rule = null;
+        this.timestampMillis = timestampMillis;
+        this.latencyMillis = latencyMillis;
+        this.failure = failure;
+    }
+
+    /**
+     * Creates the result of a failed check.
+     * @param monitorId       Identifier of the checked monitor
+     * @param failure         Class of the failure
+     * @param timestampMillis Wall-clock time the check failed
+     * @param latencyMillis   Time spent on the check until it failed
+     * @return The result
+     */
+    public static CheckResult failed(long monitorId, CheckFailure failure, long timestampMillis,
+                                     int latencyMillis) {
+        return new CheckResult(monitorId, failure, timestampMillis, latencyMillis);
+    }
+
+    /**
+     * @return True if the check failed and there is no date
+     */
+    public boolean isFailure() {
+        return failure != null;
+    }
+}
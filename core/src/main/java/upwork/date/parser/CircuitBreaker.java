@@ -0,0 +1,90 @@
+/**
+ * CircuitBreaker stops checks against a host that keeps failing. After a number
+ * of consecutive failures the breaker opens and rejects every check for a
+ * cool-down period; then a single probe is let through, which either closes the
+ * breaker again or reopens it for another period.
+ */
+package upwork.date.parser;
+
+import java.io.IOException;
+
+public class CircuitBreaker {
+
+    /**
+     * Thrown instead of fetching while the breaker is open.
+     */
+    public static class OpenException extends IOException {
+        public OpenException(String host) {
+            super("Circuit open for " + host);
+        }
+    }
+
+    private static final int CLOSED    = 0;
+    private static final int OPEN      = 1;
+    private static final int HALF_OPEN = 2;
+
+    private final String host;
+    private final int threshold;
+    private final long openMillis;
+
+    private int state = CLOSED;
+    private int failures;
+    private long openedAt;
+
+    /**
+     * @param host       Host guarded by this breaker, used in messages
+     * @param threshold  Consecutive failures that open the breaker, 0 to never open
+     * @param openMillis How long the breaker stays open before a probe
+     */
+    public CircuitBreaker(String host, int threshold, long openMillis) {
+        this.host = host;
+        this.threshold = threshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Asks for permission to fetch. While half-open only one probe is allowed
+     * until its outcome is reported.
+     * @param now Current time in milliseconds
+     * @throws OpenException If the breaker rejects the call
+     */
+    public synchronized void acquire(long now) throws OpenException {
+        if (state == OPEN && now - openedAt >= openMillis) {
+            state = HALF_OPEN;
+            return;
+        }
+        if (state != CLOSED) {
+            Metrics.get().increment("breaker.rejected");
+            throw new OpenException(host);
+        }
+    }
+
+    /**
+     * Reports a successful fetch, closing the breaker.
+     */
+    public synchronized void onSuccess() {
+        state = CLOSED;
+        failures = 0;
+    }
+
+    /**
+     * Reports a failed fetch, opening the breaker when the threshold is reached
+     * or when a probe fails.
+     * @param now Current time in milliseconds
+     */
+    public synchronized void onFailure(long now) {
+        failures++;
+        if (state == HALF_OPEN || (threshold > 0 && failures >= threshold && state == CLOSED)) {
+            state = OPEN;
+            openedAt = now;
+            Metrics.get().increment("breaker.opened");
+        }
+    }
+
+    /**
+     * @return True if the breaker currently rejects checks
+     */
+    public synchronized boolean isOpen() {
+        return state != CLOSED;
+    }
+}
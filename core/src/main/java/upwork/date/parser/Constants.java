@@ -0,0 +1,195 @@
+/**
+ * Constants holds default configuration values used throughout the application.
+ */
+package upwork.date.parser;
+
+public class Constants {
+
+    /**
+     * Default URL to monitor when no custom URL is provided.
+     */
+    public static final String DEFAULT_URL = "http://pagemonitor.office.com.ro/pagina1.html";
+
+    /**
+     * Default polling interval in minutes between checks.
+     */
+    public static final int DEFAULT_INTERVAL = 10;
+
+    /**
+     * Minimum polling interval in minutes between checks.
+     */
+    public static final int MINIMUM_INTERVAL = 5;
+
+    /**
+     * Default target phrase to compare against the parsed value.
+     */
+    public static final String DEFAULT_TARGET_PHRASE = "31.10.2025";
+
+    /**
+     * Initial delayed start in minutes before the first background check.
+     */
+    public static final long NOTIFICATION_TIME = 10L;
+
+    /**
+     * Maximum number of pages fetched at the same time by the monitoring service.
+     */
+    public static final int FETCH_POOL_SIZE = 4;
+
+    /**
+     * Maximum number of concurrent fetches against a single host.
+     */
+    public static final int FETCH_PER_HOST_LIMIT = 2;
+
+    /**
+     * Default upper bound in minutes of the backed-off polling interval.
+     */
+    public static final int DEFAULT_MAX_INTERVAL = 60;
+
+    /**
+     * Default multiplier applied to the interval per unchanged or failed check.
+     * Backoff is opt-in, so by default the interval stays fixed.
+     */
+    public static final double DEFAULT_BACKOFF_FACTOR = 1.0;
+
+    /**
+     * Multiplier applied per unchanged or failed check once backoff is turned on.
+     */
+    public static final double BACKOFF_FACTOR = 1.5;
+
+    /**
+     * Default relative random spread applied to every polling delay.
+     */
+    public static final double DEFAULT_JITTER = 0.1;
+
+    /**
+     * Multiplier of the polling intervals while the network is metered or roaming.
+     */
+    public static final double METERED_INTERVAL_FACTOR = 3.0;
+
+    /**
+     * Smallest interval in minutes for which the low-power scheduled-job mode is used.
+     */
+    public static final int LOW_POWER_MIN_INTERVAL = 15;
+
+    /**
+     * How long in milliseconds a fetched result is served from memory to other callers.
+     */
+    public static final long RESULT_TTL_MILLIS = 30_000L;
+
+    /**
+     * Name of the memory-mapped check history file in the app files directory.
+     */
+    public static final String HISTORY_FILE = "check_history.bin";
+
+    /**
+     * Number of check records kept before the history wraps around.
+     */
+    public static final int HISTORY_CAPACITY = 4096;
+
+    /**
+     * Name of the file in the app files directory that keeps the last successful result.
+     */
+    public static final String LAST_RESULT_FILE = "last_result.txt";
+
+    /**
+     * Timeout in milliseconds for establishing a connection.
+     */
+    public static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+
+    /**
+     * Timeout in milliseconds for a single blocking read.
+     */
+    public static final int READ_TIMEOUT_MILLIS = 15_000;
+
+    /**
+     * Largest response body in bytes the non-blocking engine accepts.
+     */
+    public static final int MAX_RESPONSE_BYTES = 8 * 1024 * 1024;
+
+    /**
+     * Time in milliseconds an idle connection is kept open for reuse.
+     */
+    public static final long KEEP_ALIVE_MILLIS = 30_000L;
+
+    /**
+     * Overall time budget in milliseconds of one check, including retries and hedges.
+     */
+    public static final long CHECK_DEADLINE_MILLIS = 30_000L;
+
+    /**
+     * Number of retries after a failed attempt, within the check deadline.
+     */
+    public static final int FETCH_MAX_RETRIES = 2;
+
+    /**
+     * Delay in milliseconds before the first retry, doubled for each further retry.
+     */
+    public static final long RETRY_DELAY_MILLIS = 1_000L;
+
+    /**
+     * Latency percentile of recent checks after which a hedged second request is sent.
+     */
+    public static final int HEDGE_PERCENTILE = 95;
+
+    /**
+     * Threads that run hedged requests and blocking fallbacks of the resilient
+     * fetcher. The first attempt of a check runs on the checking thread.
+     */
+    public static final int HEDGE_THREADS = 2;
+
+    /**
+     * Consecutive failures after which the circuit breaker of a host opens.
+     */
+    public static final int BREAKER_FAILURE_THRESHOLD = 5;
+
+    /**
+     * How long in milliseconds an open circuit breaker rejects checks before probing again.
+     */
+    public static final long BREAKER_OPEN_MILLIS = 5 * 60_000L;
+
+    /**
+     * Delay in milliseconds before the first reconnect of a push subscription.
+     */
+    public static final long PUSH_INITIAL_BACKOFF_MILLIS = 1_000L;
+
+    /**
+     * Upper bound in milliseconds of the push reconnect delay.
+     */
+    public static final long PUSH_MAX_BACKOFF_MILLIS = 60_000L;
+
+    /**
+     * Consecutive failed push connections after which the monitor is polled again.
+     */
+    public static final int PUSH_FAILURES_BEFORE_FALLBACK = 3;
+
+    /**
+     * Read timeout in milliseconds of a push connection; servers must send data
+     * or a comment line more often than this.
+     */
+    public static final int PUSH_READ_TIMEOUT_MILLIS = 90_000;
+
+    /**
+     * Period in milliseconds of the scheduler watchdog that looks for stalled checks.
+     */
+    public static final long WATCHDOG_PERIOD_MILLIS = 60_000L;
+
+    /**
+     * How long in milliseconds a check may be overdue before the watchdog treats it as stalled.
+     */
+    public static final long WATCHDOG_GRACE_MILLIS = 30_000L;
+
+    /**
+     * How long in milliseconds a running check may take before it is abandoned and restarted.
+     */
+    public static final long CHECK_STUCK_MILLIS = 4 * CHECK_DEADLINE_MILLIS;
+
+    /**
+     * Delay in milliseconds before the first restart of a stalled monitor, doubled per further restart.
+     */
+    public static final long RESTART_INITIAL_BACKOFF_MILLIS = 5_000L;
+
+    /**
+     * Upper bound in milliseconds of the restart delay of a stalled monitor.
+     */
+    public static final long RESTART_MAX_BACKOFF_MILLIS = 5 * 60_000L;
+}
@@ -0,0 +1,281 @@
+/**
+ * DateExtractor is the single, thread-safe engine that pulls the date out of a
+ * monitored page, plain text response or JSON document. It is configured by a
+ * {@link Rule}; every rule is compiled once and the compiled extractor is
+ * cached by the rule definition.
+ */
+package upwork.date.parser;
+
+import org.jsoup.nodes.DataNode;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class DateExtractor {
+
+    /**
+     * Extraction rule. For HTML, elements matching the selector whose content
+     * contains the marker are searched with the regex, and its first group is
+     * the date; without a regex the built-in {@link DateScanner} takes the
+     * first valid date that follows a dash. For TEXT the first date after the
+     * marker is taken, and for JSON the selector is the path of the value.
+     */
+    public static class Rule {
+
+        public final SourceType type;
+        public final String marker;
+        public final String selector;
+        public final String regex;
+
+        /**
+         * Creates an HTML rule.
+         * @param marker   Substring the element content must contain, or empty for any
+         * @param selector Jsoup CSS selector of the candidate elements
+         * @param regex    Regular expression whose first group is the date, or null
+         */
+        public Rule(String marker, String selector, String regex) {
+            this(SourceType.HTML, marker, selector, regex);
+        }
+
+        /**
+         * @param type     Kind of response the rule applies to
+         * @param marker   Substring the content must contain before the date, or empty for any
+         * @param selector Jsoup CSS selector for HTML, path for JSON, unused for TEXT
+         * @param regex    Regular expression whose first group is the date, or null
+         */
+        public Rule(SourceType type, String marker, String selector, String regex) {
+            this.type = type;
+            this.marker = marker != null ? marker : "";
+            this.selector = selector != null ? selector : "";
+            this.regex = regex;
+        }
+
+        /**
+         * @return Rule that takes the first date of a plain text response
+         */
+        public static Rule text() {
+            return new Rule(SourceType.TEXT, "", "", null);
+        }
+
+        /**
+         * @param path Path of the date value, e.g. "data.range.end"
+         * @return Rule that reads the date from a JSON document
+         */
+        public static Rule json(String path) {
+            return new Rule(SourceType.JSON, "", path, null);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Rule)) return false;
+            Rule other = (Rule) o;
+            return type == other.type
+                    && marker.equals(other.marker)
+                    && selector.equals(other.selector)
+                    && (regex == null ? other.regex == null : regex.equals(other.regex));
+        }
+
+        @Override
+        public int hashCode() {
+            int h = type.hashCode();
+            h = h * 31 + marker.hashCode();
+            h = h * 31 + selector.hashCode();
+            return h * 31 + (regex != null ? regex.hashCode() : 0);
+        }
+
+        @Override
+        public String toString() {
+            return type + " " + selector + " [" + marker + "] " + (regex != null ? regex : "date");
+        }
+    }
+
+    /**
+     * Rule used by the app: the "#minmax" script and the date after a dash.
+     */
+    public static final Rule DEFAULT_RULE = new Rule("#minmax", "script", null);
+
+    private static final ConcurrentHashMap<Rule, DateExtractor> compiled = new ConcurrentHashMap<>();
+
+    /**
+     * Per-thread buffer that content is copied through when it is scanned as JSON.
+     */
+    private static final ThreadLocal<char[]> chunks = ThreadLocal.withInitial(() -> new char[1024]);
+
+    private final Rule rule;
+    private final Pattern pattern;
+    private final String streamTag;
+    private final JsonScanner.Path jsonPath;
+    private final ThreadLocal<JsonScanner> jsonScanners;
+
+    private DateExtractor(Rule rule) {
+        this.rule = rule;
+        this.pattern = rule.regex != null ? Pattern.compile(rule.regex) : null;
+        String tag = rule.selector.trim().toLowerCase();
+        this.streamTag = rule.type == SourceType.HTML && (tag.equals("script") || tag.equals("style"))
+                ? tag : null;
+        this.jsonPath = rule.type == SourceType.JSON ? JsonScanner.Path.compile(rule.selector) : null;
+        this.jsonScanners = jsonPath != null ? ThreadLocal.withInitial(() -> new JsonScanner(jsonPath)) : null;
+    }
+
+    /**
+     * Returns the compiled extractor for the rule, compiling it on first use.
+     * @param rule Extraction rule
+     * @return Shared extractor instance
+     */
+    public static DateExtractor forRule(Rule rule) {
+        return compiled.computeIfAbsent(rule, DateExtractor::new);
+    }
+
+    /**
+     * @return The extractor for {@link #DEFAULT_RULE}
+     */
+    public static DateExtractor getDefault() {
+        return forRule(DEFAULT_RULE);
+    }
+
+    /**
+     * @return The rule this extractor was compiled from
+     */
+    public Rule getRule() {
+        return rule;
+    }
+
+    /**
+     * Tells whether the content contains the rule marker.
+     * @param content Element content
+     * @return True if the marker is present or the rule has no marker
+     */
+    public boolean containsMarker(CharSequence content) {
+        if (rule.marker.isEmpty()) {
+            return true;
+        }
+        if (content instanceof String) {
+            return ((String) content).contains(rule.marker);
+        }
+        if (content instanceof StringBuilder) {
+            return ((StringBuilder) content).indexOf(rule.marker) >= 0;
+        }
+        return content.toString().contains(rule.marker);
+    }
+
+    /**
+     * Extracts the date from the content of a single element.
+     * @param content Element content
+     * @return The date or null if the marker or the pattern is missing
+     */
+    public String extract(CharSequence content) {
+        if (!containsMarker(content)) {
+            return null;
+        }
+        return match(content);
+    }
+
+    /**
+     * Searches for the date without checking the marker.
+     * @param content Element content already known to contain the marker
+     * @return The date in format DD.MM.YYYY or null
+     */
+    public String match(CharSequence content) {
+        int date = scan(content);
+        return date != PackedDate.NONE ? PackedDate.format(date) : null;
+    }
+
+    /**
+     * Searches for the date without checking the marker or creating objects
+     * when the rule has no regex.
+     * @param content Element content already known to contain the marker
+     * @return The packed date or {@link PackedDate#NONE}
+     */
+    public int scan(CharSequence content) {
+        if (rule.type == SourceType.JSON) {
+            JsonScanner scanner = jsonScanners.get();
+            scanner.reset();
+            char[] chunk = chunks.get();
+            int length = content.length();
+            for (int from = 0; from < length; from += chunk.length) {
+                int to = Math.min(length, from + chunk.length);
+                copy(content, from, to, chunk);
+                if (scanner.feed(chunk, 0, to - from)) break;
+            }
+            return scanner.resultDate();
+        }
+        if (pattern == null && rule.type == SourceType.TEXT) {
+            int from = rule.marker.isEmpty() ? 0 : content.toString().indexOf(rule.marker);
+            return from < 0 ? PackedDate.NONE
+                    : DateScanner.find(content, from + rule.marker.length(), content.length(), DateScanner.ANY);
+        }
+        if (pattern == null) {
+            return DateScanner.find(content, 0, content.length(), '-');
+        }
+        Matcher m = pattern.matcher(content);
+        return m.find() ? PackedDate.parse(m.group(1)) : PackedDate.NONE;
+    }
+
+    private static void copy(CharSequence content, int from, int to, char[] dst) {
+        if (content instanceof String) {
+            ((String) content).getChars(from, to, dst, 0);
+        } else if (content instanceof StringBuilder) {
+            ((StringBuilder) content).getChars(from, to, dst, 0);
+        } else {
+            for (int i = from; i < to; i++) {
+                dst[i - from] = content.charAt(i);
+            }
+        }
+    }
+
+    /**
+     * Extracts the date from a parsed document.
+     * @param doc Jsoup document
+     * @return The date from the first matching element or null
+     */
+    public String extract(Document doc) {
+        if (rule.type != SourceType.HTML) {
+            return extract(doc.wholeText());
+        }
+        for (Element element : doc.select(rule.selector)) {
+            String content;
+            if (element.childNodeSize() == 1 && element.childNode(0) instanceof DataNode) {
+                content = ((DataNode) element.childNode(0)).getWholeData();
+            } else {
+                content = element.data();
+                if (content.isEmpty()) {
+                    content = element.text();
+                }
+            }
+            String date = extract(content);
+            if (date != null) {
+                return date;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creates a streaming scanner for this rule. TEXT and JSON responses are
+     * always scanned; for HTML only raw-text elements such as script and style
+     * can be scanned without building a document.
+     * @return A new scanner or null if the selector requires a full parse
+     */
+    public PageScanner newScanner() {
+        switch (rule.type) {
+            case TEXT:
+                return pattern == null ? new TextScanner(rule.marker) : null;
+            case JSON:
+                return new JsonScanner(jsonPath);
+            default:
+                return streamTag != null ? new ScriptScanner(streamTag, this) : null;
+        }
+    }
+
+    /**
+     * Tells whether the rule can fall back to a full Jsoup parse when the
+     * streaming scan finds nothing.
+     * @return True for HTML rules
+     */
+    public boolean hasDocumentFallback() {
+        return rule.type != SourceType.JSON;
+    }
+}
@@ -0,0 +1,581 @@
+/**
+ * DateFetcher downloads the monitored page and extracts the date with a
+ * {@link DateExtractor} rule (by default the "#minmax" script). Script elements,
+ * plain text and JSON responses are scanned while they are streamed from the
+ * socket and the connection is closed as soon as the date is found. When the
+ * streaming scan of an HTML page finds nothing, the full Jsoup document is parsed.
+ * Periodic checks may pass a {@link ValidatorCache} to send conditional requests.
+ * Connect and read timeouts are always applied, and an optional deadline bounds
+ * the whole download even when the server keeps trickling data. A {@link Call}
+ * lets another thread abort a blocking fetch.
+ * {@link #fetchAsync} runs the same fetch on a {@link NioHttpEngine} instead.
+ */
+package upwork.date.parser;
+
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+public class DateFetcher {
+
+    private static final String USER_AGENT = "Chrome";
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * Thrown when the page was loaded but contains no date. Retrying does not help.
+     */
+    public static class NoDateException extends IOException {
+        public NoDateException() {
+            super("Failed to parse date in script");
+        }
+    }
+
+    /**
+     * Handle to abort a blocking fetch from another thread. Cancelling closes
+     * the connection, so a read blocked on the socket fails right away.
+     */
+    public static class Call {
+
+        private boolean cancelled;
+        private HttpURLConnection connection;
+
+        /**
+         * Aborts the fetch, or the next one started with this handle.
+         */
+        public void cancel() {
+            HttpURLConnection conn;
+            synchronized (this) {
+                cancelled = true;
+                conn = connection;
+                connection = null;
+            }
+            if (conn != null) {
+                conn.disconnect();
+            }
+        }
+
+        /**
+         * @return True if {@link #cancel()} was called
+         */
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        synchronized void attach(HttpURLConnection conn) throws IOException {
+            if (cancelled) {
+                throw new IOException("Fetch cancelled");
+            }
+            connection = conn;
+        }
+
+        synchronized void detach() {
+            connection = null;
+        }
+    }
+
+    /**
+     * Result of a single fetch.
+     */
+    public static class Result {
+
+        public final String date;
+        public final int packedDate;
+        public final boolean unchanged;
+        public final int bytes;
+        public final int latencyMillis;
+
+        /**
+         * @param date      Extracted date string in format DD.MM.YYYY
+         * @param unchanged True if the date was reused from a cache without parsing
+         */
+        public Result(String date, boolean unchanged) {
+            this(date, unchanged, 0, 0);
+        }
+
+        /**
+         * @param date          Extracted date string in format DD.MM.YYYY
+         * @param unchanged     True if the date was reused from a cache without parsing
+         * @param bytes         Response bytes read from the network
+         * @param latencyMillis Duration of the whole fetch
+         */
+        public Result(String date, boolean unchanged, int bytes, int latencyMillis) {
+            this.date = date;
+            this.packedDate = PackedDate.parse(date);
+            this.unchanged = unchanged;
+            this.bytes = bytes;
+            this.latencyMillis = latencyMillis;
+        }
+
+        /**
+         * Returns a copy of this result with the measured latency.
+         * @param latencyMillis Duration of the whole fetch
+         * @return The new result
+         */
+        Result withLatency(int latencyMillis) {
+            return new Result(date, unchanged, bytes, latencyMillis);
+        }
+    }
+
+    /**
+     * Fetches the page and returns the date found in its "#minmax" script.
+     * @param url Page URL to fetch and parse
+     * @return Parsed date string in format DD.MM.YYYY
+     * @throws IOException If the page cannot be loaded or contains no date
+     */
+    public static String fetchDate(String url) throws IOException {
+        return fetch(url, DateExtractor.getDefault(), null).date;
+    }
+
+    /**
+     * Fetches the page using the validators stored in the cache. A 304 response
+     * or a script with an unchanged fingerprint reuses the cached date without
+     * running the date pattern.
+     * @param url       Page URL to fetch and parse
+     * @param extractor Extraction engine to apply
+     * @param cache     Validator cache to read and update, or null to fetch unconditionally
+     * @return The fetch result
+     * @throws IOException If the page cannot be loaded or contains no date
+     */
+    public static Result fetch(String url, DateExtractor extractor, ValidatorCache cache)
+            throws IOException {
+        return fetch(url, extractor, cache,
+                Constants.CONNECT_TIMEOUT_MILLIS, Constants.READ_TIMEOUT_MILLIS, 0L);
+    }
+
+    /**
+     * Fetches the page like {@link #fetch(String, DateExtractor, ValidatorCache)}
+     * with explicit timeouts.
+     * @param url                  Page URL to fetch and parse
+     * @param extractor            Extraction engine to apply
+     * @param cache                Validator cache to read and update, or null
+     * @param connectTimeoutMillis Timeout for establishing the connection
+     * @param readTimeoutMillis    Timeout for a single blocking read
+     * @param deadlineNanos        {@link System#nanoTime()} by which the fetch must end, 0 for none
+     * @return The fetch result
+     * @throws SocketTimeoutException If a timeout or the deadline is exceeded
+     * @throws NoDateException        If the page contains no date
+     * @throws IOException            If the page cannot be loaded
+     */
+    public static Result fetch(String url, DateExtractor extractor, ValidatorCache cache,
+                               int connectTimeoutMillis, int readTimeoutMillis, long deadlineNanos)
+            throws IOException {
+        return fetch(url, extractor, cache, connectTimeoutMillis, readTimeoutMillis, deadlineNanos, null);
+    }
+
+    /**
+     * Fetches the page like {@link #fetch(String, DateExtractor, ValidatorCache, int, int, long)}
+     * so that another thread can abort it.
+     * @param url                  Page URL to fetch and parse
+     * @param extractor            Extraction engine to apply
+     * @param cache                Validator cache to read and update, or null
+     * @param connectTimeoutMillis Timeout for establishing the connection
+     * @param readTimeoutMillis    Timeout for a single blocking read
+     * @param deadlineNanos        {@link System#nanoTime()} by which the fetch must end, 0 for none
+     * @param call                 Handle that aborts the fetch, or null
+     * @return The fetch result
+     * @throws SocketTimeoutException If a timeout or the deadline is exceeded
+     * @throws NoDateException        If the page contains no date
+     * @throws IOException            If the page cannot be loaded or the fetch was cancelled
+     */
+    public static Result fetch(String url, DateExtractor extractor, ValidatorCache cache,
+                               int connectTimeoutMillis, int readTimeoutMillis, long deadlineNanos,
+                               Call call) throws IOException {
+        Metrics metrics = Metrics.get();
+        long start = System.nanoTime();
+        Result result;
+        try {
+            Timeouts timeouts = new Timeouts(connectTimeoutMillis, readTimeoutMillis, deadlineNanos, call);
+            result = stream(url, extractor, cache, timeouts);
+            if (result == null && extractor.hasDocumentFallback()) {
+                metrics.increment("fetch.fallback");
+                result = parse(url, extractor, timeouts);
+            }
+        } catch (IOException | RuntimeException e) {
+            metrics.increment("fetch.error");
+            throw e;
+        }
+        long elapsed = System.nanoTime() - start;
+        metrics.recordNanos("fetch.total", elapsed);
+        if (result == null) {
+            metrics.increment("fetch.no_date");
+            if (cache != null) {
+                cache.remove(url, extractor.getRule());
+            }
+            throw new NoDateException();
+        }
+        metrics.increment(result.unchanged ? "fetch.unchanged" : "fetch.ok");
+        metrics.add("fetch.bytes", result.bytes);
+        return result.withLatency((int) (elapsed / 1_000_000L));
+    }
+
+    /**
+     * Fetches the page on a {@link NioHttpEngine} without holding a thread while
+     * waiting for the network. URLs and rules the engine cannot handle, and
+     * redirects it cannot follow, are fetched with the blocking path on the
+     * fallback executor, as is the document fallback when the stream held no date.
+     * Cancelling the returned future aborts the request.
+     * @param url                  Page URL to fetch and parse
+     * @param extractor            Extraction engine to apply
+     * @param cache                Validator cache to read and update, or null
+     * @param connectTimeoutMillis Timeout for establishing the connection
+     * @param readTimeoutMillis    Longest silence while receiving
+     * @param deadlineNanos        {@link System#nanoTime()} by which the fetch must end, 0 for none
+     * @param engine               Engine that drives the request
+     * @param fallback             Executor for blocking work
+     * @return Future of the result, failing like {@link #fetch(String, DateExtractor, ValidatorCache, int, int, long)}
+     */
+    public static CompletableFuture<Result> fetchAsync(final String url, final DateExtractor extractor,
+                                                       final ValidatorCache cache,
+                                                       final int connectTimeoutMillis,
+                                                       final int readTimeoutMillis,
+                                                       final long deadlineNanos,
+                                                       NioHttpEngine engine, final Executor fallback) {
+        if (!NioHttpEngine.supports(url) || extractor.newScanner() == null) {
+            return blocking(url, extractor, cache, connectTimeoutMillis, readTimeoutMillis,
+                    deadlineNanos, fallback);
+        }
+        final Metrics metrics = Metrics.get();
+        final long start = System.nanoTime();
+        final CompletableFuture<Result> future = new CompletableFuture<>();
+        final CompletableFuture<Result> request =
+                engine.fetch(url, extractor, cache, connectTimeoutMillis, readTimeoutMillis, deadlineNanos);
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) request.cancel(false);
+        });
+        request.whenComplete((streamed, error) -> {
+            if (future.isDone()) {
+                // Cancelled by the caller; the engine has dropped the request.
+            } else if (error instanceof NioHttpEngine.RedirectException) {
+                metrics.increment("fetch.redirect_fallback");
+                forward(blocking(((NioHttpEngine.RedirectException) error).location, extractor,
+                        cache, connectTimeoutMillis, readTimeoutMillis, deadlineNanos, fallback),
+                        future);
+            } else if (error != null) {
+                metrics.increment("fetch.error");
+                future.completeExceptionally(error);
+            } else if (streamed == null && extractor.hasDocumentFallback()) {
+                metrics.increment("fetch.fallback");
+                try {
+                    fallback.execute(() -> {
+                        if (future.isDone()) return;
+                        try {
+                            Timeouts timeouts = new Timeouts(
+                                    connectTimeoutMillis, readTimeoutMillis, deadlineNanos);
+                            complete(url, extractor, cache, parse(url, extractor, timeouts), start, future);
+                        } catch (IOException | RuntimeException e) {
+                            metrics.increment("fetch.error");
+                            future.completeExceptionally(e);
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            } else {
+                complete(url, extractor, cache, streamed, start, future);
+            }
+        });
+        return future;
+    }
+
+    private static CompletableFuture<Result> blocking(final String url, final DateExtractor extractor,
+                                                      final ValidatorCache cache,
+                                                      final int connectTimeoutMillis,
+                                                      final int readTimeoutMillis,
+                                                      final long deadlineNanos, Executor fallback) {
+        final CompletableFuture<Result> future = new CompletableFuture<>();
+        final Call call = new Call();
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) call.cancel();
+        });
+        try {
+            fallback.execute(() -> {
+                try {
+                    future.complete(fetch(url, extractor, cache,
+                            connectTimeoutMillis, readTimeoutMillis, deadlineNanos, call));
+                } catch (IOException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private static void forward(final CompletableFuture<Result> from, final CompletableFuture<Result> to) {
+        to.whenComplete((result, error) -> {
+            if (to.isCancelled()) from.cancel(false);
+        });
+        from.whenComplete((result, error) -> {
+            if (error != null) {
+                to.completeExceptionally(error);
+            } else {
+                to.complete(result);
+            }
+        });
+    }
+
+    /**
+     * Records the metrics of a finished fetch the way {@link #fetch} does.
+     */
+    private static void complete(String url, DateExtractor extractor, ValidatorCache cache,
+                                 Result result, long start, CompletableFuture<Result> future) {
+        Metrics metrics = Metrics.get();
+        long elapsed = System.nanoTime() - start;
+        metrics.recordNanos("fetch.total", elapsed);
+        if (result == null) {
+            metrics.increment("fetch.no_date");
+            if (cache != null) {
+                cache.remove(url, extractor.getRule());
+            }
+            future.completeExceptionally(new NoDateException());
+            return;
+        }
+        metrics.increment(result.unchanged ? "fetch.unchanged" : "fetch.ok");
+        metrics.add("fetch.bytes", result.bytes);
+        future.complete(result.withLatency((int) (elapsed / 1_000_000L)));
+    }
+
+    /**
+     * Reads the response incrementally and stops at the first matching element.
+     * @param url       Page URL to fetch
+     * @param extractor Extraction engine to apply
+     * @param cache     Validator cache or null
+     * @param timeouts  Timeouts and deadline of this fetch
+     * @return The result or null if the streaming scan found nothing
+     */
+    static Result stream(String url, DateExtractor extractor, ValidatorCache cache,
+                         Timeouts timeouts) throws IOException {
+        PageScanner scanner = extractor.newScanner();
+        if (scanner == null) {
+            return null;
+        }
+        ValidatorCache.Entry known = cache != null ? cache.get(url, extractor.getRule()) : null;
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        timeouts.attach(conn);
+        conn.setUseCaches(false);
+        conn.setConnectTimeout(timeouts.connect());
+        conn.setReadTimeout(timeouts.read());
+        conn.setRequestProperty("User-Agent", USER_AGENT);
+        if (extractor.getRule().type == SourceType.JSON) {
+            conn.setRequestProperty("Accept", "application/json");
+        }
+        if (known != null && known.etag != null) {
+            conn.setRequestProperty("If-None-Match", known.etag);
+        }
+        if (known != null && known.lastModified != null) {
+            conn.setRequestProperty("If-Modified-Since", known.lastModified);
+        }
+        Metrics metrics = Metrics.get();
+        try {
+            long t0 = System.nanoTime();
+            conn.connect();
+            long t1 = System.nanoTime();
+            metrics.recordNanos("fetch.connect", t1 - t0);
+            int code = conn.getResponseCode();
+            metrics.recordNanos("fetch.first_byte", System.nanoTime() - t1);
+            if (code == HttpURLConnection.HTTP_NOT_MODIFIED && known != null) {
+                metrics.increment("fetch.not_modified");
+                return new Result(known.date, true);
+            }
+            InputStream in = code >= 400
+                    ? conn.getErrorStream()
+                    : conn.getInputStream();
+            if (in == null) {
+                return null;
+            }
+            CountingInputStream counted = new CountingInputStream(in);
+            if (known != null) {
+                scanner.setKnown(known.scriptHash, known.date);
+            }
+            char[] buf = new char[BUFFER_SIZE];
+            long readStart = System.nanoTime();
+            long scanNanos = 0;
+            try (Reader reader = new InputStreamReader(counted, charsetOf(conn.getContentType()))) {
+                int n;
+                while ((n = reader.read(buf)) != -1) {
+                    timeouts.check();
+                    long s0 = System.nanoTime();
+                    boolean found = scanner.feed(buf, 0, n);
+                    scanNanos += System.nanoTime() - s0;
+                    if (found) {
+                        break;
+                    }
+                }
+            }
+            metrics.recordNanos("fetch.download", System.nanoTime() - readStart - scanNanos);
+            metrics.recordNanos("fetch.extract", scanNanos);
+            if (scanner.resultDate() == PackedDate.NONE) {
+                return null;
+            }
+            if (cache != null && code < 400) {
+                cache.put(url, extractor.getRule(), new ValidatorCache.Entry(
+                        conn.getHeaderField("ETag"),
+                        conn.getHeaderField("Last-Modified"),
+                        scanner.fingerprint(),
+                        scanner.result()));
+            }
+            return new Result(scanner.result(), scanner.isUnchanged(), counted.count, 0);
+        } finally {
+            timeouts.detach();
+            conn.disconnect();
+        }
+    }
+
+    /**
+     * Fallback path that builds the whole Jsoup document and applies the rule to it.
+     * @param url       Page URL to fetch
+     * @param extractor Extraction engine to apply
+     * @param timeouts  Timeouts and deadline of this fetch
+     * @return The result or null if no element matched
+     */
+    static Result parse(String url, DateExtractor extractor, Timeouts timeouts) throws IOException {
+        timeouts.check();
+        long start = System.nanoTime();
+        Connection.Response response = Jsoup.connect(url)
+                .userAgent(USER_AGENT)
+                .ignoreHttpErrors(true)
+                .timeout(timeouts.total())
+                .execute();
+        long t0 = System.nanoTime();
+        int bytes = response.bodyAsBytes().length;
+        Metrics.get().recordNanos("fetch.first_byte", t0 - start);
+        Metrics.get().recordNanos("fetch.download", System.nanoTime() - t0);
+        t0 = System.nanoTime();
+        Document doc = response.parse();
+        long t1 = System.nanoTime();
+        String date = extractor.extract(doc);
+        Metrics.get().recordNanos("fetch.parse", t1 - t0);
+        Metrics.get().recordNanos("fetch.extract", System.nanoTime() - t1);
+        return date != null ? new Result(date, false, bytes, 0) : null;
+    }
+
+    private static Charset charsetOf(String contentType) {
+        if (contentType != null) {
+            int i = contentType.toLowerCase().indexOf("charset=");
+            if (i >= 0) {
+                String name = contentType.substring(i + 8).replace("\"", "").trim();
+                int end = name.indexOf(';');
+                if (end >= 0) {
+                    name = name.substring(0, end).trim();
+                }
+                try {
+                    return Charset.forName(name);
+                } catch (IllegalArgumentException ignored) {
+                    // fall through to the default
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Connect and read timeouts of one fetch, shortened to what is left of the
+     * deadline, and the handle that may cancel it.
+     */
+    static class Timeouts {
+
+        private final int connectMillis;
+        private final int readMillis;
+        private final long deadlineNanos;
+        private final Call call;
+
+        Timeouts(int connectMillis, int readMillis, long deadlineNanos) {
+            this(connectMillis, readMillis, deadlineNanos, null);
+        }
+
+        Timeouts(int connectMillis, int readMillis, long deadlineNanos, Call call) {
+            this.connectMillis = connectMillis;
+            this.readMillis = readMillis;
+            this.deadlineNanos = deadlineNanos;
+            this.call = call;
+        }
+
+        /**
+         * Lets the call close the connection when it is cancelled.
+         * @throws IOException If the call was already cancelled
+         */
+        void attach(HttpURLConnection conn) throws IOException {
+            if (call != null) call.attach(conn);
+        }
+
+        void detach() {
+            if (call != null) call.detach();
+        }
+
+        int connect() throws SocketTimeoutException {
+            return Math.min(connectMillis, remaining());
+        }
+
+        int read() throws SocketTimeoutException {
+            return Math.min(readMillis, remaining());
+        }
+
+        /**
+         * @return Budget of a call whose timeout covers both connecting and reading
+         */
+        int total() throws SocketTimeoutException {
+            return Math.min(connectMillis + readMillis, remaining());
+        }
+
+        /**
+         * @throws SocketTimeoutException If the deadline has passed
+         * @throws IOException            If the call was cancelled
+         */
+        void check() throws IOException {
+            if (call != null && call.isCancelled()) {
+                throw new IOException("Fetch cancelled");
+            }
+            remaining();
+        }
+
+        private int remaining() throws SocketTimeoutException {
+            if (deadlineNanos == 0L) {
+                return Integer.MAX_VALUE;
+            }
+            long left = (deadlineNanos - System.nanoTime()) / 1_000_000L;
+            if (left <= 0) {
+                throw new SocketTimeoutException("Check deadline exceeded");
+            }
+            return (int) Math.min(Integer.MAX_VALUE, left);
+        }
+    }
+
+    /**
+     * Input stream that counts the bytes read through it.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        int count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+}
\ No newline at end of file
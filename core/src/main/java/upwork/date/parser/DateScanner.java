@@ -0,0 +1,241 @@
+/**
+ * DateScanner finds calendar dates in text in a single pass without creating
+ * any objects. It recognises DD.MM.YYYY, DD/MM/YYYY and ISO YYYY-MM-DD,
+ * rejects impossible dates such as 31.02.2025, and returns the date as a
+ * {@link PackedDate} int so it can be compared without formatting it.
+ */
+package upwork.date.parser;
+
+public class DateScanner {
+
+    /**
+     * Passed as prefix to accept a date anywhere.
+     */
+    public static final char ANY = 0;
+
+    private static final int LENGTH = 10;
+    private static final int MIN_YEAR = 1000;
+
+    private DateScanner() {
+    }
+
+    /**
+     * Finds the first valid date in the text.
+     * @param text Text to search
+     * @return The packed date or {@link PackedDate#NONE}
+     */
+    public static int find(CharSequence text) {
+        return find(text, 0, text.length(), ANY);
+    }
+
+    /**
+     * Finds the first valid date in a range of the text. With a prefix, only
+     * dates whose preceding non-whitespace character is that prefix count,
+     * e.g. '-' picks the upper bound of "01.10.2025 - 31.10.2025".
+     * @param text   Text to search
+     * @param from   First index of the range
+     * @param to     End of the range, exclusive
+     * @param prefix Required preceding character or {@link #ANY}
+     * @return The packed date or {@link PackedDate#NONE}
+     */
+    public static int find(CharSequence text, int from, int to, char prefix) {
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            int date = PackedDate.NONE;
+            if (prefix != ANY) {
+                if (c != prefix) continue;
+                int start = i + 1;
+                while (start < to && isSpace(text.charAt(start))) start++;
+                date = at(text, start, to);
+            } else if (isDigit(c) && (i == from || !isDigit(text.charAt(i - 1)))) {
+                date = at(text, i, to);
+            }
+            if (date != PackedDate.NONE) {
+                return date;
+            }
+        }
+        return PackedDate.NONE;
+    }
+
+    /**
+     * Finds the first valid date in a range of a char buffer.
+     * @param buf    Characters to search
+     * @param from   First index of the range
+     * @param to     End of the range, exclusive
+     * @param prefix Required preceding character or {@link #ANY}
+     * @return The packed date or {@link PackedDate#NONE}
+     */
+    public static int find(char[] buf, int from, int to, char prefix) {
+        for (int i = from; i < to; i++) {
+            char c = buf[i];
+            int date = PackedDate.NONE;
+            if (prefix != ANY) {
+                if (c != prefix) continue;
+                int start = i + 1;
+                while (start < to && isSpace(buf[start])) start++;
+                date = at(buf, start, to);
+            } else if (isDigit(c) && (i == from || !isDigit(buf[i - 1]))) {
+                date = at(buf, i, to);
+            }
+            if (date != PackedDate.NONE) {
+                return date;
+            }
+        }
+        return PackedDate.NONE;
+    }
+
+    /**
+     * Parses text that consists of one date, ignoring surrounding whitespace.
+     * @param text Date text in any supported format
+     * @return The packed date or {@link PackedDate#NONE}
+     */
+    public static int parse(CharSequence text) {
+        if (text == null) {
+            return PackedDate.NONE;
+        }
+        int from = 0;
+        int to = text.length();
+        while (from < to && isSpace(text.charAt(from))) from++;
+        while (to > from && isSpace(text.charAt(to - 1))) to--;
+        return to - from == LENGTH ? at(text, from, to) : PackedDate.NONE;
+    }
+
+    /**
+     * Parses text that starts with one date, ignoring surrounding whitespace.
+     * An ISO date may be followed by a time, as in "2025-10-31T00:00:00Z";
+     * the time is ignored.
+     * @param text Date or ISO timestamp
+     * @return The packed date or {@link PackedDate#NONE}
+     */
+    public static int parseTimestamp(CharSequence text) {
+        if (text == null) {
+            return PackedDate.NONE;
+        }
+        int from = 0;
+        int to = text.length();
+        while (from < to && isSpace(text.charAt(from))) from++;
+        while (to > from && isSpace(text.charAt(to - 1))) to--;
+        if (to - from > LENGTH && text.charAt(from + 4) == '-' && text.charAt(from + LENGTH) == 'T') {
+            return at(text, from, from + LENGTH);
+        }
+        return to - from == LENGTH ? at(text, from, to) : PackedDate.NONE;
+    }
+
+    /**
+     * Tells whether the date exists in the Gregorian calendar.
+     * @param year  Four-digit year
+     * @param month Month 1-12
+     * @param day   Day of month
+     * @return True for a valid date
+     */
+    public static boolean isValid(int year, int month, int day) {
+        if (year < MIN_YEAR || month < 1 || month > 12 || day < 1) {
+            return false;
+        }
+        return day <= daysInMonth(year, month);
+    }
+
+    /**
+     * Reads a date that starts exactly at the index and is not followed by
+     * another digit.
+     */
+    private static int at(CharSequence text, int i, int to) {
+        if (i + LENGTH > to) {
+            return PackedDate.NONE;
+        }
+        int year;
+        int month;
+        int day;
+        char sep = text.charAt(i + 2);
+        if ((sep == '.' || sep == '/') && text.charAt(i + 5) == sep) {
+            day = digits(text, i, 2);
+            month = digits(text, i + 3, 2);
+            year = digits(text, i + 6, 4);
+        } else if (text.charAt(i + 4) == '-' && text.charAt(i + 7) == '-') {
+            year = digits(text, i, 4);
+            month = digits(text, i + 5, 2);
+            day = digits(text, i + 8, 2);
+        } else {
+            return PackedDate.NONE;
+        }
+        if (i + LENGTH < to && isDigit(text.charAt(i + LENGTH))) {
+            return PackedDate.NONE;
+        }
+        return isValid(year, month, day) ? PackedDate.of(year, month, day) : PackedDate.NONE;
+    }
+
+    /**
+     * Same as {@link #at(CharSequence, int, int)} for a char buffer.
+     */
+    private static int at(char[] buf, int i, int to) {
+        if (i + LENGTH > to) {
+            return PackedDate.NONE;
+        }
+        int year;
+        int month;
+        int day;
+        char sep = buf[i + 2];
+        if ((sep == '.' || sep == '/') && buf[i + 5] == sep) {
+            day = digits(buf, i, 2);
+            month = digits(buf, i + 3, 2);
+            year = digits(buf, i + 6, 4);
+        } else if (buf[i + 4] == '-' && buf[i + 7] == '-') {
+            year = digits(buf, i, 4);
+            month = digits(buf, i + 5, 2);
+            day = digits(buf, i + 8, 2);
+        } else {
+            return PackedDate.NONE;
+        }
+        if (i + LENGTH < to && isDigit(buf[i + LENGTH])) {
+            return PackedDate.NONE;
+        }
+        return isValid(year, month, day) ? PackedDate.of(year, month, day) : PackedDate.NONE;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static int digits(CharSequence text, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int digits(char[] buf, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            char c = buf[i];
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\u00A0';
+    }
+}
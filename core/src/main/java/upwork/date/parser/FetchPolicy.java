@@ -0,0 +1,66 @@
+/**
+ * FetchPolicy bounds and hardens a single check: connect and read timeouts,
+ * an overall deadline, bounded retries with exponential backoff, hedged
+ * requests after a latency percentile of recent checks, and the per-host
+ * circuit breaker thresholds. Instances are immutable.
+ */
+package upwork.date.parser;
+
+public class FetchPolicy {
+
+    public final int connectTimeoutMillis;
+    public final int readTimeoutMillis;
+    public final long deadlineMillis;
+    public final int maxRetries;
+    public final long retryDelayMillis;
+    public final int hedgePercentile;
+    public final int breakerThreshold;
+    public final long breakerOpenMillis;
+
+    /**
+     * @param connectTimeoutMillis Timeout for establishing a connection
+     * @param readTimeoutMillis    Timeout for a single blocking read
+     * @param deadlineMillis       Overall budget of a check including retries
+     * @param maxRetries           Retries after a failed attempt, 0 disables retrying
+     * @param retryDelayMillis     Delay before the first retry, doubled for each further one
+     * @param hedgePercentile      Latency percentile after which a second request is sent, 0 disables hedging
+     * @param breakerThreshold     Consecutive failures that open a host's breaker, 0 disables the breaker
+     * @param breakerOpenMillis    How long an open breaker rejects checks
+     */
+    public FetchPolicy(int connectTimeoutMillis, int readTimeoutMillis, long deadlineMillis,
+                       int maxRetries, long retryDelayMillis, int hedgePercentile,
+                       int breakerThreshold, long breakerOpenMillis) {
+        this.connectTimeoutMillis = Math.max(1, connectTimeoutMillis);
+        this.readTimeoutMillis = Math.max(1, readTimeoutMillis);
+        this.deadlineMillis = Math.max(1L, deadlineMillis);
+        this.maxRetries = Math.max(0, maxRetries);
+        this.retryDelayMillis = Math.max(0L, retryDelayMillis);
+        this.hedgePercentile = Math.min(99, Math.max(0, hedgePercentile));
+        this.breakerThreshold = Math.max(0, breakerThreshold);
+        this.breakerOpenMillis = Math.max(0L, breakerOpenMillis);
+    }
+
+    /**
+     * @return Policy built from the defaults in {@link Constants}
+     */
+    public static FetchPolicy defaults() {
+        return new FetchPolicy(
+                Constants.CONNECT_TIMEOUT_MILLIS,
+                Constants.READ_TIMEOUT_MILLIS,
+                Constants.CHECK_DEADLINE_MILLIS,
+                Constants.FETCH_MAX_RETRIES,
+                Constants.RETRY_DELAY_MILLIS,
+                Constants.HEDGE_PERCENTILE,
+                Constants.BREAKER_FAILURE_THRESHOLD,
+                Constants.BREAKER_OPEN_MILLIS);
+    }
+
+    /**
+     * Returns the delay before a retry.
+     * @param retry Number of the retry, starting at 1
+     * @return Delay in milliseconds
+     */
+    public long retryDelayMillis(int retry) {
+        return retryDelayMillis << Math.min(16, Math.max(0, retry - 1));
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * FetchPool is the bounded thread pool shared by all monitors. Besides the
+ * global thread limit it caps the number of concurrent fetches per host, so a
+ * slow host queues only its own work and cannot stall the other monitors.
+ */
+package upwork.date.parser;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class FetchPool {
+
+    private final ExecutorService executor;
+    private final int perHostLimit;
+    private final Map<String, HostQueue> hosts = new HashMap<>();
+
+    /**
+     * Pending and running work of a single host. Guarded by the pool's host map.
+     */
+    private static class HostQueue {
+        int running;
+        final ArrayDeque<Runnable> pending = new ArrayDeque<>();
+    }
+
+    /**
+     * @param threads      Maximum number of fetch threads
+     * @param perHostLimit Maximum number of concurrent fetches for one host
+     */
+    public FetchPool(int threads, int perHostLimit) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                threads, threads,
+                30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>());
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+        this.perHostLimit = perHostLimit;
+    }
+
+    /**
+     * Queues a fetch for the host of the given URL.
+     * @param url  URL the task will fetch
+     * @param task Work to run on a pool thread
+     */
+    public void submit(String url, Runnable task) {
+        String host = hostOf(url);
+        synchronized (hosts) {
+            HostQueue queue = hosts.get(host);
+            if (queue == null) {
+                queue = new HostQueue();
+                hosts.put(host, queue);
+            }
+            if (queue.running >= perHostLimit) {
+                queue.pending.add(task);
+                return;
+            }
+            queue.running++;
+        }
+        dispatch(host, task);
+    }
+
+    /**
+     * Stops the pool, interrupting running fetches and dropping queued ones.
+     */
+    public void shutdown() {
+        synchronized (hosts) {
+            hosts.clear();
+        }
+        executor.shutdownNow();
+    }
+
+    private void dispatch(final String host, final Runnable task) {
+        executor.execute(() -> {
+            try {
+                task.run();
+            } finally {
+                onDone(host);
+            }
+        });
+    }
+
+    private void onDone(String host) {
+        Runnable next;
+        synchronized (hosts) {
+            HostQueue queue = hosts.get(host);
+            if (queue == null) {
+                return;
+            }
+            next = queue.pending.poll();
+            if (next == null) {
+                queue.running--;
+                if (queue.running == 0) {
+                    hosts.remove(host);
+                }
+                return;
+            }
+        }
+        if (!executor.isShutdown()) {
+            dispatch(host, next);
+        }
+    }
+
+    static String hostOf(String url) {
+        try {
+            return new URL(url).getHost().toLowerCase();
+        } catch (MalformedURLException e) {
+            return url;
+        }
+    }
+}
@@ -0,0 +1,371 @@
+/**
+ * JsonScanner is a streaming JSON tokenizer that looks for the value at one
+ * path, e.g. "data.range.end" or "$.items[0].date". It keeps only the stack of
+ * open containers and whether each level is on the path; keys are compared
+ * character by character and only the candidate value is buffered. No tree
+ * is built, and scanning stops as soon as the value at the path is a valid date.
+ * The value may be an ISO timestamp such as "2025-10-31T00:00:00Z", whose time
+ * is ignored.
+ */
+package upwork.date.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class JsonScanner implements PageScanner {
+
+    /**
+     * Compiled path expression. Segments are object keys separated by dots or
+     * array indexes in brackets; a leading "$" is optional.
+     */
+    public static final class Path {
+
+        final String[] names;
+        final int[] indexes;
+
+        private Path(String[] names, int[] indexes) {
+            this.names = names;
+            this.indexes = indexes;
+        }
+
+        /**
+         * Compiles a path. Malformed brackets are read as part of a key.
+         * @param expression Path such as "data.items[0].date"
+         * @return The compiled path
+         */
+        public static Path compile(String expression) {
+            List<String> names = new ArrayList<>();
+            List<Integer> indexes = new ArrayList<>();
+            String p = expression.trim();
+            if (p.startsWith("$")) p = p.substring(1);
+            int i = 0;
+            StringBuilder name = new StringBuilder();
+            while (i <= p.length()) {
+                char c = i < p.length() ? p.charAt(i) : '.';
+                if (c == '.' || c == '[') {
+                    if (name.length() > 0) {
+                        names.add(name.toString());
+                        indexes.add(-1);
+                        name.setLength(0);
+                    }
+                    if (c == '[') {
+                        int close = p.indexOf(']', i);
+                        int index = close > i + 1 ? parseIndex(p.substring(i + 1, close)) : -1;
+                        if (index >= 0) {
+                            names.add(null);
+                            indexes.add(index);
+                            i = close + 1;
+                            continue;
+                        }
+                        name.append(c);
+                    }
+                } else {
+                    name.append(c);
+                }
+                i++;
+            }
+            int[] idx = new int[indexes.size()];
+            for (int k = 0; k < idx.length; k++) idx[k] = indexes.get(k);
+            return new Path(names.toArray(new String[0]), idx);
+        }
+
+        /**
+         * @return Number of segments
+         */
+        public int length() {
+            return names.length;
+        }
+
+        private static int parseIndex(String text) {
+            try {
+                return Integer.parseInt(text.trim());
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+    }
+
+    private static final int MAX_DEPTH = 64;
+    private static final int MAX_VALUE_CHARS = 64;
+
+    private static final int STATE_VALUE = 0;
+    private static final int STATE_KEY = 1;
+    private static final int STATE_COLON = 2;
+    private static final int STATE_AFTER_VALUE = 3;
+    private static final int STATE_KEY_STRING = 4;
+    private static final int STATE_VALUE_STRING = 5;
+    private static final int STATE_LITERAL = 6;
+    private static final int STATE_DONE = 7;
+
+    private final Path path;
+    private final boolean[] isArray = new boolean[MAX_DEPTH];
+    private final int[] index = new int[MAX_DEPTH];
+    private final boolean[] onPath = new boolean[MAX_DEPTH];
+    private final StringBuilder value = new StringBuilder(MAX_VALUE_CHARS);
+
+    private int depth;
+    private int state = STATE_VALUE;
+    private boolean escape;
+    private int hexLeft;
+    private int hexValue;
+    private int keyPos;
+    private boolean keyMatches;
+    private boolean capturing;
+    private int resultDate = PackedDate.NONE;
+    private String result;
+
+    /**
+     * @param path Compiled path of the date value
+     */
+    public JsonScanner(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Prepares the scanner for another document.
+     */
+    public void reset() {
+        depth = 0;
+        state = STATE_VALUE;
+        escape = false;
+        hexLeft = 0;
+        keyPos = 0;
+        keyMatches = false;
+        capturing = false;
+        resultDate = PackedDate.NONE;
+        result = null;
+        value.setLength(0);
+    }
+
+    @Override
+    public boolean feed(char[] buf, int off, int len) {
+        int end = off + len;
+        for (int i = off; i < end && resultDate == PackedDate.NONE && state != STATE_DONE; i++) {
+            accept(buf[i]);
+        }
+        return resultDate != PackedDate.NONE;
+    }
+
+    @Override
+    public String result() {
+        if (result == null && resultDate != PackedDate.NONE) {
+            result = PackedDate.format(resultDate);
+        }
+        return result;
+    }
+
+    @Override
+    public int resultDate() {
+        return resultDate;
+    }
+
+    @Override
+    public long fingerprint() {
+        return 0L;
+    }
+
+    @Override
+    public boolean isUnchanged() {
+        return false;
+    }
+
+    @Override
+    public void setKnown(long fingerprint, String date) {
+        // the scan stops at the value, so there is nothing to skip
+    }
+
+    private void accept(char c) {
+        switch (state) {
+            case STATE_KEY_STRING:
+            case STATE_VALUE_STRING:
+                acceptString(c);
+                return;
+            case STATE_LITERAL:
+                if (c == ',' || c == '}' || c == ']' || isSpace(c)) {
+                    endValue();
+                    state = STATE_AFTER_VALUE;
+                    accept(c);
+                } else if (capturing) {
+                    append(c);
+                }
+                return;
+            default:
+                break;
+        }
+        if (isSpace(c)) {
+            return;
+        }
+        switch (state) {
+            case STATE_VALUE:
+                if (c == '{') {
+                    push(false);
+                    state = STATE_KEY;
+                } else if (c == '[') {
+                    push(true);
+                    state = STATE_VALUE;
+                } else if (c == ']' || c == '}') {
+                    pop(c == ']');
+                } else if (c == '"') {
+                    startValue();
+                    state = STATE_VALUE_STRING;
+                } else {
+                    startValue();
+                    if (capturing) append(c);
+                    state = STATE_LITERAL;
+                }
+                break;
+            case STATE_KEY:
+                if (c == '"') {
+                    keyPos = 0;
+                    keyMatches = depth - 1 < path.length() && path.names[depth - 1] != null;
+                    state = STATE_KEY_STRING;
+                } else if (c == '}') {
+                    pop(false);
+                }
+                break;
+            case STATE_COLON:
+                if (c == ':') {
+                    state = STATE_VALUE;
+                }
+                break;
+            case STATE_AFTER_VALUE:
+                if (depth == 0) {
+                    // Anything after a complete top-level value is malformed.
+                    state = STATE_DONE;
+                } else if (c == ',') {
+                    if (depth > 0 && isArray[depth - 1]) {
+                        index[depth - 1]++;
+                        onPath[depth - 1] = indexOnPath(depth - 1, index[depth - 1]);
+                        state = STATE_VALUE;
+                    } else {
+                        state = STATE_KEY;
+                    }
+                } else if (c == '}' || c == ']') {
+                    pop(c == ']');
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void acceptString(char c) {
+        if (hexLeft > 0) {
+            int digit = Character.digit(c, 16);
+            if (digit < 0) {
+                state = STATE_DONE;
+                return;
+            }
+            hexValue = hexValue * 16 + digit;
+            if (--hexLeft == 0) stringChar((char) hexValue);
+        } else if (escape) {
+            escape = false;
+            if (c == 'u') {
+                hexLeft = 4;
+                hexValue = 0;
+            } else {
+                stringChar(unescape(c));
+            }
+        } else if (c == '\\') {
+            escape = true;
+        } else if (c == '"') {
+            if (state == STATE_KEY_STRING) {
+                String name = keyMatches ? path.names[depth - 1] : null;
+                onPath[depth - 1] = name != null && keyPos == name.length();
+                state = STATE_COLON;
+            } else {
+                endValue();
+                state = STATE_AFTER_VALUE;
+            }
+        } else {
+            stringChar(c);
+        }
+    }
+
+    private static char unescape(char c) {
+        switch (c) {
+            case 'n':
+                return '\n';
+            case 't':
+                return '\t';
+            case 'r':
+                return '\r';
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            default:
+                return c;
+        }
+    }
+
+    private void stringChar(char c) {
+        if (state == STATE_KEY_STRING) {
+            if (keyMatches) {
+                String name = path.names[depth - 1];
+                keyMatches = keyPos < name.length() && name.charAt(keyPos) == c;
+                keyPos++;
+            }
+        } else if (capturing) {
+            append(c);
+        }
+    }
+
+    private void startValue() {
+        capturing = depth == path.length() && allOnPath();
+        value.setLength(0);
+    }
+
+    private void endValue() {
+        if (capturing) {
+            capturing = false;
+            resultDate = DateScanner.parseTimestamp(value);
+        }
+    }
+
+    private void append(char c) {
+        if (value.length() < MAX_VALUE_CHARS) {
+            value.append(c);
+        }
+    }
+
+    private void push(boolean array) {
+        if (depth == MAX_DEPTH) {
+            state = STATE_DONE;
+            return;
+        }
+        isArray[depth] = array;
+        index[depth] = 0;
+        onPath[depth] = array && indexOnPath(depth, 0);
+        depth++;
+    }
+
+    /**
+     * Closes the innermost container. A bracket that closes nothing or does
+     * not match the container ends the scan as malformed.
+     * @param array True for ']', false for '}'
+     */
+    private void pop(boolean array) {
+        if (depth == 0 || isArray[depth - 1] != array) {
+            state = STATE_DONE;
+            return;
+        }
+        depth--;
+        state = depth == 0 ? STATE_DONE : STATE_AFTER_VALUE;
+    }
+
+    private boolean indexOnPath(int level, int i) {
+        return level < path.length() && path.names[level] == null && path.indexes[level] == i;
+    }
+
+    private boolean allOnPath() {
+        for (int level = 0; level < depth; level++) {
+            if (!onPath[level]) return false;
+        }
+        return true;
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+}
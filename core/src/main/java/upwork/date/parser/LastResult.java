@@ -0,0 +1,83 @@
+/**
+ * LastResult is the last successfully fetched date of a page together with the
+ * time it was fetched. It is kept in a tiny text file so the UI can show it
+ * at once on start, marked as stale, while a fresh check is running.
+ */
+package upwork.date.parser;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+public class LastResult {
+
+    public final String url;
+    public final String date;
+    public final long fetchedAtMillis;
+
+    /**
+     * @param url             Page URL the date was taken from
+     * @param date            Extracted date string in format DD.MM.YYYY
+     * @param fetchedAtMillis Wall-clock time of the fetch
+     */
+    public LastResult(String url, String date, long fetchedAtMillis) {
+        this.url = url;
+        this.date = date;
+        this.fetchedAtMillis = fetchedAtMillis;
+    }
+
+    /**
+     * Reads the result saved by {@link #write(File)}.
+     * @param file Result file
+     * @return The saved result or null if there is none or it is unreadable
+     */
+    public static LastResult read(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String time = reader.readLine();
+            String date = reader.readLine();
+            String url = reader.readLine();
+            if (time == null || date == null || url == null) {
+                return null;
+            }
+            return new LastResult(url, date, Long.parseLong(time));
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Saves the result, replacing the file in one rename so a reader never sees
+     * a partly written file.
+     * @param file Result file
+     * @throws IOException If the file cannot be written
+     */
+    public void write(File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            writer.write(fetchedAtMillis + "\n" + date + "\n" + url + "\n");
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Cannot replace " + file);
+        }
+    }
+
+    /**
+     * Tells whether this result belongs to the page.
+     * @param pageUrl Currently monitored URL
+     * @return True if the result was fetched from that URL
+     */
+    public boolean isFor(String pageUrl) {
+        return url.equals(pageUrl);
+    }
+}
@@ -0,0 +1,208 @@
+/**
+ * Metrics is a lightweight in-process registry of counters and latency
+ * histograms. Histograms use log-linear buckets, so recording is a single
+ * atomic increment and percentiles are available without keeping samples.
+ */
+package upwork.date.parser;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class Metrics {
+
+    private static final Metrics instance = new Metrics();
+
+    private final ConcurrentHashMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * Histogram of non-negative values with 8 sub-buckets per power of two,
+     * which bounds the relative error of a percentile to 12.5%.
+     */
+    public static class Histogram {
+
+        private static final int SUB_BITS = 3;
+        private static final int SUB = 1 << SUB_BITS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray((64 - SUB_BITS + 1) * SUB);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        /**
+         * Records one value.
+         * @param value Value to record, negative values count as 0
+         */
+        public void record(long value) {
+            long v = Math.max(0L, value);
+            buckets.incrementAndGet(bucketOf(v));
+            count.incrementAndGet();
+            sum.addAndGet(v);
+            long m;
+            while (v > (m = max.get()) && !max.compareAndSet(m, v)) {
+                // retry until the larger value is stored
+            }
+        }
+
+        /**
+         * @return Number of recorded values
+         */
+        public long count() {
+            return count.get();
+        }
+
+        /**
+         * @return Largest recorded value
+         */
+        public long max() {
+            return max.get();
+        }
+
+        /**
+         * @return Mean of the recorded values, 0 if empty
+         */
+        public double mean() {
+            long n = count.get();
+            return n == 0 ? 0.0 : (double) sum.get() / n;
+        }
+
+        /**
+         * Returns an upper estimate of the given percentile.
+         * @param percentile Percentile between 0 and 100
+         * @return The upper bound of the bucket holding the percentile, 0 if empty
+         */
+        public long percentile(double percentile) {
+            long n = count.get();
+            if (n == 0) {
+                return 0L;
+            }
+            long rank = (long) Math.ceil(n * Math.min(100.0, Math.max(0.0, percentile)) / 100.0);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= Math.max(1L, rank)) {
+                    return Math.min(upperBound(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        private static int bucketOf(long v) {
+            if (v < SUB) {
+                return (int) v;
+            }
+            int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+            int top = (int) (v >>> shift);
+            return (shift + 1) * SUB + (top - SUB);
+        }
+
+        private static long upperBound(int bucket) {
+            if (bucket < SUB) {
+                return bucket;
+            }
+            int shift = bucket / SUB - 1;
+            long top = bucket % SUB + SUB;
+            return ((top + 1) << shift) - 1;
+        }
+    }
+
+    /**
+     * @return The process-wide registry
+     */
+    public static Metrics get() {
+        return instance;
+    }
+
+    /**
+     * Adds to a counter, creating it on first use.
+     * @param name  Counter name
+     * @param delta Amount to add
+     */
+    public void add(String name, long delta) {
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(name, k -> new AtomicLong());
+        }
+        counter.addAndGet(delta);
+    }
+
+    /**
+     * Increments a counter by one.
+     * @param name Counter name
+     */
+    public void increment(String name) {
+        add(name, 1L);
+    }
+
+    /**
+     * Returns a counter value.
+     * @param name Counter name
+     * @return The value, 0 if the counter was never used
+     */
+    public long counter(String name) {
+        AtomicLong counter = counters.get(name);
+        return counter != null ? counter.get() : 0L;
+    }
+
+    /**
+     * Returns a histogram, creating it on first use.
+     * @param name Histogram name
+     * @return The histogram
+     */
+    public Histogram histogram(String name) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(name, k -> new Histogram());
+        }
+        return histogram;
+    }
+
+    /**
+     * Records a duration given in nanoseconds into a histogram kept in microseconds.
+     * @param name  Histogram name
+     * @param nanos Duration in nanoseconds
+     */
+    public void recordNanos(String name, long nanos) {
+        histogram(name).record(nanos / 1_000L);
+    }
+
+    /**
+     * Clears all counters and histograms.
+     */
+    public void reset() {
+        counters.clear();
+        histograms.clear();
+    }
+
+    /**
+     * Formats all metrics as text, one per line, sorted by name. Histogram
+     * values are in microseconds and printed in milliseconds.
+     * @return The text dump
+     */
+    public String dump() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, AtomicLong> e : new TreeMap<>(counters).entrySet()) {
+            sb.append(e.getKey()).append(' ').append(e.getValue().get()).append('\n');
+        }
+        for (Map.Entry<String, Histogram> e : new TreeMap<>(histograms).entrySet()) {
+            Histogram h = e.getValue();
+            sb.append(e.getKey())
+                    .append(" n=").append(h.count())
+                    .append(" mean=").append(millis((long) h.mean()))
+                    .append(" p50=").append(millis(h.percentile(50)))
+                    .append(" p90=").append(millis(h.percentile(90)))
+                    .append(" p99=").append(millis(h.percentile(99)))
+                    .append(" max=").append(millis(h.max()))
+                    .append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String millis(long micros) {
+        return String.format(Locale.US, "%.1fms", micros / 1000.0);
+    }
+}
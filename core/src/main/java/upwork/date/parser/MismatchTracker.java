@@ -0,0 +1,59 @@
+/**
+ * MismatchTracker keeps the monitors whose last check did not match, with the
+ * target rule that fired. Every check is compared again, even when the page
+ * reports it unchanged, since another caller of the shared fetcher may have
+ * seen the change first.
+ */
+package upwork.date.parser;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class MismatchTracker {
+
+    private final Map<Long, String> fired = new ConcurrentHashMap<>();
+
+    /**
+     * Records the outcome of a check.
+     * @param id   Monitor identifier
+     * @param rule Description of the fired rule, or null if the check matched
+     * @return True if any monitor is mismatched afterwards
+     */
+    public boolean record(long id, String rule) {
+        if (rule == null) {
+            fired.remove(id);
+        } else {
+            fired.put(id, rule);
+        }
+        return !fired.isEmpty();
+    }
+
+    /**
+     * @return Fired rule of the primary monitor, else of any mismatched monitor, or null
+     */
+    public String firedRule() {
+        String rule = fired.get(Monitor.PRIMARY_ID);
+        if (rule == null) {
+            Iterator<String> others = fired.values().iterator();
+            if (others.hasNext()) rule = others.next();
+        }
+        return rule;
+    }
+
+    /**
+     * Forgets monitors that are no longer scheduled.
+     * @param ids Identifiers of the scheduled monitors
+     */
+    public void retain(Set<Long> ids) {
+        fired.keySet().retainAll(ids);
+    }
+
+    /**
+     * @return True if no monitor is mismatched
+     */
+    public boolean isEmpty() {
+        return fired.isEmpty();
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Monitor describes one watched page: its URL, the target phrase and the
+ * {@link TargetRules} compiled from it, the polling policy, an optional
+ * Server-Sent Events URL that pushes date changes and the kind of response
+ * the date is read from. Instances are immutable.
+ */
+package upwork.date.parser;
+
+public class Monitor {
+
+    /**
+     * Identifier of the monitor backed by the single URL/target settings.
+     */
+    public static final long PRIMARY_ID = 0L;
+
+    public final long id;
+    public final String url;
+    public final String target;
+    public final TargetRules rules;
+    public final int intervalMinutes;
+    public final PollPolicy policy;
+    public final String pushUrl;
+    public final SourceType source;
+    public final String path;
+
+    /**
+     * @param id              Stable identifier of the monitor
+     * @param url             Page URL to check
+     * @param target          Expected date string
+     * @param intervalMinutes Base polling interval in minutes
+     */
+    public Monitor(long id, String url, String target, int intervalMinutes) {
+        this(id, url, target, PollPolicy.withDefaults(intervalMinutes));
+    }
+
+    /**
+     * @param id     Stable identifier of the monitor
+     * @param url    Page URL to check
+     * @param target Expected date string
+     * @param policy Adaptive polling policy
+     */
+    public Monitor(long id, String url, String target, PollPolicy policy) {
+        this(id, url, target, policy, "");
+    }
+
+    /**
+     * @param id      Stable identifier of the monitor
+     * @param url     Page URL to check
+     * @param target  Expected date string
+     * @param policy  Adaptive polling policy
+     * @param pushUrl Server-Sent Events URL, or an empty string to only poll
+     */
+    public Monitor(long id, String url, String target, PollPolicy policy, String pushUrl) {
+        this(id, url, target, policy, pushUrl, SourceType.HTML, "");
+    }
+
+    /**
+     * @param id      Stable identifier of the monitor
+     * @param url     Page URL to check
+     * @param target  Expected date string
+     * @param policy  Adaptive polling policy
+     * @param pushUrl Server-Sent Events URL, or an empty string to only poll
+     * @param source  Kind of response the date is read from
+     * @param path    Path of the date value for JSON sources, otherwise ignored
+     */
+    public Monitor(long id, String url, String target, PollPolicy policy, String pushUrl,
+                   SourceType source, String path) {
+        this.id = id;
+        this.url = url;
+        this.target = target;
+        this.rules = TargetRules.compile(target);
+        this.intervalMinutes = policy.baseMinutes;
+        this.policy = policy;
+        this.pushUrl = pushUrl != null ? pushUrl : "";
+        this.source = source != null ? source : SourceType.HTML;
+        this.path = path != null ? path : "";
+    }
+
+    /**
+     * Returns the extractor for this monitor's source.
+     * @param html Extractor used for HTML pages
+     * @return The HTML extractor, or the shared extractor for a text or JSON source
+     */
+    public DateExtractor extractor(DateExtractor html) {
+        switch (source) {
+            case TEXT:
+                return DateExtractor.forRule(DateExtractor.Rule.text());
+            case JSON:
+                return DateExtractor.forRule(DateExtractor.Rule.json(path));
+            default:
+                return html;
+        }
+    }
+
+    /**
+     * @return True if the monitor has a push URL
+     */
+    public boolean hasPush() {
+        return !pushUrl.isEmpty();
+    }
+
+    /**
+     * Checks a fetched date against the target rules. Dates are compared as
+     * packed ints, so "2025-10-31" matches "31.10.2025".
+     * @param result Fetch result
+     * @return True if no rule fires for the fetched date
+     */
+    public boolean matches(DateFetcher.Result result) {
+        return rules.matches(result.packedDate, result.date);
+    }
+
+    /**
+     * @param result Fetch result
+     * @return Description of the first rule that fires for the fetched date, or null
+     */
+    public String firedRule(DateFetcher.Result result) {
+        return rules.describe(rules.firedRule(result.packedDate, result.date));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Monitor)) return false;
+        Monitor other = (Monitor) o;
+        return id == other.id
+                && policy.equals(other.policy)
+                && url.equals(other.url)
+                && target.equals(other.target)
+                && pushUrl.equals(other.pushUrl)
+                && source == other.source
+                && path.equals(other.path);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = Long.hashCode(id);
+        h = h * 31 + url.hashCode();
+        h = h * 31 + target.hashCode();
+        h = h * 31 + policy.hashCode();
+        h = h * 31 + pushUrl.hashCode();
+        h = h * 31 + source.hashCode();
+        return h * 31 + path.hashCode();
+    }
+}
@@ -0,0 +1,477 @@
+/**
+ * MonitorScheduler drives periodic checks for a list of monitors. A single
+ * timer thread decides when each monitor is due and hands the fetch to a shared
+ * {@link FetchPool}, so the thread count stays flat as monitors are added.
+ * After every check the next delay is taken from the monitor's {@link PollPolicy}.
+ * The state of each monitor can be exported as a {@link ScheduleEntry} and
+ * restored after a restart. While the scheduler is offline, due checks are
+ * held back instead of being fetched, and each held monitor is checked once
+ * as soon as it is back online.
+ * <p>
+ * Every failure of a check, including errors thrown by the listener, is caught
+ * and classified as a {@link CheckFailure}, so one bad run never ends a
+ * monitor's loop. A watchdog compares the planned and actual check times,
+ * abandons checks that hang and restarts stalled monitors with bounded
+ * backoff; drift and missed checks are exposed as {@link SchedulerHealth}.
+ */
+package upwork.date.parser;
+
+import java.time.Clock;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+public class MonitorScheduler {
+
+    /**
+     * Receives the outcome of each check on a fetch pool thread.
+     */
+    public interface Listener {
+
+        /**
+         * Invoked when the date has been fetched for a monitor.
+         * @param monitor Checked monitor
+         * @param result  Fetch result
+         */
+        void onChecked(Monitor monitor, DateFetcher.Result result);
+
+        /**
+         * Invoked when the check of a monitor failed.
+         * @param monitor       Checked monitor
+         * @param error         Exception or error encountered during the check
+         * @param latencyMillis Time spent on the check until it failed
+         */
+        void onFailed(Monitor monitor, Throwable error, int latencyMillis);
+
+        /**
+         * Invoked after the next check of a monitor has been scheduled.
+         * @param monitor     Rescheduled monitor
+         * @param delayMillis Delay until its next check
+         */
+        void onRescheduled(Monitor monitor, long delayMillis);
+    }
+
+    /**
+     * Scheduling state of one monitor. Guarded by the scheduler.
+     */
+    private static class State {
+        Monitor monitor;
+        ScheduledFuture<?> future;
+        long dueAt;
+        long startedAt;
+        String lastDate;
+        int streak;
+        int generation;
+        int restarts;
+        boolean running;
+        boolean cancelled;
+        boolean held;
+
+        State(Monitor monitor) {
+            this.monitor = monitor;
+        }
+    }
+
+    private final ScheduledExecutorService timer;
+    private final Clock clock;
+    private final Random random = new Random();
+    private final FetchPool pool;
+    private final SharedFetcher fetcher;
+    private final DateExtractor extractor;
+    private final Listener listener;
+    private final Map<Long, State> states = new HashMap<>();
+    private boolean online = true;
+    private double stretch = 1.0;
+    private ScheduledFuture<?> watchdog;
+    private long watchdogPeriod;
+    private long graceMillis = Constants.WATCHDOG_GRACE_MILLIS;
+    private long stuckMillis = Constants.CHECK_STUCK_MILLIS;
+    private long maxDrift;
+    private long missed;
+    private long restarts;
+
+    /**
+     * @param pool      Shared fetch pool
+     * @param fetcher   Coalescing fetch layer
+     * @param extractor Extraction engine applied to HTML pages
+     * @param listener  Receiver of check results
+     */
+    public MonitorScheduler(FetchPool pool, SharedFetcher fetcher, DateExtractor extractor,
+                            Listener listener) {
+        this(pool, fetcher, extractor, listener,
+                Executors.newSingleThreadScheduledExecutor(), Clock.systemUTC());
+    }
+
+    /**
+     * Creates a scheduler on the given timer and clock, which tests replace
+     * with virtual time.
+     * @param pool      Shared fetch pool
+     * @param fetcher   Coalescing fetch layer
+     * @param extractor Extraction engine applied to HTML pages
+     * @param listener  Receiver of check results
+     * @param timer     Executor that fires due checks
+     * @param clock     Source of the current time for due times
+     */
+    MonitorScheduler(FetchPool pool, SharedFetcher fetcher, DateExtractor extractor,
+                     Listener listener, ScheduledExecutorService timer, Clock clock) {
+        this.timer = timer;
+        this.clock = clock;
+        this.pool = pool;
+        this.fetcher = fetcher;
+        this.extractor = extractor;
+        this.listener = listener;
+    }
+
+    /**
+     * Replaces the scheduled monitors without stopping any thread. Unchanged
+     * monitors keep their timers, new or retargeted ones are checked right away,
+     * and a policy change only moves the next check earlier if the new interval
+     * is shorter. Checks already running are always left to finish.
+     * @param monitors Monitors to check from now on
+     */
+    public void schedule(List<Monitor> monitors) {
+        schedule(monitors, Collections.<Long, ScheduleEntry>emptyMap());
+    }
+
+    /**
+     * Like {@link #schedule(List)}, but monitors that are not scheduled yet and
+     * have a saved entry resume from it: they keep their streak and last date
+     * and wait until the saved due time, capped at their current interval.
+     * @param monitors Monitors to check from now on
+     * @param saved    Saved entries by monitor id
+     */
+    public synchronized void schedule(List<Monitor> monitors, Map<Long, ScheduleEntry> saved) {
+        if (timer.isShutdown()) return;
+        Map<Long, State> previous = new HashMap<>(states);
+        states.clear();
+        long now = clock.millis();
+        for (Monitor monitor : monitors) {
+            State state = previous.remove(monitor.id);
+            if (state == null) {
+                state = new State(monitor);
+                ScheduleEntry entry = saved.get(monitor.id);
+                long delay = 0L;
+                if (entry != null) {
+                    state.lastDate = entry.lastDate;
+                    state.streak = entry.streak;
+                    delay = Math.min(entry.dueAtMillis - now, monitor.policy.intervalMillis(entry.streak));
+                }
+                start(state, Math.max(0L, delay));
+            } else if (!state.monitor.equals(monitor)) {
+                update(state, monitor);
+            }
+            states.put(monitor.id, state);
+        }
+        for (State removed : previous.values()) {
+            removed.cancelled = true;
+            if (removed.future != null) removed.future.cancel(false);
+        }
+    }
+
+    /**
+     * Pauses or resumes checking. Going offline keeps the timers but holds
+     * every check that falls due; going online checks each held monitor right
+     * away and counts it as a catch-up check.
+     * @param online False while there is no network
+     */
+    public synchronized void setOnline(boolean online) {
+        if (this.online == online) return;
+        this.online = online;
+        if (!online || timer.isShutdown()) return;
+        for (State state : states.values()) {
+            if (!state.held) continue;
+            state.held = false;
+            Metrics.get().increment("check.catch_up");
+            if (state.future != null) state.future.cancel(false);
+            start(state, 0L);
+        }
+    }
+
+    /**
+     * Starts the watchdog with the default period, grace and stuck limits.
+     */
+    public void startWatchdog() {
+        startWatchdog(Constants.WATCHDOG_PERIOD_MILLIS, Constants.WATCHDOG_GRACE_MILLIS,
+                Constants.CHECK_STUCK_MILLIS);
+    }
+
+    /**
+     * Starts a watchdog on the timer. Each run restarts monitors whose check is
+     * overdue by more than the grace period although the timer lost it or is a
+     * whole interval late, and abandons checks running longer than the stuck
+     * limit. Restarts of the same monitor back off up to a bound until one of
+     * its checks completes.
+     * @param periodMillis Time between two watchdog runs
+     * @param graceMillis  How long a check may be overdue before it counts as stalled
+     * @param stuckMillis  How long a check may run before it is abandoned
+     */
+    synchronized void startWatchdog(long periodMillis, long graceMillis, long stuckMillis) {
+        if (watchdog != null || timer.isShutdown()) return;
+        this.watchdogPeriod = periodMillis;
+        this.graceMillis = graceMillis;
+        this.stuckMillis = stuckMillis;
+        watchdog = timer.schedule(this::watch, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns how well the schedule is kept.
+     * @return A snapshot taken now
+     */
+    public synchronized SchedulerHealth getHealth() {
+        long now = clock.millis();
+        long overdue = 0L;
+        int stalled = 0;
+        for (State state : states.values()) {
+            if (state.held) continue;
+            if (state.running) {
+                if (now - state.startedAt > stuckMillis) stalled++;
+                continue;
+            }
+            long late = now - state.dueAt;
+            overdue = Math.max(overdue, late);
+            if (late > graceMillis) stalled++;
+        }
+        return new SchedulerHealth(maxDrift, overdue, missed, restarts, stalled);
+    }
+
+    /**
+     * Stretches all following intervals, e.g. on a metered network.
+     * @param factor Multiplier of the policy delay, 1 for the plain policy
+     */
+    public synchronized void setIntervalStretch(double factor) {
+        stretch = Math.max(1.0, factor);
+    }
+
+    /**
+     * Returns the current effective interval of a monitor.
+     * @param id Monitor identifier
+     * @return Interval in milliseconds before jitter, or 0 if the monitor is unknown
+     */
+    public synchronized long getEffectiveInterval(long id) {
+        State state = states.get(id);
+        return state != null ? intervalMillis(state) : 0L;
+    }
+
+    /**
+     * Exports the scheduling state of a monitor.
+     * @param id Monitor identifier
+     * @return The entry, or null if the monitor is unknown
+     */
+    public synchronized ScheduleEntry getScheduleEntry(long id) {
+        State state = states.get(id);
+        return state != null ? new ScheduleEntry(state.dueAt, state.lastDate, state.streak) : null;
+    }
+
+    /**
+     * Stops all timers and running fetches.
+     */
+    public synchronized void shutdown() {
+        for (State state : states.values()) state.cancelled = true;
+        states.clear();
+        timer.shutdownNow();
+        pool.shutdown();
+    }
+
+    /**
+     * Applies a changed definition to a scheduled monitor.
+     */
+    private void update(State state, Monitor monitor) {
+        boolean retargeted = !state.monitor.url.equals(monitor.url)
+                || !state.monitor.target.equals(monitor.target);
+        state.monitor = monitor;
+        if (retargeted) {
+            state.lastDate = null;
+            state.streak = 0;
+        }
+        if (state.running || state.held) return;
+        long remaining = state.future != null ? state.future.getDelay(TimeUnit.MILLISECONDS) : 0L;
+        long delay = retargeted ? 0L : Math.min(remaining, monitor.policy.intervalMillis(state.streak));
+        if (state.future != null) state.future.cancel(false);
+        start(state, Math.max(0L, delay));
+    }
+
+    private void start(final State state, long delayMillis) {
+        state.dueAt = clock.millis() + delayMillis;
+        state.future = timer.schedule(() -> submit(state), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Hands a due monitor to the fetch pool. If the pool rejects it, the
+     * monitor is restarted instead of being left marked as running.
+     */
+    private void submit(final State state) {
+        final Monitor monitor;
+        final int generation;
+        synchronized (this) {
+            if (state.cancelled) return;
+            if (!online) {
+                state.held = true;
+                Metrics.get().increment("check.skipped_offline");
+                return;
+            }
+            recordDrift(state);
+            state.running = true;
+            state.startedAt = clock.millis();
+            generation = ++state.generation;
+            monitor = state.monitor;
+        }
+        try {
+            pool.submit(monitor.url, () -> check(state, monitor, generation));
+        } catch (Throwable e) {
+            Metrics.get().increment(CheckFailure.INTERNAL.metric());
+            synchronized (this) {
+                if (state.generation != generation || state.cancelled || timer.isShutdown()) return;
+                state.running = false;
+                restart(state);
+            }
+        }
+    }
+
+    /**
+     * Runs one check on a pool thread. Nothing thrown by the fetch or the
+     * listener escapes, and the next check is always scheduled unless the
+     * watchdog has abandoned this run in the meantime.
+     */
+    private void check(State state, Monitor monitor, int generation) {
+        DateFetcher.Result result = null;
+        Throwable error = null;
+        long start = System.nanoTime();
+        try {
+            result = fetcher.fetch(monitor.url, monitor.extractor(extractor));
+        } catch (Throwable e) {
+            error = e;
+        }
+        int latencyMillis = (int) ((System.nanoTime() - start) / 1_000_000L);
+        boolean reset = false;
+        synchronized (this) {
+            if (state.generation != generation) {
+                Metrics.get().increment("check.abandoned_late");
+                return;
+            }
+            if (result != null) {
+                // A mismatch keeps the base interval so the alarm is re-checked promptly.
+                reset = !result.date.equals(state.lastDate) || !monitor.matches(result);
+                state.lastDate = result.date;
+            }
+        }
+        try {
+            if (result != null) {
+                listener.onChecked(monitor, result);
+            } else {
+                Metrics.get().increment(CheckFailure.classify(error).metric());
+                listener.onFailed(monitor, error, latencyMillis);
+            }
+        } catch (Throwable e) {
+            Metrics.get().increment(CheckFailure.LISTENER.metric());
+        } finally {
+            reschedule(state, generation, reset);
+        }
+    }
+
+    /**
+     * Schedules the next check: back to the base interval after a change or
+     * a mismatch, one backoff step further otherwise.
+     */
+    private void reschedule(State state, int generation, boolean reset) {
+        long delay;
+        synchronized (this) {
+            if (state.generation != generation) return;
+            state.running = false;
+            state.restarts = 0;
+            if (state.cancelled || timer.isShutdown()) return;
+            state.streak = reset ? 0 : state.streak + 1;
+            delay = (long) (state.monitor.policy.nextDelayMillis(state.streak, random) * stretch);
+            start(state, delay);
+        }
+        try {
+            listener.onRescheduled(state.monitor, delay);
+        } catch (Throwable e) {
+            Metrics.get().increment(CheckFailure.LISTENER.metric());
+        }
+    }
+
+    /**
+     * Records how late a check starts; every whole interval of delay counts
+     * as a missed check.
+     */
+    private void recordDrift(State state) {
+        long drift = Math.max(0L, clock.millis() - state.dueAt);
+        Metrics.get().recordNanos("check.drift", drift * 1_000_000L);
+        maxDrift = Math.max(maxDrift, drift);
+        long interval = intervalMillis(state);
+        if (interval > 0 && drift >= interval) {
+            missed += drift / interval;
+            Metrics.get().add("check.missed", drift / interval);
+        }
+    }
+
+    /**
+     * One watchdog run; always schedules the next one.
+     */
+    private void watch() {
+        try {
+            synchronized (this) {
+                long now = clock.millis();
+                for (State state : states.values()) {
+                    if (state.cancelled || state.held) continue;
+                    if (state.running) {
+                        if (now - state.startedAt > stuckMillis) {
+                            // A late completion of the abandoned run is ignored.
+                            Metrics.get().increment("check.stuck");
+                            state.generation++;
+                            state.running = false;
+                            restart(state);
+                        }
+                        continue;
+                    }
+                    long late = now - state.dueAt;
+                    boolean lost = state.future == null || state.future.isDone();
+                    if (late > graceMillis && (lost || late > intervalMillis(state))) {
+                        Metrics.get().increment("check.stalled");
+                        restart(state);
+                    }
+                }
+            }
+        } catch (Throwable e) {
+            Metrics.get().increment("scheduler.watchdog_error");
+        } finally {
+            synchronized (this) {
+                if (!timer.isShutdown()) {
+                    try {
+                        watchdog = timer.schedule(this::watch, watchdogPeriod, TimeUnit.MILLISECONDS);
+                    } catch (RuntimeException e) {
+                        // shut down concurrently
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts a stalled monitor again after a delay that doubles with every
+     * restart until one of its checks completes.
+     */
+    private void restart(State state) {
+        int shift = Math.min(state.restarts, 16);
+        long delay = Math.min(Constants.RESTART_MAX_BACKOFF_MILLIS,
+                Constants.RESTART_INITIAL_BACKOFF_MILLIS << shift);
+        state.restarts++;
+        restarts++;
+        Metrics.get().increment("scheduler.restart");
+        if (state.future != null) state.future.cancel(false);
+        start(state, delay);
+    }
+
+    /**
+     * @return Current interval of the monitor before jitter, stretched
+     */
+    private long intervalMillis(State state) {
+        return (long) (state.monitor.policy.intervalMillis(state.streak) * stretch);
+    }
+}
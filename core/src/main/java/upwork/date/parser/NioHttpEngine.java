@@ -0,0 +1,1062 @@
+/**
+ * NioHttpEngine fetches plain HTTP pages without blocking a thread per
+ * request. One event-loop thread drives every connection through a selector,
+ * and a single resolver thread looks up host names, so the thread count stays
+ * the same whether one check or hundreds are in flight. Connections are kept
+ * alive and reused per host, chunked and gzip or deflate bodies are decoded
+ * as they arrive, and the decoded characters go straight into the rule's
+ * {@link PageScanner}; the response is dropped as soon as the date is found.
+ * Buffers are shared by all requests on the loop thread, and each response is
+ * capped in size.
+ * <p>
+ * Futures are completed on the loop thread, so dependent actions must not
+ * block. HTTPS is not handled here; {@link DateFetcher#fetchAsync} hands such
+ * URLs to a blocking fetch instead.
+ */
+package upwork.date.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+public class NioHttpEngine implements Closeable {
+
+    /**
+     * Thrown when a page redirects to a URL this engine cannot fetch, e.g. HTTPS.
+     */
+    public static class RedirectException extends IOException {
+
+        public final String location;
+
+        public RedirectException(String location) {
+            super("Redirected to " + location);
+            this.location = location;
+        }
+    }
+
+    private static final String USER_AGENT = "Chrome";
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_HEADER_BYTES = 16 * 1024;
+    private static final int MAX_LINE_CHARS = 256;
+    private static final int MAX_REDIRECTS = 5;
+    private static final long DNS_TTL_MILLIS = 60_000L;
+    private static final long IDLE_SWEEP_MILLIS = 1_000L;
+
+    private static final int STATE_HEADERS = 0;
+    private static final int STATE_LENGTH = 1;
+    private static final int STATE_UNTIL_CLOSE = 2;
+    private static final int STATE_CHUNK_SIZE = 3;
+    private static final int STATE_CHUNK_DATA = 4;
+    private static final int STATE_CHUNK_END = 5;
+    private static final int STATE_TRAILER = 6;
+    private static final int STATE_DONE = 7;
+
+    private static volatile NioHttpEngine defaultEngine;
+
+    private final int maxResponseBytes;
+    private final int maxIdlePerHost;
+    private final long keepAliveMillis;
+    private final ConcurrentLinkedQueue<Exchange> submitted = new ConcurrentLinkedQueue<>();
+    private final ConcurrentHashMap<String, Resolved> dns = new ConcurrentHashMap<>();
+
+    // Owned by the loop thread.
+    private final Map<String, ArrayDeque<Connection>> idle = new HashMap<>();
+    private final List<Exchange> active = new ArrayList<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final byte[] inflated = new byte[BUFFER_SIZE];
+    private final byte[] scratch = new byte[BUFFER_SIZE + Exchange.CARRY];
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE + Exchange.CARRY);
+
+    private Selector selector;
+    private ExecutorService resolver;
+    private volatile boolean closed;
+
+    /**
+     * @param maxResponseBytes Largest response body accepted, raw and decoded
+     * @param maxIdlePerHost   Idle connections kept open per host
+     * @param keepAliveMillis  How long an idle connection is kept open
+     */
+    public NioHttpEngine(int maxResponseBytes, int maxIdlePerHost, long keepAliveMillis) {
+        this.maxResponseBytes = maxResponseBytes;
+        this.maxIdlePerHost = maxIdlePerHost;
+        this.keepAliveMillis = keepAliveMillis;
+    }
+
+    /**
+     * Returns the process-wide engine. Its threads start with the first fetch.
+     * @return The shared engine
+     */
+    public static NioHttpEngine getDefault() {
+        NioHttpEngine engine = defaultEngine;
+        if (engine == null) {
+            synchronized (NioHttpEngine.class) {
+                if (defaultEngine == null) {
+                    defaultEngine = new NioHttpEngine(Constants.MAX_RESPONSE_BYTES,
+                            Constants.FETCH_PER_HOST_LIMIT, Constants.KEEP_ALIVE_MILLIS);
+                }
+                engine = defaultEngine;
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * @param url Page URL
+     * @return True if the engine can fetch the URL itself
+     */
+    public static boolean supports(String url) {
+        return url.regionMatches(true, 0, "http://", 0, 7);
+    }
+
+    /**
+     * Starts fetching a page. The future completes with the result, with null
+     * if the whole body was read without finding a date, or exceptionally.
+     * A 304 answer to the validators in the cache reuses the cached date.
+     * Cancelling the future closes the request's connection.
+     * @param url                  Plain HTTP URL
+     * @param extractor            Extraction engine whose scanner reads the body
+     * @param cache                Validator cache to read and update, or null
+     * @param connectTimeoutMillis Timeout for establishing the connection
+     * @param readTimeoutMillis    Longest silence while sending or receiving
+     * @param deadlineNanos        {@link System#nanoTime()} by which the fetch must end, 0 for none
+     * @return Future of the result
+     */
+    public CompletableFuture<DateFetcher.Result> fetch(String url, DateExtractor extractor, ValidatorCache cache,
+                                                       int connectTimeoutMillis, int readTimeoutMillis,
+                                                       long deadlineNanos) {
+        CompletableFuture<DateFetcher.Result> future = new CompletableFuture<>();
+        PageScanner scanner = extractor.newScanner();
+        if (scanner == null) {
+            future.completeExceptionally(new IOException("Rule " + extractor.getRule() + " cannot be streamed"));
+            return future;
+        }
+        Exchange ex;
+        try {
+            ex = new Exchange(url, extractor.getRule(), scanner, cache, future,
+                    connectTimeoutMillis, readTimeoutMillis, deadlineNanos);
+        } catch (MalformedURLException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        try {
+            ensureStarted();
+        } catch (IOException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        final Selector loop = selector;
+        submitted.add(ex);
+        loop.wakeup();
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) loop.wakeup();
+        });
+        return future;
+    }
+
+    /**
+     * Stops the loop, failing the requests in flight and closing all connections.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        if (selector != null) {
+            selector.wakeup();
+            resolver.shutdownNow();
+        }
+    }
+
+    private synchronized void ensureStarted() throws IOException {
+        if (closed) {
+            throw new IOException("Engine closed");
+        }
+        if (selector != null) return;
+        selector = Selector.open();
+        resolver = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "nio-http-dns");
+            t.setDaemon(true);
+            return t;
+        });
+        Thread loop = new Thread(this::run, "nio-http");
+        loop.setDaemon(true);
+        loop.start();
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                selector.select(selectTimeout());
+                Exchange ex;
+                while ((ex = submitted.poll()) != null) {
+                    start(ex);
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+                sweep();
+            }
+        } catch (IOException | RuntimeException e) {
+            // The selector itself broke; fail everything below.
+            closed = true;
+        } finally {
+            shutdownLoop();
+        }
+    }
+
+    private long selectTimeout() {
+        long now = System.nanoTime();
+        long next = Long.MAX_VALUE;
+        for (Exchange ex : active) {
+            next = Math.min(next, ex.limitNanos());
+        }
+        long millis = next == Long.MAX_VALUE ? 0L : Math.max(1L, (next - now) / 1_000_000L + 1);
+        if (!idle.isEmpty()) {
+            millis = millis == 0L ? IDLE_SWEEP_MILLIS : Math.min(millis, IDLE_SWEEP_MILLIS);
+        }
+        return millis;
+    }
+
+    /**
+     * Connects a new or redirected exchange: reuses an idle connection to the
+     * host, or resolves the host off the loop and opens a new one.
+     */
+    private void start(Exchange ex) {
+        if (ex.future.isDone()) {
+            finish(ex, false);
+            return;
+        }
+        if (!ex.started) {
+            ex.started = true;
+            active.add(ex);
+        }
+        if (ex.error != null) {
+            fail(ex, ex.error);
+            return;
+        }
+        ArrayDeque<Connection> pool = idle.get(ex.hostKey);
+        while (pool != null && !pool.isEmpty()) {
+            Connection conn = pool.pop();
+            if (pool.isEmpty()) idle.remove(ex.hostKey);
+            if (conn.channel.isOpen()) {
+                Metrics.get().increment("nio.reused");
+                ex.reused = true;
+                attach(ex, conn);
+                conn.key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+        }
+        ex.reused = false;
+        InetAddress address = ex.address;
+        if (address == null) {
+            Resolved resolved = dns.get(ex.host);
+            if (resolved != null && System.currentTimeMillis() - resolved.at < DNS_TTL_MILLIS) {
+                address = resolved.address;
+            }
+        }
+        if (address == null) {
+            resolve(ex);
+            return;
+        }
+        try {
+            SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection conn = new Connection(channel, ex.hostKey);
+            boolean connected = channel.connect(new InetSocketAddress(address, ex.port));
+            conn.key = channel.register(selector,
+                    connected ? SelectionKey.OP_WRITE : SelectionKey.OP_CONNECT, conn);
+            Metrics.get().increment("nio.connect");
+            attach(ex, conn);
+            if (!connected) {
+                ex.phaseNanos = System.nanoTime() + ex.connectTimeoutMillis * 1_000_000L;
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(ex, e);
+        }
+    }
+
+    private void resolve(final Exchange ex) {
+        ex.phaseNanos = System.nanoTime() + ex.connectTimeoutMillis * 1_000_000L;
+        final String host = ex.host;
+        try {
+            resolver.execute(() -> {
+                try {
+                    InetAddress address = InetAddress.getByName(host);
+                    dns.put(host, new Resolved(address, System.currentTimeMillis()));
+                    ex.address = address;
+                } catch (IOException | RuntimeException e) {
+                    ex.error = e;
+                }
+                submitted.add(ex);
+                selector.wakeup();
+            });
+        } catch (RuntimeException e) {
+            fail(ex, new IOException("Engine closed", e));
+        }
+    }
+
+    private void attach(Exchange ex, Connection conn) {
+        conn.exchange = ex;
+        ex.conn = conn;
+        ex.request.rewind();
+        ex.resetResponse();
+        ex.phaseNanos = System.nanoTime() + ex.readTimeoutMillis * 1_000_000L;
+    }
+
+    private void handle(SelectionKey key) {
+        if (!key.isValid()) return;
+        Connection conn = (Connection) key.attachment();
+        Exchange ex = conn.exchange;
+        if (ex == null) {
+            // An idle connection became readable: the server closed it or sent garbage.
+            dropIdle(conn);
+            return;
+        }
+        try {
+            if (key.isConnectable()) {
+                conn.channel.finishConnect();
+                key.interestOps(SelectionKey.OP_WRITE);
+                ex.phaseNanos = System.nanoTime() + ex.readTimeoutMillis * 1_000_000L;
+                return;
+            }
+            if (key.isWritable()) {
+                conn.channel.write(ex.request);
+                ex.phaseNanos = System.nanoTime() + ex.readTimeoutMillis * 1_000_000L;
+                if (!ex.request.hasRemaining()) {
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+                return;
+            }
+            if (key.isReadable()) {
+                read(ex, conn);
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(ex, e);
+        }
+    }
+
+    private void read(Exchange ex, Connection conn) throws IOException {
+        readBuffer.clear();
+        int n = conn.channel.read(readBuffer);
+        if (n < 0) {
+            if (ex.state == STATE_UNTIL_CLOSE) {
+                endOfBody(ex, false);
+            } else {
+                throw new IOException("Connection closed before the response was complete");
+            }
+            return;
+        }
+        if (n == 0) return;
+        ex.received = true;
+        ex.rawBytes += n;
+        ex.phaseNanos = System.nanoTime() + ex.readTimeoutMillis * 1_000_000L;
+        process(ex, conn, readBuffer.array(), 0, n);
+    }
+
+    /**
+     * Runs received bytes through the header parser and the body framing.
+     * Stops when the exchange ends or moves to another connection.
+     */
+    private void process(Exchange ex, Connection conn, byte[] b, int off, int len) throws IOException {
+        int i = off;
+        int end = off + len;
+        while (i < end && !ex.done && ex.conn == conn) {
+            switch (ex.state) {
+                case STATE_HEADERS:
+                    i = readHeaders(ex, b, i, end);
+                    break;
+                case STATE_LENGTH: {
+                    int n = (int) Math.min(end - i, ex.remaining);
+                    ex.remaining -= n;
+                    if (content(ex, b, i, n)) {
+                        succeed(ex, ex.remaining == 0 && ex.keepAlive);
+                        return;
+                    }
+                    i += n;
+                    if (ex.remaining == 0) endOfBody(ex, ex.keepAlive);
+                    break;
+                }
+                case STATE_UNTIL_CLOSE:
+                    if (content(ex, b, i, end - i)) {
+                        succeed(ex, false);
+                        return;
+                    }
+                    i = end;
+                    break;
+                case STATE_CHUNK_SIZE:
+                case STATE_TRAILER:
+                    i = readLine(ex, b, i, end);
+                    break;
+                case STATE_CHUNK_DATA: {
+                    int n = (int) Math.min(end - i, ex.remaining);
+                    ex.remaining -= n;
+                    if (content(ex, b, i, n)) {
+                        succeed(ex, false);
+                        return;
+                    }
+                    i += n;
+                    if (ex.remaining == 0) ex.state = STATE_CHUNK_END;
+                    break;
+                }
+                case STATE_CHUNK_END:
+                    if (b[i++] == '\n') ex.state = STATE_CHUNK_SIZE;
+                    break;
+                default:
+                    i = end;
+                    break;
+            }
+        }
+    }
+
+    private int readHeaders(Exchange ex, byte[] b, int off, int end) throws IOException {
+        int i = off;
+        while (i < end) {
+            byte c = b[i++];
+            if (ex.headLength == ex.head.length) {
+                if (ex.head.length >= MAX_HEADER_BYTES) {
+                    throw new IOException("Response headers exceed " + MAX_HEADER_BYTES + " bytes");
+                }
+                ex.head = Arrays.copyOf(ex.head, ex.head.length * 2);
+            }
+            ex.head[ex.headLength++] = c;
+            if (c == '\n' && endsWithBlankLine(ex.head, ex.headLength)) {
+                onHeaders(ex);
+                return i;
+            }
+        }
+        return i;
+    }
+
+    private static boolean endsWithBlankLine(byte[] head, int length) {
+        return length >= 2 && (head[length - 2] == '\n'
+                || (length >= 3 && head[length - 2] == '\r' && head[length - 3] == '\n'));
+    }
+
+    private void onHeaders(Exchange ex) throws IOException {
+        String text = new String(ex.head, 0, ex.headLength, StandardCharsets.ISO_8859_1);
+        String[] lines = text.split("\r?\n");
+        String[] status = lines[0].split(" ", 3);
+        if (status.length < 2 || !status[0].startsWith("HTTP/")) {
+            throw new IOException("Malformed status line: " + lines[0]);
+        }
+        int code;
+        try {
+            code = Integer.parseInt(status[1]);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed status line: " + lines[0]);
+        }
+        Map<String, String> headers = new HashMap<>();
+        for (int k = 1; k < lines.length; k++) {
+            int colon = lines[k].indexOf(':');
+            if (colon > 0) {
+                String name = lines[k].substring(0, colon).trim().toLowerCase(Locale.ROOT);
+                if (!headers.containsKey(name)) {
+                    headers.put(name, lines[k].substring(colon + 1).trim());
+                }
+            }
+        }
+        if (code >= 100 && code < 200) {
+            ex.headLength = 0;
+            return;
+        }
+        String connection = headers.get("connection");
+        ex.keepAlive = status[0].equals("HTTP/1.0")
+                ? "keep-alive".equalsIgnoreCase(connection)
+                : !"close".equalsIgnoreCase(connection);
+        ex.etag = headers.get("etag");
+        ex.lastModified = headers.get("last-modified");
+        ex.head = null;
+
+        boolean noBody = code == 204 || code == 304;
+        String transfer = headers.get("transfer-encoding");
+        String length = headers.get("content-length");
+        if (noBody) {
+            ex.state = STATE_DONE;
+        } else if (transfer != null && transfer.toLowerCase(Locale.ROOT).contains("chunked")) {
+            ex.state = STATE_CHUNK_SIZE;
+        } else if (length != null) {
+            try {
+                ex.remaining = Long.parseLong(length);
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed Content-Length: " + length);
+            }
+            if (ex.remaining > maxResponseBytes) {
+                throw new IOException("Response exceeds " + maxResponseBytes + " bytes");
+            }
+            ex.state = STATE_LENGTH;
+        } else {
+            ex.keepAlive = false;
+            ex.state = STATE_UNTIL_CLOSE;
+        }
+
+        if (code == 304 && ex.known != null) {
+            Metrics.get().increment("fetch.not_modified");
+            DateFetcher.Result result = new DateFetcher.Result(ex.known.date, true, (int) ex.rawBytes, 0);
+            finish(ex, ex.keepAlive);
+            ex.future.complete(result);
+            return;
+        }
+        if (code >= 300 && code < 400 && headers.containsKey("location")) {
+            redirect(ex, headers.get("location"));
+            return;
+        }
+        ex.code = code;
+
+        String encoding = headers.get("content-encoding");
+        if (encoding != null) {
+            encoding = encoding.toLowerCase(Locale.ROOT);
+            if (encoding.contains("gzip")) {
+                ex.gunzip = new Gunzip(true);
+            } else if (encoding.contains("deflate")) {
+                ex.gunzip = new Gunzip(false);
+            }
+        }
+        ex.decoder = charsetOf(headers.get("content-type")).newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        if (ex.known != null) {
+            ex.scanner.setKnown(ex.known.scriptHash, ex.known.date);
+        }
+        if (ex.state == STATE_DONE || (ex.state == STATE_LENGTH && ex.remaining == 0)) {
+            endOfBody(ex, ex.keepAlive);
+        }
+    }
+
+    private void redirect(Exchange ex, String location) throws IOException {
+        if (++ex.redirects > MAX_REDIRECTS) {
+            throw new IOException("Too many redirects");
+        }
+        String target = new URL(ex.url, location).toString();
+        detach(ex, false);
+        if (!supports(target)) {
+            throw new RedirectException(target);
+        }
+        ex.retarget(target);
+        start(ex);
+    }
+
+    private int readLine(Exchange ex, byte[] b, int off, int end) throws IOException {
+        int i = off;
+        while (i < end) {
+            char c = (char) (b[i++] & 0xff);
+            if (c == '\n') {
+                String line = ex.line.toString().trim();
+                ex.line.setLength(0);
+                if (ex.state == STATE_TRAILER) {
+                    if (line.isEmpty()) endOfBody(ex, ex.keepAlive);
+                    return i;
+                }
+                int semicolon = line.indexOf(';');
+                String size = semicolon >= 0 ? line.substring(0, semicolon).trim() : line;
+                try {
+                    ex.remaining = Long.parseLong(size, 16);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Malformed chunk size: " + line);
+                }
+                ex.state = ex.remaining == 0 ? STATE_TRAILER : STATE_CHUNK_DATA;
+                return i;
+            }
+            if (ex.line.length() >= MAX_LINE_CHARS) {
+                throw new IOException("Chunk line too long");
+            }
+            ex.line.append(c);
+        }
+        return i;
+    }
+
+    /**
+     * Passes body bytes through the content decoding into the scanner.
+     * @return True once the scanner has found the date
+     */
+    private boolean content(Exchange ex, byte[] b, int off, int len) throws IOException {
+        if (len == 0) return false;
+        ex.bodyBytes += len;
+        if (ex.bodyBytes > maxResponseBytes) {
+            throw new IOException("Response exceeds " + maxResponseBytes + " bytes");
+        }
+        if (ex.gunzip == null) {
+            return decode(ex, b, off, len);
+        }
+        Gunzip gz = ex.gunzip;
+        int start = gz.header(b, off, off + len);
+        if (start >= off + len || gz.inflater.finished()) return false;
+        gz.inflater.setInput(b, start, off + len - start);
+        try {
+            while (!gz.inflater.finished()) {
+                int n = gz.inflater.inflate(inflated);
+                if (n > 0) {
+                    if (decode(ex, inflated, 0, n)) return true;
+                } else if (gz.inflater.needsInput() || gz.inflater.needsDictionary()) {
+                    break;
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException("Corrupt compressed body: " + e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Decodes bytes into characters and feeds them to the scanner. Bytes of a
+     * character split across reads are carried over to the next call.
+     */
+    private boolean decode(Exchange ex, byte[] b, int off, int len) throws IOException {
+        ex.decodedBytes += len;
+        if (ex.decodedBytes > maxResponseBytes) {
+            throw new IOException("Decoded response exceeds " + maxResponseBytes + " bytes");
+        }
+        ByteBuffer in;
+        if (ex.carryLength > 0) {
+            System.arraycopy(ex.carry, 0, scratch, 0, ex.carryLength);
+            System.arraycopy(b, off, scratch, ex.carryLength, len);
+            in = ByteBuffer.wrap(scratch, 0, ex.carryLength + len);
+        } else {
+            in = ByteBuffer.wrap(b, off, len);
+        }
+        while (true) {
+            chars.clear();
+            CoderResult result = ex.decoder.decode(in, chars, false);
+            if (chars.position() > 0 && ex.scanner.feed(chars.array(), 0, chars.position())) {
+                return true;
+            }
+            if (!result.isOverflow()) break;
+        }
+        ex.carryLength = Math.min(in.remaining(), Exchange.CARRY);
+        in.get(ex.carry, 0, ex.carryLength);
+        return false;
+    }
+
+    private void endOfBody(Exchange ex, boolean reusable) {
+        ex.state = STATE_DONE;
+        if (ex.scanner.resultDate() != PackedDate.NONE) {
+            succeed(ex, reusable);
+            return;
+        }
+        finish(ex, reusable);
+        ex.future.complete(null);
+    }
+
+    private void succeed(Exchange ex, boolean reusable) {
+        String date = ex.scanner.result();
+        if (ex.cache != null && ex.code < 400) {
+            ex.cache.put(ex.originalUrl, ex.rule, new ValidatorCache.Entry(
+                    ex.etag, ex.lastModified, ex.scanner.fingerprint(), date));
+        }
+        DateFetcher.Result result = new DateFetcher.Result(
+                date, ex.scanner.isUnchanged(), (int) ex.rawBytes, 0);
+        finish(ex, reusable);
+        ex.future.complete(result);
+    }
+
+    /**
+     * Fails an exchange. A request on a reused connection that got no answer
+     * at all is retried once on a new connection, since the server may have
+     * closed the idle connection just before it was reused.
+     */
+    private void fail(Exchange ex, Throwable error) {
+        if (ex.done) return;
+        if (ex.reused && !ex.received && !ex.retried && ex.conn != null) {
+            ex.retried = true;
+            detach(ex, false);
+            Metrics.get().increment("nio.stale_retry");
+            start(ex);
+            return;
+        }
+        finish(ex, false);
+        ex.future.completeExceptionally(error);
+    }
+
+    private void finish(Exchange ex, boolean reusable) {
+        ex.done = true;
+        active.remove(ex);
+        detach(ex, reusable);
+        if (ex.gunzip != null) {
+            ex.gunzip.inflater.end();
+            ex.gunzip = null;
+        }
+    }
+
+    /**
+     * Releases the exchange's connection into the idle pool or closes it.
+     */
+    private void detach(Exchange ex, boolean reusable) {
+        Connection conn = ex.conn;
+        if (conn == null) return;
+        ex.conn = null;
+        conn.exchange = null;
+        if (!reusable || closed || !conn.channel.isOpen()) {
+            close(conn);
+            return;
+        }
+        ArrayDeque<Connection> pool = idle.get(conn.hostKey);
+        if (pool == null) {
+            pool = new ArrayDeque<>();
+            idle.put(conn.hostKey, pool);
+        }
+        if (pool.size() >= maxIdlePerHost) {
+            close(conn);
+            return;
+        }
+        conn.idleSince = System.nanoTime();
+        conn.key.interestOps(SelectionKey.OP_READ);
+        pool.push(conn);
+    }
+
+    private void dropIdle(Connection conn) {
+        ArrayDeque<Connection> pool = idle.get(conn.hostKey);
+        if (pool != null) {
+            pool.remove(conn);
+            if (pool.isEmpty()) idle.remove(conn.hostKey);
+        }
+        close(conn);
+    }
+
+    private static void close(Connection conn) {
+        if (conn.key != null) conn.key.cancel();
+        try {
+            conn.channel.close();
+        } catch (IOException ignored) {
+            // already closed
+        }
+    }
+
+    /**
+     * Times out overdue exchanges, drops cancelled ones and closes connections
+     * idle for longer than the keep-alive time.
+     */
+    private void sweep() {
+        long now = System.nanoTime();
+        for (int i = active.size() - 1; i >= 0; i--) {
+            Exchange ex = active.get(i);
+            if (ex.future.isDone()) {
+                finish(ex, false);
+            } else if (now - ex.limitNanos() >= 0) {
+                boolean deadline = ex.deadlineNanos != 0L && now - ex.deadlineNanos >= 0;
+                ex.retried = true;
+                fail(ex, new SocketTimeoutException(deadline ? "Check deadline exceeded"
+                        : ex.conn == null || !ex.conn.channel.isConnected() ? "Connect timed out"
+                        : "Read timed out"));
+            }
+        }
+        Iterator<ArrayDeque<Connection>> pools = idle.values().iterator();
+        while (pools.hasNext()) {
+            ArrayDeque<Connection> pool = pools.next();
+            Iterator<Connection> it = pool.iterator();
+            while (it.hasNext()) {
+                Connection conn = it.next();
+                if (now - conn.idleSince > keepAliveMillis * 1_000_000L) {
+                    it.remove();
+                    close(conn);
+                }
+            }
+            if (pool.isEmpty()) pools.remove();
+        }
+    }
+
+    private void shutdownLoop() {
+        IOException error = new IOException("Engine closed");
+        Exchange ex;
+        while ((ex = submitted.poll()) != null) {
+            if (!ex.started) active.add(ex);
+        }
+        for (Exchange pending : new ArrayList<>(active)) {
+            finish(pending, false);
+            pending.future.completeExceptionally(error);
+        }
+        for (ArrayDeque<Connection> pool : idle.values()) {
+            for (Connection conn : pool) close(conn);
+        }
+        idle.clear();
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+            // nothing left to release
+        }
+        resolver.shutdownNow();
+    }
+
+    private static Charset charsetOf(String contentType) {
+        if (contentType != null) {
+            int i = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+            if (i >= 0) {
+                String name = contentType.substring(i + 8).replace("\"", "").trim();
+                int end = name.indexOf(';');
+                if (end >= 0) name = name.substring(0, end).trim();
+                try {
+                    return Charset.forName(name);
+                } catch (IllegalArgumentException ignored) {
+                    // fall through to the default
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Cached address of a host.
+     */
+    private static class Resolved {
+        final InetAddress address;
+        final long at;
+
+        Resolved(InetAddress address, long at) {
+            this.address = address;
+            this.at = at;
+        }
+    }
+
+    /**
+     * One socket, either serving an exchange or idle in the pool.
+     */
+    private static class Connection {
+        final SocketChannel channel;
+        final String hostKey;
+        SelectionKey key;
+        Exchange exchange;
+        long idleSince;
+
+        Connection(SocketChannel channel, String hostKey) {
+            this.channel = channel;
+            this.hostKey = hostKey;
+        }
+    }
+
+    /**
+     * One request and the parse state of its response. Touched by the loop
+     * thread only, except for the DNS result fields.
+     */
+    private static class Exchange {
+
+        static final int CARRY = 16;
+
+        final String originalUrl;
+        final DateExtractor.Rule rule;
+        final SourceType type;
+        final PageScanner scanner;
+        final ValidatorCache cache;
+        final ValidatorCache.Entry known;
+        final CompletableFuture<DateFetcher.Result> future;
+        final int connectTimeoutMillis;
+        final int readTimeoutMillis;
+        final long deadlineNanos;
+
+        URL url;
+        String host;
+        int port;
+        String hostKey;
+        ByteBuffer request;
+        volatile InetAddress address;
+        volatile Throwable error;
+
+        Connection conn;
+        boolean started;
+        boolean reused;
+        boolean received;
+        boolean retried;
+        boolean done;
+        boolean keepAlive;
+        int code;
+        int redirects;
+        long phaseNanos;
+        long rawBytes;
+        long bodyBytes;
+        long decodedBytes;
+
+        int state;
+        byte[] head;
+        int headLength;
+        final StringBuilder line = new StringBuilder();
+        long remaining;
+        String etag;
+        String lastModified;
+        Gunzip gunzip;
+        CharsetDecoder decoder;
+        final byte[] carry = new byte[CARRY];
+        int carryLength;
+
+        Exchange(String url, DateExtractor.Rule rule, PageScanner scanner, ValidatorCache cache,
+                 CompletableFuture<DateFetcher.Result> future, int connectTimeoutMillis,
+                 int readTimeoutMillis, long deadlineNanos) throws MalformedURLException {
+            this.originalUrl = url;
+            this.rule = rule;
+            this.type = rule.type;
+            this.scanner = scanner;
+            this.cache = cache;
+            this.known = cache != null ? cache.get(url, rule) : null;
+            this.future = future;
+            this.connectTimeoutMillis = connectTimeoutMillis;
+            this.readTimeoutMillis = readTimeoutMillis;
+            this.deadlineNanos = deadlineNanos;
+            retarget(url);
+        }
+
+        /**
+         * Points the exchange at a URL and builds its request. Validators are
+         * only sent to the original URL.
+         */
+        void retarget(String target) throws MalformedURLException {
+            url = new URL(target);
+            host = url.getHost();
+            port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+            hostKey = host + ':' + port;
+            address = null;
+            String path = url.getFile().isEmpty() ? "/" : url.getFile();
+            StringBuilder sb = new StringBuilder(256)
+                    .append("GET ").append(path).append(" HTTP/1.1\r\n")
+                    .append("Host: ").append(host);
+            if (url.getPort() != -1) sb.append(':').append(port);
+            sb.append("\r\nUser-Agent: ").append(USER_AGENT)
+                    .append("\r\nAccept-Encoding: gzip, deflate")
+                    .append("\r\nConnection: keep-alive");
+            if (type == SourceType.JSON) {
+                sb.append("\r\nAccept: application/json");
+            }
+            if (known != null && target.equals(originalUrl)) {
+                if (known.etag != null) sb.append("\r\nIf-None-Match: ").append(known.etag);
+                if (known.lastModified != null) sb.append("\r\nIf-Modified-Since: ").append(known.lastModified);
+            }
+            sb.append("\r\n\r\n");
+            request = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.ISO_8859_1));
+        }
+
+        void resetResponse() {
+            state = STATE_HEADERS;
+            head = new byte[1024];
+            headLength = 0;
+            line.setLength(0);
+            received = false;
+            carryLength = 0;
+        }
+
+        /**
+         * @return The earlier of the phase timeout and the overall deadline
+         */
+        long limitNanos() {
+            if (deadlineNanos == 0L) return phaseNanos;
+            return deadlineNanos - phaseNanos < 0 ? deadlineNanos : phaseNanos;
+        }
+    }
+
+    /**
+     * Streaming inflater for gzip or zlib bodies. The gzip header is skipped
+     * byte by byte, so it may be split across reads; the trailer is ignored.
+     */
+    private static final class Gunzip {
+
+        private static final int HEADER = 0;
+        private static final int EXTRA_LENGTH = 1;
+        private static final int EXTRA = 2;
+        private static final int NAME = 3;
+        private static final int COMMENT = 4;
+        private static final int HEADER_CRC = 5;
+        private static final int DATA = 6;
+
+        private static final int FLAG_HCRC = 2;
+        private static final int FLAG_EXTRA = 4;
+        private static final int FLAG_NAME = 8;
+        private static final int FLAG_COMMENT = 16;
+
+        final Inflater inflater;
+        private int stage;
+        private int need;
+        private int flags;
+        private int extraLength;
+
+        /**
+         * @param gzip True for a gzip member, false for a zlib stream
+         */
+        Gunzip(boolean gzip) {
+            this.inflater = new Inflater(gzip);
+            this.stage = gzip ? HEADER : DATA;
+            this.need = 10;
+        }
+
+        /**
+         * Consumes header bytes.
+         * @return Offset of the first compressed byte, or end if the header continues
+         */
+        int header(byte[] b, int off, int end) throws ZipException {
+            int i = off;
+            while (i < end && stage != DATA) {
+                int c = b[i++] & 0xff;
+                switch (stage) {
+                    case HEADER: {
+                        int pos = 10 - need;
+                        if ((pos == 0 && c != 0x1f) || (pos == 1 && c != 0x8b) || (pos == 2 && c != 8)) {
+                            throw new ZipException("Not in gzip format");
+                        }
+                        if (pos == 3) flags = c;
+                        if (--need == 0) advance();
+                        break;
+                    }
+                    case EXTRA_LENGTH:
+                        extraLength |= c << (8 * (2 - need));
+                        if (--need == 0) advance();
+                        break;
+                    case EXTRA:
+                    case HEADER_CRC:
+                        if (--need == 0) advance();
+                        break;
+                    default:
+                        if (c == 0) advance();
+                        break;
+                }
+            }
+            return i;
+        }
+
+        private void advance() {
+            while (true) {
+                stage++;
+                if (stage == EXTRA_LENGTH && (flags & FLAG_EXTRA) != 0) {
+                    need = 2;
+                    return;
+                }
+                if (stage == EXTRA && extraLength > 0) {
+                    need = extraLength;
+                    return;
+                }
+                if (stage == NAME && (flags & FLAG_NAME) != 0) return;
+                if (stage == COMMENT && (flags & FLAG_COMMENT) != 0) return;
+                if (stage == HEADER_CRC && (flags & FLAG_HCRC) != 0) {
+                    need = 2;
+                    return;
+                }
+                if (stage == DATA) return;
+            }
+        }
+    }
+}
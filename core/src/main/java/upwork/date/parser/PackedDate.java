@@ -0,0 +1,85 @@
+/**
+ * PackedDate converts dates between the DD.MM.YYYY text form and a packed int
+ * of the form YYYYMMDD, which sorts and compares like the date itself.
+ */
+package upwork.date.parser;
+
+public class PackedDate {
+
+    /**
+     * Value used when there is no date.
+     */
+    public static final int NONE = 0;
+
+    private PackedDate() {
+    }
+
+    /**
+     * Packs year, month and day into one int.
+     * @param year  Four-digit year
+     * @param month Month 1-12
+     * @param day   Day of month 1-31
+     * @return The packed date YYYYMMDD
+     */
+    public static int of(int year, int month, int day) {
+        return year * 10000 + month * 100 + day;
+    }
+
+    /**
+     * Parses a date in any format known to {@link DateScanner}.
+     * @param text Date text
+     * @return The packed date or {@link #NONE} if the text is not a valid date
+     */
+    public static int parse(String text) {
+        return DateScanner.parse(text);
+    }
+
+    /**
+     * Formats a packed date as DD.MM.YYYY.
+     * @param packed Packed date
+     * @return The date text or an empty string for {@link #NONE}
+     */
+    public static String format(int packed) {
+        if (packed == NONE) {
+            return "";
+        }
+        char[] out = new char[10];
+        put(out, 0, day(packed), 2);
+        out[2] = '.';
+        put(out, 3, month(packed), 2);
+        out[5] = '.';
+        put(out, 6, year(packed), 4);
+        return new String(out);
+    }
+
+    /**
+     * @param packed Packed date
+     * @return The year
+     */
+    public static int year(int packed) {
+        return packed / 10000;
+    }
+
+    /**
+     * @param packed Packed date
+     * @return The month 1-12
+     */
+    public static int month(int packed) {
+        return packed / 100 % 100;
+    }
+
+    /**
+     * @param packed Packed date
+     * @return The day of month
+     */
+    public static int day(int packed) {
+        return packed % 100;
+    }
+
+    private static void put(char[] out, int at, int value, int width) {
+        for (int i = at + width - 1; i >= at; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * PageScanner consumes a response body in chunks and stops as soon as it has
+ * found the date, so the fetcher never has to hold or parse the whole body.
+ * Each {@link SourceType} has its own scanner.
+ */
+package upwork.date.parser;
+
+public interface PageScanner {
+
+    /**
+     * Pushes the next chunk of the response into the scanner.
+     * @param buf Character buffer
+     * @param off Offset of the first character
+     * @param len Number of characters
+     * @return True once a date has been found and scanning can stop
+     */
+    boolean feed(char[] buf, int off, int len);
+
+    /**
+     * @return The date found so far in format DD.MM.YYYY, or null
+     */
+    String result();
+
+    /**
+     * @return The date found so far as a packed int, or {@link PackedDate#NONE}
+     */
+    int resultDate();
+
+    /**
+     * @return Fingerprint of the content the date was taken from, 0 if not tracked
+     */
+    long fingerprint();
+
+    /**
+     * @return True if the result was reused from {@link #setKnown(long, String)}
+     */
+    boolean isUnchanged();
+
+    /**
+     * Supplies the fingerprint and date seen by the previous check, so an
+     * unchanged source can reuse the date. Scanners that do not track
+     * fingerprints ignore it.
+     * @param fingerprint Fingerprint returned by {@link #fingerprint()} last time
+     * @param date        Date extracted last time
+     */
+    void setKnown(long fingerprint, String date);
+}
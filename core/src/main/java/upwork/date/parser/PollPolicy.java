@@ -0,0 +1,87 @@
+/**
+ * PollPolicy computes the delay before the next check of a monitor. The delay
+ * grows exponentially from the base interval while the page stays unchanged or
+ * keeps failing, never exceeds the configured cap, drops back to the base
+ * interval as soon as a change or a mismatch is seen, and is spread by a
+ * random jitter. A backoff factor of 1 keeps the interval fixed.
+ */
+package upwork.date.parser;
+
+import java.util.Random;
+
+public class PollPolicy {
+
+    public final int baseMinutes;
+    public final int maxMinutes;
+    public final double backoffFactor;
+    public final double jitter;
+
+    /**
+     * @param baseMinutes   Interval used right after a change, in minutes
+     * @param maxMinutes    Upper bound of the backed-off interval, in minutes
+     * @param backoffFactor Multiplier applied per unchanged or failed check, 1 disables backoff
+     * @param jitter        Relative random spread of the delay, e.g. 0.1 for +/-10%
+     */
+    public PollPolicy(int baseMinutes, int maxMinutes, double backoffFactor, double jitter) {
+        this.baseMinutes = baseMinutes;
+        this.maxMinutes = Math.max(baseMinutes, maxMinutes);
+        this.backoffFactor = Math.max(1.0, backoffFactor);
+        this.jitter = Math.min(0.5, Math.max(0.0, jitter));
+    }
+
+    /**
+     * Creates the policy used when only a base interval is configured.
+     * @param baseMinutes Base interval in minutes
+     * @return Policy with the default cap, backoff and jitter
+     */
+    public static PollPolicy withDefaults(int baseMinutes) {
+        return new PollPolicy(
+                baseMinutes,
+                Math.max(baseMinutes, Constants.DEFAULT_MAX_INTERVAL),
+                Constants.DEFAULT_BACKOFF_FACTOR,
+                Constants.DEFAULT_JITTER);
+    }
+
+    /**
+     * Returns the interval before jitter for the given streak.
+     * @param streak Number of consecutive unchanged or failed checks
+     * @return Interval in milliseconds
+     */
+    public long intervalMillis(int streak) {
+        double minutes = baseMinutes * Math.pow(backoffFactor, Math.max(0, streak));
+        return (long) (Math.min(minutes, maxMinutes) * 60_000L);
+    }
+
+    /**
+     * Returns the jittered delay before the next check.
+     * @param streak Number of consecutive unchanged or failed checks
+     * @param random Random source for the jitter
+     * @return Delay in milliseconds
+     */
+    public long nextDelayMillis(int streak, Random random) {
+        long interval = intervalMillis(streak);
+        if (jitter == 0.0) {
+            return interval;
+        }
+        double spread = (random.nextDouble() * 2.0 - 1.0) * jitter;
+        return Math.max(0L, (long) (interval * (1.0 + spread)));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PollPolicy)) return false;
+        PollPolicy other = (PollPolicy) o;
+        return baseMinutes == other.baseMinutes
+                && maxMinutes == other.maxMinutes
+                && Double.compare(backoffFactor, other.backoffFactor) == 0
+                && Double.compare(jitter, other.jitter) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = baseMinutes * 31 + maxMinutes;
+        h = h * 31 + Double.valueOf(backoffFactor).hashCode();
+        return h * 31 + Double.valueOf(jitter).hashCode();
+    }
+}
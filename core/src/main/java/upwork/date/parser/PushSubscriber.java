@@ -0,0 +1,287 @@
+/**
+ * PushSubscriber keeps one Server-Sent Events connection per monitor that has
+ * a push URL and reports every pushed date. The server sends events of type
+ * "date" (or untyped events) whose data is the date, e.g.
+ * <pre>
+ * event: date
+ * data: 31.10.2025
+ * </pre>
+ * Lost connections are re-established with exponential backoff and jitter,
+ * resuming from the last event id. After several consecutive failures the
+ * monitor is handed back to polling until a connection succeeds again.
+ */
+package upwork.date.parser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class PushSubscriber {
+
+    /**
+     * Receives push events on the subscription threads.
+     */
+    public interface Listener {
+
+        /**
+         * Invoked when the connection of a monitor is established; polling
+         * of the monitor can pause.
+         * @param monitor Subscribed monitor
+         */
+        void onConnected(Monitor monitor);
+
+        /**
+         * Invoked for every date pushed by the server.
+         * @param monitor Subscribed monitor
+         * @param date    Pushed date
+         */
+        void onDate(Monitor monitor, String date);
+
+        /**
+         * Invoked when the connection could not be kept up; the monitor has
+         * to be polled until {@link #onConnected(Monitor)} is called again.
+         * @param monitor Subscribed monitor
+         */
+        void onFallback(Monitor monitor);
+    }
+
+    private final Listener listener;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final int failuresBeforeFallback;
+    private final int readTimeoutMillis;
+    private final Map<Long, Subscription> subscriptions = new HashMap<>();
+    private final Random random = new Random();
+
+    /**
+     * Creates a subscriber with the defaults from {@link Constants}.
+     * @param listener Receiver of push events
+     */
+    public PushSubscriber(Listener listener) {
+        this(listener, Constants.PUSH_INITIAL_BACKOFF_MILLIS, Constants.PUSH_MAX_BACKOFF_MILLIS,
+                Constants.PUSH_FAILURES_BEFORE_FALLBACK, Constants.PUSH_READ_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param listener               Receiver of push events
+     * @param initialBackoffMillis   Delay before the first reconnect
+     * @param maxBackoffMillis       Upper bound of the reconnect delay
+     * @param failuresBeforeFallback Consecutive failures before falling back to polling
+     * @param readTimeoutMillis      Longest silence tolerated on an open connection
+     */
+    public PushSubscriber(Listener listener, long initialBackoffMillis, long maxBackoffMillis,
+                          int failuresBeforeFallback, int readTimeoutMillis) {
+        this.listener = listener;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = Math.max(initialBackoffMillis, maxBackoffMillis);
+        this.failuresBeforeFallback = Math.max(1, failuresBeforeFallback);
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    /**
+     * Replaces the subscriptions. Monitors without a push URL are ignored,
+     * unchanged ones keep their connection, and changed or removed ones are
+     * closed.
+     * @param monitors Monitors to subscribe from now on
+     */
+    public synchronized void subscribe(List<Monitor> monitors) {
+        Map<Long, Subscription> previous = new HashMap<>(subscriptions);
+        subscriptions.clear();
+        for (Monitor monitor : monitors) {
+            if (!monitor.hasPush()) continue;
+            Subscription sub = previous.remove(monitor.id);
+            if (sub != null && !sub.monitor.equals(monitor)) {
+                sub.close();
+                sub = null;
+            }
+            if (sub == null) {
+                sub = new Subscription(monitor);
+                sub.start();
+            }
+            subscriptions.put(monitor.id, sub);
+        }
+        for (Subscription removed : previous.values()) {
+            removed.close();
+        }
+    }
+
+    /**
+     * Closes all connections.
+     */
+    public synchronized void shutdown() {
+        for (Subscription sub : subscriptions.values()) {
+            sub.close();
+        }
+        subscriptions.clear();
+    }
+
+    /**
+     * One long-lived connection and its reconnect loop.
+     */
+    private class Subscription implements Runnable {
+
+        final Monitor monitor;
+        private final Thread thread;
+        private volatile boolean closed;
+        private volatile HttpURLConnection connection;
+        private String lastEventId;
+        private long retryMillis = initialBackoffMillis;
+
+        Subscription(Monitor monitor) {
+            this.monitor = monitor;
+            this.thread = new Thread(this, "push-" + monitor.id);
+            this.thread.setDaemon(true);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        void close() {
+            closed = true;
+            HttpURLConnection conn = connection;
+            if (conn != null) conn.disconnect();
+            thread.interrupt();
+        }
+
+        @Override
+        public void run() {
+            long backoff = retryMillis;
+            int failures = 0;
+            boolean connected = false;
+            while (!closed) {
+                boolean opened = false;
+                try {
+                    opened = connect();
+                    if (opened) {
+                        connected = true;
+                        failures = 0;
+                        backoff = retryMillis;
+                        Metrics.get().increment("push.connected");
+                        listener.onConnected(monitor);
+                        read();
+                    }
+                } catch (IOException e) {
+                    // counted below
+                } finally {
+                    HttpURLConnection conn = connection;
+                    connection = null;
+                    if (conn != null) conn.disconnect();
+                }
+                if (closed) return;
+
+                failures++;
+                Metrics.get().increment("push.disconnected");
+                if (connected && failures >= failuresBeforeFallback) {
+                    connected = false;
+                    Metrics.get().increment("push.fallback");
+                    listener.onFallback(monitor);
+                }
+                if (!sleep(jittered(backoff))) return;
+                if (!opened) {
+                    backoff = Math.min(maxBackoffMillis, backoff * 2);
+                }
+            }
+        }
+
+        /**
+         * Opens the event stream.
+         * @return True if the server accepted the subscription
+         */
+        private boolean connect() throws IOException {
+            HttpURLConnection conn = (HttpURLConnection) new URL(monitor.pushUrl).openConnection();
+            connection = conn;
+            if (closed) return false;
+            conn.setUseCaches(false);
+            conn.setConnectTimeout(Constants.CONNECT_TIMEOUT_MILLIS);
+            conn.setReadTimeout(readTimeoutMillis);
+            conn.setRequestProperty("Accept", "text/event-stream");
+            conn.setRequestProperty("Cache-Control", "no-cache");
+            if (lastEventId != null) {
+                conn.setRequestProperty("Last-Event-ID", lastEventId);
+            }
+            int code = conn.getResponseCode();
+            String type = conn.getContentType();
+            return code == HttpURLConnection.HTTP_OK
+                    && type != null && type.toLowerCase().startsWith("text/event-stream");
+        }
+
+        /**
+         * Reads events until the stream ends, following the SSE line format.
+         */
+        private void read() throws IOException {
+            HttpURLConnection conn = connection;
+            if (conn == null) return;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
+                String event = null;
+                StringBuilder data = new StringBuilder();
+                String line;
+                while (!closed && (line = reader.readLine()) != null) {
+                    if (line.isEmpty()) {
+                        dispatch(event, data);
+                        event = null;
+                        data.setLength(0);
+                        continue;
+                    }
+                    if (line.charAt(0) == ':') continue;
+                    int colon = line.indexOf(':');
+                    String field = colon >= 0 ? line.substring(0, colon) : line;
+                    String value = colon >= 0 ? line.substring(colon + 1) : "";
+                    if (value.startsWith(" ")) value = value.substring(1);
+                    switch (field) {
+                        case "event":
+                            event = value;
+                            break;
+                        case "data":
+                            data.append(value).append('\n');
+                            break;
+                        case "id":
+                            lastEventId = value;
+                            break;
+                        case "retry":
+                            try {
+                                retryMillis = Math.min(maxBackoffMillis, Long.parseLong(value.trim()));
+                            } catch (NumberFormatException ignored) {
+                                // invalid retry fields are ignored
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+        }
+
+        private void dispatch(String event, StringBuilder data) {
+            if (data.length() == 0) return;
+            if (event != null && !event.isEmpty() && !event.equals("date")) return;
+            String date = data.toString().trim();
+            if (date.isEmpty()) return;
+            Metrics.get().increment("push.events");
+            listener.onDate(monitor, date);
+        }
+
+        private long jittered(long millis) {
+            synchronized (random) {
+                return (long) (millis * (0.8 + random.nextDouble() * 0.4));
+            }
+        }
+
+        private boolean sleep(long millis) {
+            try {
+                Thread.sleep(millis);
+                return !closed;
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+    }
+}
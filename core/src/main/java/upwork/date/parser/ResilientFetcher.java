@@ -0,0 +1,280 @@
+/**
+ * ResilientFetcher wraps {@link DateFetcher} with the protections of a
+ * {@link FetchPolicy}. Every check gets an overall deadline; a second, hedged
+ * request is sent when the first one is slower than the configured percentile
+ * of the host's recent latencies; failed attempts are retried with exponential
+ * backoff while the deadline allows; and a per-host {@link CircuitBreaker}
+ * rejects checks against a host that keeps failing. The first attempt runs on
+ * the checking thread and hedged requests on a small fixed pool; whichever
+ * attempt loses is cancelled, so no thread is left reading an abandoned page.
+ * With a {@link NioHttpEngine} the attempts run on its event loop and only
+ * blocking fallbacks take a pool thread.
+ */
+package upwork.date.parser;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ResilientFetcher {
+
+    /**
+     * Minimum number of latency samples of a host before requests are hedged.
+     */
+    private static final int MIN_HEDGE_SAMPLES = 8;
+
+    /**
+     * Sliding window of recent successful latencies of one host.
+     */
+    private static class LatencyWindow {
+
+        private final long[] samples = new long[32];
+        private int count;
+        private int next;
+
+        synchronized void record(long millis) {
+            samples[next] = millis;
+            next = (next + 1) % samples.length;
+            if (count < samples.length) count++;
+        }
+
+        /**
+         * @return The percentile in milliseconds, or -1 if there are too few samples
+         */
+        synchronized long percentile(int percentile) {
+            if (count < MIN_HEDGE_SAMPLES) return -1L;
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(count * percentile / 100.0) - 1;
+            return sorted[Math.max(0, Math.min(count - 1, rank))];
+        }
+    }
+
+    /**
+     * Attempts of one check. The first response wins and cancels the others.
+     */
+    private static class Race {
+
+        final CompletableFuture<DateFetcher.Result> winner = new CompletableFuture<>();
+        final AtomicInteger pending = new AtomicInteger(1);
+        private final Queue<Runnable> cancels = new ConcurrentLinkedQueue<>();
+
+        Race() {
+            winner.whenComplete((result, error) -> cancelAll());
+        }
+
+        /**
+         * Registers how to abort an attempt, aborting it at once if the race is over.
+         */
+        void track(Runnable cancel) {
+            cancels.add(cancel);
+            if (winner.isDone()) cancelAll();
+        }
+
+        void cancelAll() {
+            Runnable cancel;
+            while ((cancel = cancels.poll()) != null) {
+                cancel.run();
+            }
+        }
+    }
+
+    private final ScheduledThreadPoolExecutor hedges;
+    private final NioHttpEngine engine;
+    private final ConcurrentHashMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+    private final FetchPolicy policy;
+
+    /**
+     * @param policy Timeouts, retry, hedging and breaker settings
+     */
+    public ResilientFetcher(FetchPolicy policy) {
+        this(policy, null);
+    }
+
+    /**
+     * @param policy Timeouts, retry, hedging and breaker settings
+     * @param engine Non-blocking engine for the attempts, or null to block a thread per attempt
+     */
+    public ResilientFetcher(FetchPolicy policy, NioHttpEngine engine) {
+        this.policy = policy;
+        this.engine = engine;
+        this.hedges = new ScheduledThreadPoolExecutor(Constants.HEDGE_THREADS, r -> {
+            Thread t = new Thread(r, "fetch-hedge");
+            t.setDaemon(true);
+            return t;
+        });
+        this.hedges.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * @return The policy
+     */
+    public FetchPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Closes all circuit breakers, e.g. after the network came back.
+     */
+    public void resetBreakers() {
+        breakers.clear();
+    }
+
+    /**
+     * Fetches the date of a page within the policy's deadline.
+     * @param url       Page URL
+     * @param extractor Extraction engine to apply
+     * @param cache     Validator cache or null
+     * @return The fetch result
+     * @throws CircuitBreaker.OpenException If the host's breaker is open
+     * @throws SocketTimeoutException       If the deadline is exceeded
+     * @throws IOException                  If the last attempt failed
+     */
+    public DateFetcher.Result fetch(String url, DateExtractor extractor, ValidatorCache cache)
+            throws IOException {
+        String host = FetchPool.hostOf(url);
+        CircuitBreaker breaker = breakers.computeIfAbsent(host,
+                h -> new CircuitBreaker(h, policy.breakerThreshold, policy.breakerOpenMillis));
+        LatencyWindow window = latencies.computeIfAbsent(host, h -> new LatencyWindow());
+        long deadline = System.nanoTime() + policy.deadlineMillis * 1_000_000L;
+
+        Metrics metrics = Metrics.get();
+        IOException last = null;
+        for (int attempt = 0; attempt <= policy.maxRetries; attempt++) {
+            if (attempt > 0) {
+                long delay = policy.retryDelayMillis(attempt);
+                if (remainingMillis(deadline) <= delay) break;
+                metrics.increment("fetch.retry");
+                sleep(delay);
+            }
+            breaker.acquire(System.currentTimeMillis());
+            try {
+                DateFetcher.Result result = hedged(url, extractor, cache, policy, window, deadline);
+                breaker.onSuccess();
+                return result;
+            } catch (DateFetcher.NoDateException e) {
+                // The host answered; only the page content is wrong.
+                breaker.onSuccess();
+                throw e;
+            } catch (IOException e) {
+                breaker.onFailure(System.currentTimeMillis());
+                last = e;
+            } catch (RuntimeException e) {
+                breaker.onFailure(System.currentTimeMillis());
+                throw e;
+            }
+        }
+        if (last instanceof SocketTimeoutException) {
+            metrics.increment("fetch.deadline");
+        }
+        throw last != null ? last : new SocketTimeoutException("Check deadline exceeded");
+    }
+
+    /**
+     * Runs one attempt on the calling thread, adding a second request on the
+     * hedge pool if the first is slower than the host's hedge threshold. The
+     * first successful response wins and the other attempt is cancelled.
+     */
+    private DateFetcher.Result hedged(final String url, final DateExtractor extractor,
+                                      final ValidatorCache cache, final FetchPolicy policy,
+                                      final LatencyWindow window, final long deadline) throws IOException {
+        final Race race = new Race();
+        final boolean async = engine != null && NioHttpEngine.supports(url);
+        ScheduledFuture<?> hedge = null;
+        long hedgeAfter = policy.hedgePercentile > 0 ? window.percentile(policy.hedgePercentile) : -1L;
+        if (hedgeAfter >= 0 && hedgeAfter < remainingMillis(deadline)) {
+            hedge = hedges.schedule(() -> {
+                if (race.pending.incrementAndGet() > 1 && !race.winner.isDone()) {
+                    Metrics.get().increment("fetch.hedge");
+                    attempt(url, extractor, cache, policy, window, deadline, race, async, true);
+                }
+            }, hedgeAfter, TimeUnit.MILLISECONDS);
+        }
+        try {
+            attempt(url, extractor, cache, policy, window, deadline, race, async, false);
+            return race.winner.get(Math.max(1L, remainingMillis(deadline)), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new SocketTimeoutException("Check deadline exceeded");
+        } catch (InterruptedException | ExecutionException e) {
+            return unwrap(e);
+        } finally {
+            if (hedge != null) hedge.cancel(false);
+            race.cancelAll();
+        }
+    }
+
+    /**
+     * Runs one attempt of a race: blocking on the current thread, or started
+     * on the engine with blocking fallbacks on the hedge pool.
+     */
+    private void attempt(String url, DateExtractor extractor, ValidatorCache cache,
+                         FetchPolicy policy, final LatencyWindow window, long deadline,
+                         final Race race, boolean async, final boolean hedge) {
+        final long start = System.nanoTime();
+        if (async) {
+            final CompletableFuture<DateFetcher.Result> future = DateFetcher.fetchAsync(url, extractor,
+                    cache, policy.connectTimeoutMillis, policy.readTimeoutMillis, deadline, engine, hedges);
+            race.track(() -> future.cancel(false));
+            future.whenComplete((result, error) -> {
+                if (error == null) {
+                    window.record((System.nanoTime() - start) / 1_000_000L);
+                    if (race.winner.complete(result) && hedge) {
+                        Metrics.get().increment("fetch.hedge_won");
+                    }
+                } else if (race.pending.decrementAndGet() == 0) {
+                    race.winner.completeExceptionally(error);
+                }
+            });
+            return;
+        }
+        final DateFetcher.Call call = new DateFetcher.Call();
+        race.track(call::cancel);
+        try {
+            DateFetcher.Result result = DateFetcher.fetch(url, extractor, cache,
+                    policy.connectTimeoutMillis, policy.readTimeoutMillis, deadline, call);
+            window.record((System.nanoTime() - start) / 1_000_000L);
+            if (race.winner.complete(result) && hedge) {
+                Metrics.get().increment("fetch.hedge_won");
+            }
+        } catch (IOException | RuntimeException | Error e) {
+            if (race.pending.decrementAndGet() == 0) {
+                race.winner.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static DateFetcher.Result unwrap(Exception e) throws IOException {
+        if (e instanceof InterruptedException) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while fetching", e);
+        }
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) throw (IOException) cause;
+        if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+        throw new IOException(cause);
+    }
+
+    private static long remainingMillis(long deadline) {
+        return (deadline - System.nanoTime()) / 1_000_000L;
+    }
+
+    private static void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to retry", e);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * ResultStream publishes check results to observers and keeps the latest one
+ * per monitor, so an observer that subscribes late receives the current state
+ * right away instead of having to fetch it. Each observer is called on its own
+ * executor, in publishing order.
+ */
+package upwork.date.parser;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+public class ResultStream {
+
+    /**
+     * Receives published results.
+     */
+    public interface Observer {
+
+        /**
+         * @param result Latest result of one monitor
+         */
+        void onResult(CheckResult result);
+    }
+
+    private static class Subscription {
+        final Executor executor;
+        final Observer observer;
+
+        Subscription(Executor executor, Observer observer) {
+            this.executor = executor;
+            this.observer = observer;
+        }
+    }
+
+    private final Map<Long, CheckResult> latest = new LinkedHashMap<>();
+    private final List<Subscription> subscriptions = new ArrayList<>();
+
+    /**
+     * Stores the result as the latest of its monitor and hands it to every observer.
+     * @param result Result to publish
+     */
+    public synchronized void publish(final CheckResult result) {
+        latest.put(result.monitorId, result);
+        for (final Subscription s : subscriptions) {
+            s.executor.execute(() -> s.observer.onResult(result));
+        }
+    }
+
+    /**
+     * Subscribes an observer. The latest result of every monitor is delivered
+     * first, then each new one.
+     * @param executor Executor the observer is called on, e.g. the main thread
+     * @param observer Observer to add
+     */
+    public synchronized void subscribe(Executor executor, final Observer observer) {
+        subscriptions.add(new Subscription(executor, observer));
+        for (final CheckResult result : latest.values()) {
+            executor.execute(() -> observer.onResult(result));
+        }
+    }
+
+    /**
+     * Removes an observer. Results already handed to its executor are still delivered.
+     * @param observer Observer to remove
+     */
+    public synchronized void unsubscribe(Observer observer) {
+        for (int i = subscriptions.size() - 1; i >= 0; i--) {
+            if (subscriptions.get(i).observer == observer) subscriptions.remove(i);
+        }
+    }
+
+    /**
+     * @param monitorId Monitor identifier
+     * @return The latest result of the monitor, or null if none was published
+     */
+    public synchronized CheckResult latest(long monitorId) {
+        return latest.get(monitorId);
+    }
+
+    /**
+     * Drops the latest results of monitors that are no longer checked.
+     * @param monitorIds Identifiers to keep
+     */
+    public synchronized void retain(Collection<Long> monitorIds) {
+        latest.keySet().retainAll(monitorIds);
+    }
+}
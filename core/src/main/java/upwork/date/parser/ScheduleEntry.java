@@ -0,0 +1,25 @@
+/**
+ * ScheduleEntry is the persistable scheduling state of one monitor: when its
+ * next check is due, the last date seen and the backoff streak. Restoring it
+ * lets a restarted scheduler continue where it stopped instead of checking
+ * every page right away. Instances are immutable.
+ */
+package upwork.date.parser;
+
+public class ScheduleEntry {
+
+    public final long dueAtMillis;
+    public final String lastDate;
+    public final int streak;
+
+    /**
+     * @param dueAtMillis Wall-clock time of the next check in milliseconds since the epoch
+     * @param lastDate    Date seen by the last successful check, or null
+     * @param streak      Number of consecutive unchanged or failed checks
+     */
+    public ScheduleEntry(long dueAtMillis, String lastDate, int streak) {
+        this.dueAtMillis = dueAtMillis;
+        this.lastDate = lastDate;
+        this.streak = streak;
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * SchedulerHealth is a snapshot of how well a {@link MonitorScheduler} keeps
+ * its schedule: how late checks started, how many were missed, how often the
+ * watchdog had to restart a monitor and how many monitors are stalled right
+ * now. Instances are immutable.
+ */
+package upwork.date.parser;
+
+public class SchedulerHealth {
+
+    public final long maxDriftMillis;
+    public final long overdueMillis;
+    public final long missedChecks;
+    public final long restarts;
+    public final int stalledMonitors;
+
+    /**
+     * @param maxDriftMillis  Largest delay between the planned and the actual start of a check
+     * @param overdueMillis   How long the most overdue waiting check is past its due time
+     * @param missedChecks    Whole intervals that passed without a check
+     * @param restarts        Monitors restarted by the watchdog
+     * @param stalledMonitors Monitors currently overdue beyond the grace period or stuck
+     */
+    public SchedulerHealth(long maxDriftMillis, long overdueMillis, long missedChecks,
+                           long restarts, int stalledMonitors) {
+        this.maxDriftMillis = maxDriftMillis;
+        this.overdueMillis = overdueMillis;
+        this.missedChecks = missedChecks;
+        this.restarts = restarts;
+        this.stalledMonitors = stalledMonitors;
+    }
+
+    /**
+     * @return True if at least one monitor is not being checked on time
+     */
+    public boolean isStalled() {
+        return stalledMonitors > 0;
+    }
+}
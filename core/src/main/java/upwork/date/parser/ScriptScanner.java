@@ -0,0 +1,278 @@
+/**
+ * ScriptScanner is an incremental HTML scanner that looks for the first raw-text
+ * element (such as &lt;script&gt;) whose body yields a date for a {@link DateExtractor}.
+ * Characters are pushed in chunks, so the page never has to be held in memory.
+ */
+package upwork.date.parser;
+
+public class ScriptScanner implements PageScanner {
+
+    /**
+     * Upper bound of characters kept for a single script body. Anything past
+     * this limit is dropped, which keeps peak memory bounded for huge inline scripts.
+     */
+    public static final int MAX_SCRIPT_CHARS = 256 * 1024;
+
+    private static final String COMMENT_OPEN = "<!--";
+    private static final String COMMENT_CLOSE = "-->";
+
+    private static final int STATE_TEXT = 0;
+    private static final int STATE_OPEN_TAG = 1;
+    private static final int STATE_TAG_ATTRS = 2;
+    private static final int STATE_BODY = 3;
+    private static final int STATE_COMMENT = 4;
+    private static final int STATE_BANG = 5;
+    private static final int STATE_CLOSE_TAG = 6;
+
+    private final String openTag;
+    private final String closeTag;
+    private final DateExtractor extractor;
+    private final StringBuilder body = new StringBuilder();
+
+    private int state = STATE_TEXT;
+    private int matched;
+    private int commentMatched;
+    private int resultDate = PackedDate.NONE;
+    private String result;
+    private long fingerprint;
+    private boolean unchanged;
+    private boolean hasKnown;
+    private long knownFingerprint;
+    private int knownDate;
+
+    /**
+     * Creates a scanner for the given element name and extractor.
+     * @param tag       Lower-case name of a raw-text element, e.g. "script"
+     * @param extractor Extractor applied to each element body
+     */
+    public ScriptScanner(String tag, DateExtractor extractor) {
+        this.openTag = "<" + tag;
+        this.closeTag = "</" + tag;
+        this.extractor = extractor;
+    }
+
+    /**
+     * Supplies the fingerprint and date of the script seen by the previous check.
+     * When the matched script hashes to the same value the date scan is skipped
+     * and the known date is reused.
+     * @param fingerprint Fingerprint returned by {@link #fingerprint()} last time
+     * @param date        Date extracted from that script
+     */
+    @Override
+    public void setKnown(long fingerprint, String date) {
+        this.hasKnown = true;
+        this.knownFingerprint = fingerprint;
+        this.knownDate = PackedDate.parse(date);
+    }
+
+    /**
+     * Pushes the next chunk of the page into the scanner.
+     * @param buf Character buffer
+     * @param off Offset of the first character
+     * @param len Number of characters
+     * @return True once a date has been found and scanning can stop
+     */
+    @Override
+    public boolean feed(char[] buf, int off, int len) {
+        int end = off + len;
+        for (int i = off; i < end && resultDate == PackedDate.NONE; i++) {
+            accept(buf[i]);
+        }
+        return resultDate != PackedDate.NONE;
+    }
+
+    /**
+     * Returns the date found so far.
+     * @return The date string or null if nothing matched yet
+     */
+    @Override
+    public String result() {
+        if (result == null && resultDate != PackedDate.NONE) {
+            result = PackedDate.format(resultDate);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the date found so far without formatting it.
+     * @return The packed date or {@link PackedDate#NONE}
+     */
+    @Override
+    public int resultDate() {
+        return resultDate;
+    }
+
+    /**
+     * Returns the fingerprint of the script body the result was taken from.
+     * @return 64-bit FNV-1a hash of the script body
+     */
+    @Override
+    public long fingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Tells whether the result was reused from {@link #setKnown(long, String)}.
+     * @return True if the matched script had the known fingerprint
+     */
+    @Override
+    public boolean isUnchanged() {
+        return unchanged;
+    }
+
+    /**
+     * Computes the 64-bit FNV-1a hash of the given characters.
+     * @param text Characters to hash
+     * @return The fingerprint
+     */
+    public static long fingerprint(CharSequence text) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private void accept(char c) {
+        switch (state) {
+            case STATE_TEXT:
+                acceptText(c);
+                break;
+            case STATE_OPEN_TAG:
+                acceptOpenTag(c);
+                break;
+            case STATE_TAG_ATTRS:
+                if (c == '>') {
+                    openScript();
+                }
+                break;
+            case STATE_BANG:
+                acceptBang(c);
+                break;
+            case STATE_BODY:
+                acceptBody(c);
+                break;
+            case STATE_COMMENT:
+                acceptComment(c);
+                break;
+            case STATE_CLOSE_TAG:
+                if (c == '>') {
+                    state = STATE_TEXT;
+                }
+                break;
+        }
+    }
+
+    private void acceptText(char c) {
+        if (c == '<') {
+            state = STATE_OPEN_TAG;
+            matched = 1;
+        }
+    }
+
+    private void acceptOpenTag(char c) {
+        if (matched == openTag.length()) {
+            if (c == '>') {
+                openScript();
+            } else if (c == '/' || Character.isWhitespace(c)) {
+                state = STATE_TAG_ATTRS;
+            } else {
+                state = STATE_TEXT;
+                acceptText(c);
+            }
+        } else if (matched == 1 && c == '!') {
+            state = STATE_BANG;
+            commentMatched = 2;
+        } else if (Character.toLowerCase(c) == openTag.charAt(matched)) {
+            matched++;
+        } else {
+            state = STATE_TEXT;
+            acceptText(c);
+        }
+    }
+
+    private void acceptBang(char c) {
+        if (c == COMMENT_OPEN.charAt(commentMatched)) {
+            commentMatched++;
+            if (commentMatched == COMMENT_OPEN.length()) {
+                state = STATE_COMMENT;
+                commentMatched = 0;
+            }
+        } else {
+            state = STATE_TEXT;
+            acceptText(c);
+        }
+    }
+
+    private void acceptBody(char c) {
+        if (matched == closeTag.length()) {
+            if (c == '>' || c == '/' || Character.isWhitespace(c)) {
+                closeScript();
+                state = c == '>' ? STATE_TEXT : STATE_CLOSE_TAG;
+                return;
+            }
+            append(closeTag, matched);
+            matched = 0;
+        }
+        if (Character.toLowerCase(c) == closeTag.charAt(matched)) {
+            matched++;
+            return;
+        }
+        if (matched > 0) {
+            append(closeTag, matched);
+            matched = 0;
+            if (c == '<') {
+                matched = 1;
+                return;
+            }
+        }
+        if (body.length() < MAX_SCRIPT_CHARS) {
+            body.append(c);
+        }
+    }
+
+    private void acceptComment(char c) {
+        if (c == COMMENT_CLOSE.charAt(commentMatched)) {
+            commentMatched++;
+            if (commentMatched == COMMENT_CLOSE.length()) {
+                state = STATE_TEXT;
+                commentMatched = 0;
+            }
+        } else if (c != '-' || commentMatched < 2) {
+            commentMatched = c == '-' ? 1 : 0;
+        }
+    }
+
+    private void openScript() {
+        state = STATE_BODY;
+        matched = 0;
+        body.setLength(0);
+    }
+
+    private void append(String prefix, int count) {
+        int room = MAX_SCRIPT_CHARS - body.length();
+        if (room > 0) {
+            body.append(prefix, 0, Math.min(count, room));
+        }
+    }
+
+    private void closeScript() {
+        if (extractor.containsMarker(body)) {
+            long hash = fingerprint(body);
+            if (hasKnown && hash == knownFingerprint && knownDate != PackedDate.NONE) {
+                fingerprint = hash;
+                unchanged = true;
+                resultDate = knownDate;
+            } else {
+                int date = extractor.scan(body);
+                if (date != PackedDate.NONE) {
+                    fingerprint = hash;
+                    resultDate = date;
+                }
+            }
+        }
+        body.setLength(0);
+        matched = 0;
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * SharedFetcher is the fetch layer shared by the UI, the service and the
+ * low-power jobs. Concurrent requests for the same page are coalesced into one
+ * network call, and results younger than the configured TTL are served from memory.
+ * Network calls go through a {@link ResilientFetcher}, which bounds each check;
+ * the process-wide instance drives them on the shared {@link NioHttpEngine}.
+ */
+package upwork.date.parser;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+public class SharedFetcher {
+
+    private static final SharedFetcher instance = new SharedFetcher(
+            Constants.RESULT_TTL_MILLIS, NioHttpEngine.getDefault());
+
+    /**
+     * Cache and in-flight key: the page URL and the extraction rule applied to it.
+     */
+    private static class Key {
+        final String url;
+        final DateExtractor.Rule rule;
+
+        Key(String url, DateExtractor.Rule rule) {
+            this.url = url;
+            this.rule = rule;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return url.equals(other.url) && rule.equals(other.rule);
+        }
+
+        @Override
+        public int hashCode() {
+            return url.hashCode() * 31 + rule.hashCode();
+        }
+    }
+
+    /**
+     * Result together with the time it was fetched.
+     */
+    private static class Cached {
+        final DateFetcher.Result result;
+        final long fetchedAt;
+
+        Cached(DateFetcher.Result result, long fetchedAt) {
+            this.result = result;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    private final ConcurrentHashMap<Key, CompletableFuture<DateFetcher.Result>> inFlight =
+            new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Key, Cached> results = new ConcurrentHashMap<>();
+    private final ValidatorCache validatorCache = new ValidatorCache();
+    private final ResilientFetcher resilient;
+    private volatile long ttlMillis;
+
+    /**
+     * @param ttlMillis How long a result is served from memory, 0 to disable
+     */
+    public SharedFetcher(long ttlMillis) {
+        this(ttlMillis, null);
+    }
+
+    /**
+     * @param ttlMillis How long a result is served from memory, 0 to disable
+     * @param engine    Non-blocking engine for network calls, or null to block a thread per call
+     */
+    public SharedFetcher(long ttlMillis, NioHttpEngine engine) {
+        this(ttlMillis, engine, FetchPolicy.defaults());
+    }
+
+    /**
+     * @param ttlMillis How long a result is served from memory, 0 to disable
+     * @param engine    Non-blocking engine for network calls, or null to block a thread per call
+     * @param policy    Timeouts, retries, hedging and circuit breaker settings
+     */
+    public SharedFetcher(long ttlMillis, NioHttpEngine engine, FetchPolicy policy) {
+        this.ttlMillis = ttlMillis;
+        this.resilient = new ResilientFetcher(policy, engine);
+    }
+
+    /**
+     * @return The process-wide instance
+     */
+    public static SharedFetcher getInstance() {
+        return instance;
+    }
+
+    /**
+     * Changes how long results are served from memory.
+     * @param ttlMillis TTL in milliseconds, 0 to disable
+     */
+    public void setTtl(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Closes all circuit breakers, e.g. after the network came back, so the
+     * failures seen while offline do not reject the first checks.
+     */
+    public void resetBreakers() {
+        resilient.resetBreakers();
+    }
+
+    /**
+     * Fetches the date of a page. Blocks the caller; if another caller is already
+     * fetching the same page, waits for that call instead of starting a new one.
+     * @param url       Page URL
+     * @param extractor Extraction engine to apply
+     * @return The fetch result, possibly from memory
+     * @throws IOException If the page cannot be loaded or contains no date, the
+     *                     deadline passed, or the host's circuit breaker is open
+     */
+    public DateFetcher.Result fetch(String url, DateExtractor extractor) throws IOException {
+        Key key = new Key(url, extractor.getRule());
+        Cached cached = results.get(key);
+        if (cached != null && System.currentTimeMillis() - cached.fetchedAt < ttlMillis) {
+            return new DateFetcher.Result(cached.result.date, true);
+        }
+
+        CompletableFuture<DateFetcher.Result> mine = new CompletableFuture<>();
+        CompletableFuture<DateFetcher.Result> leader = inFlight.putIfAbsent(key, mine);
+        if (leader != null) {
+            return await(leader);
+        }
+        try {
+            DateFetcher.Result result = resilient.fetch(url, extractor, validatorCache);
+            results.put(key, new Cached(result, System.currentTimeMillis()));
+            mine.complete(result);
+            return result;
+        } catch (IOException | RuntimeException | Error e) {
+            // Waiting callers must be released whatever the leader threw.
+            results.remove(key);
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Drops the cached results of a page so the next call goes to the network.
+     * @param url Page URL
+     */
+    public void invalidate(String url) {
+        for (Key key : results.keySet()) {
+            if (key.url.equals(url)) results.remove(key);
+        }
+    }
+
+    private static DateFetcher.Result await(CompletableFuture<DateFetcher.Result> future)
+            throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the page", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+/**
+ * SourceType tells how the date is read from a monitored URL: from a script
+ * element of an HTML page, from anywhere in a plain text response, or from one
+ * value of a JSON document addressed by a path.
+ */
+package upwork.date.parser;
+
+public enum SourceType {
+    HTML,
+    TEXT,
+    JSON
+}
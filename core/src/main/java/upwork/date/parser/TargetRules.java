@@ -0,0 +1,212 @@
+/**
+ * TargetRules is the compiled target phrase of a monitor. The phrase lists
+ * rules separated by commas, semicolons or line breaks:
+ * <ul>
+ *     <li>{@code 31.10.2025} or {@code 01.11.2025..05.11.2025}: an expected date
+ *     or range; together they form one rule that fires when the date is none of them</li>
+ *     <li>{@code !31.10.2025} or {@code !01.11.2025..05.11.2025}: fires when the
+ *     date is that date or inside that range</li>
+ *     <li>{@code <01.10.2025}: fires when the date is earlier</li>
+ *     <li>{@code >01.10.2025}: fires when the date is later</li>
+ * </ul>
+ * A single date therefore means what it always did. A phrase that is not made
+ * of such rules is compared as plain text and fires when the text differs.
+ * <p>
+ * The rules are compiled once into the sorted dates at which any rule starts
+ * or stops firing and, for each span between them, the first rule that fires
+ * there, so a date is checked against all rules with one binary search.
+ */
+package upwork.date.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TargetRules {
+
+    /**
+     * Returned by {@link #firedRule(int, String)} when no rule fires.
+     */
+    public static final int NONE = -1;
+
+    private final String phrase;
+    private final String literal;
+    private final String[] descriptions;
+    private final int[] bounds;
+    private final short[] fired;
+
+    private TargetRules(String phrase, String literal, String[] descriptions, int[] bounds, short[] fired) {
+        this.phrase = phrase;
+        this.literal = literal;
+        this.descriptions = descriptions;
+        this.bounds = bounds;
+        this.fired = fired;
+    }
+
+    /**
+     * Compiles a target phrase.
+     * @param phrase Target phrase as entered by the user
+     * @return The compiled rules
+     */
+    public static TargetRules compile(String phrase) {
+        Builder builder = new Builder();
+        for (String item : phrase.split("[,;\\n]")) {
+            item = item.trim();
+            if (!item.isEmpty() && !builder.add(item)) {
+                return literal(phrase);
+            }
+        }
+        if (builder.rules.isEmpty()) {
+            return literal(phrase);
+        }
+        return builder.build(phrase);
+    }
+
+    private static TargetRules literal(String phrase) {
+        return new TargetRules(phrase, phrase, new String[] {"not " + phrase}, new int[0], new short[] {0});
+    }
+
+    /**
+     * Finds the first rule that fires for a date. A value that is not a date
+     * fires the first rule.
+     * @param packedDate Date as {@link PackedDate}, or {@link PackedDate#NONE}
+     * @param date       Date text, compared when the phrase is plain text
+     * @return Index of the fired rule or {@link #NONE}
+     */
+    public int firedRule(int packedDate, String date) {
+        if (literal != null) {
+            return literal.equals(date) ? NONE : 0;
+        }
+        if (packedDate == PackedDate.NONE) {
+            return 0;
+        }
+        int i = Arrays.binarySearch(bounds, packedDate);
+        return fired[i >= 0 ? i + 1 : -i - 1];
+    }
+
+    /**
+     * @param packedDate Date as {@link PackedDate}, or {@link PackedDate#NONE}
+     * @param date       Date text
+     * @return True if no rule fires
+     */
+    public boolean matches(int packedDate, String date) {
+        return firedRule(packedDate, date) == NONE;
+    }
+
+    /**
+     * Describes a rule for display, e.g. "before 01.10.2025".
+     * @param rule Index returned by {@link #firedRule(int, String)}
+     * @return The description, or null for {@link #NONE}
+     */
+    public String describe(int rule) {
+        return rule == NONE ? null : descriptions[rule];
+    }
+
+    /**
+     * @return Number of rules
+     */
+    public int size() {
+        return descriptions.length;
+    }
+
+    @Override
+    public String toString() {
+        return phrase;
+    }
+
+    /**
+     * Collects rules as unions of inclusive date ranges. The expected dates
+     * and ranges share one rule that fires outside of them.
+     */
+    private static class Builder {
+
+        final List<String> rules = new ArrayList<>();
+        final List<Boolean> outside = new ArrayList<>();
+        final List<int[]> ranges = new ArrayList<>();
+        int expected = -1;
+
+        boolean add(String item) {
+            char op = item.charAt(0);
+            String rest = op == '!' || op == '<' || op == '>' ? item.substring(1).trim() : item;
+            int from;
+            int to;
+            int dots = rest.indexOf("..");
+            if (dots >= 0) {
+                if (op == '<' || op == '>') return false;
+                from = PackedDate.parse(rest.substring(0, dots));
+                to = PackedDate.parse(rest.substring(dots + 2));
+                if (from > to) {
+                    int t = from;
+                    from = to;
+                    to = t;
+                }
+            } else {
+                from = PackedDate.parse(rest);
+                to = from;
+            }
+            if (from == PackedDate.NONE) return false;
+            String text = dots >= 0 ? PackedDate.format(from) + ".." + PackedDate.format(to)
+                    : PackedDate.format(from);
+            switch (op) {
+                case '<':
+                    rule("before " + text, false, Integer.MIN_VALUE, from - 1);
+                    break;
+                case '>':
+                    rule("after " + text, false, to + 1, Integer.MAX_VALUE);
+                    break;
+                case '!':
+                    rule((dots >= 0 ? "in " : "is ") + text, false, from, to);
+                    break;
+                default:
+                    if (expected < 0) {
+                        expected = rule("not " + text, true, from, to);
+                    } else {
+                        rules.set(expected, rules.get(expected) + ", " + text);
+                        ranges.add(new int[] {expected, from, to});
+                    }
+                    break;
+            }
+            return true;
+        }
+
+        private int rule(String description, boolean fireOutside, int from, int to) {
+            rules.add(description);
+            outside.add(fireOutside);
+            ranges.add(new int[] {rules.size() - 1, from, to});
+            return rules.size() - 1;
+        }
+
+        TargetRules build(String phrase) {
+            int[] all = new int[ranges.size() * 2];
+            int n = 0;
+            for (int[] range : ranges) {
+                all[n++] = range[1];
+                if (range[2] != Integer.MAX_VALUE) all[n++] = range[2] + 1;
+            }
+            Arrays.sort(all, 0, n);
+            int unique = 0;
+            for (int i = 0; i < n; i++) {
+                if (unique == 0 || all[unique - 1] != all[i]) all[unique++] = all[i];
+            }
+            int[] bounds = Arrays.copyOf(all, unique);
+            short[] fired = new short[unique + 1];
+            boolean[] inside = new boolean[rules.size()];
+            for (int span = 0; span <= unique; span++) {
+                // Every rule holds the same value over a whole span, so its first date decides.
+                int date = span == 0 ? Integer.MIN_VALUE : bounds[span - 1];
+                Arrays.fill(inside, false);
+                for (int[] range : ranges) {
+                    if (date >= range[1] && date <= range[2]) inside[range[0]] = true;
+                }
+                fired[span] = NONE;
+                for (int rule = 0; rule < inside.length; rule++) {
+                    if (inside[rule] != outside.get(rule)) {
+                        fired[span] = (short) rule;
+                        break;
+                    }
+                }
+            }
+            return new TargetRules(phrase, null, rules.toArray(new String[0]), bounds, fired);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * TextScanner reads a plain text response and takes the first valid date, or
+ * the first one after the marker if the rule has one. Only a short tail of
+ * the previous chunk is kept, so dates split across chunks are still found
+ * while memory stays constant.
+ */
+package upwork.date.parser;
+
+public class TextScanner implements PageScanner {
+
+    /**
+     * Characters carried over between chunks, longer than any date.
+     */
+    private static final int CARRY = 16;
+
+    private final String marker;
+    private final StringBuilder window = new StringBuilder();
+    private boolean markerSeen;
+    private int start;
+    private int resultDate = PackedDate.NONE;
+    private String result;
+
+    /**
+     * @param marker Text that must precede the date, or empty for none
+     */
+    public TextScanner(String marker) {
+        this.marker = marker;
+        this.markerSeen = marker.isEmpty();
+    }
+
+    @Override
+    public boolean feed(char[] buf, int off, int len) {
+        if (resultDate != PackedDate.NONE) {
+            return true;
+        }
+        window.append(buf, off, len);
+        if (!markerSeen) {
+            int at = window.indexOf(marker);
+            if (at < 0) {
+                keep(marker.length() - 1);
+                return false;
+            }
+            markerSeen = true;
+            start = at + marker.length();
+        }
+        resultDate = DateScanner.find(window, start, window.length(), DateScanner.ANY);
+        if (resultDate != PackedDate.NONE) {
+            return true;
+        }
+        keep(CARRY);
+        return false;
+    }
+
+    @Override
+    public String result() {
+        if (result == null && resultDate != PackedDate.NONE) {
+            result = PackedDate.format(resultDate);
+        }
+        return result;
+    }
+
+    @Override
+    public int resultDate() {
+        return resultDate;
+    }
+
+    @Override
+    public long fingerprint() {
+        return 0L;
+    }
+
+    @Override
+    public boolean isUnchanged() {
+        return false;
+    }
+
+    @Override
+    public void setKnown(long fingerprint, String date) {
+        // plain text responses are small; the date is always scanned
+    }
+
+    /**
+     * Trims the window to its last characters. The scan start moves with the
+     * text, so text before the marker is never scanned again.
+     * @param count Number of characters to keep
+     */
+    private void keep(int count) {
+        int trimmed = window.length() - count;
+        if (trimmed > 0) {
+            window.delete(0, trimmed);
+            start = Math.max(0, start - trimmed);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * ValidatorCache remembers, per URL and extraction rule, the HTTP validators
+ * (ETag / Last-Modified) and the fingerprint of the matched content returned
+ * by the last successful check, together with the date extracted from it.
+ * Monitors that read the same page with different rules keep separate entries,
+ * so a 304 answer never returns another rule's date.
+ */
+package upwork.date.parser;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ValidatorCache {
+
+    /**
+     * Cache key: the page URL and the extraction rule applied to it.
+     */
+    private static class Key {
+        final String url;
+        final DateExtractor.Rule rule;
+
+        Key(String url, DateExtractor.Rule rule) {
+            this.url = url;
+            this.rule = rule;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return url.equals(other.url) && rule.equals(other.rule);
+        }
+
+        @Override
+        public int hashCode() {
+            return url.hashCode() * 31 + rule.hashCode();
+        }
+    }
+
+    /**
+     * Immutable validator state recorded for one URL and rule.
+     */
+    public static class Entry {
+
+        public final String etag;
+        public final String lastModified;
+        public final long scriptHash;
+        public final String date;
+
+        /**
+         * @param etag         ETag response header or null
+         * @param lastModified Last-Modified response header or null
+         * @param scriptHash   Fingerprint of the matched script body
+         * @param date         Date extracted from that script
+         */
+        public Entry(String etag, String lastModified, long scriptHash, String date) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.scriptHash = scriptHash;
+            this.date = date;
+        }
+
+        /**
+         * @return True if the server supplied any validator for conditional requests
+         */
+        public boolean hasValidators() {
+            return etag != null || lastModified != null;
+        }
+    }
+
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the cached entry for the URL and rule.
+     * @param url  Page URL
+     * @param rule Extraction rule applied to the page
+     * @return The entry or null if the page has not been checked with the rule yet
+     */
+    public Entry get(String url, DateExtractor.Rule rule) {
+        return entries.get(new Key(url, rule));
+    }
+
+    /**
+     * Stores the entry for the URL and rule, replacing any previous one.
+     * @param url   Page URL
+     * @param rule  Extraction rule applied to the page
+     * @param entry Validator state to remember
+     */
+    public void put(String url, DateExtractor.Rule rule, Entry entry) {
+        entries.put(new Key(url, rule), entry);
+    }
+
+    /**
+     * Forgets the entry for the URL and rule.
+     * @param url  Page URL
+     * @param rule Extraction rule applied to the page
+     */
+    public void remove(String url, DateExtractor.Rule rule) {
+        entries.remove(new Key(url, rule));
+    }
+}
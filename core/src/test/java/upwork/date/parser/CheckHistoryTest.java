@@ -0,0 +1,103 @@
+package upwork.date.parser;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs {@link CheckHistory} over a temporary file: wraparound of the ring
+ * and reopening an existing file as a new process would.
+ */
+public class CheckHistoryTest {
+
+    private static final int FIRST = PackedDate.parse("31.10.2025");
+    private static final int SECOND = PackedDate.parse("07.11.2025");
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("history", ".bin");
+        assertTrue(file.delete());
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void overwritesTheOldestRecordsWhenFull() throws IOException {
+        CheckHistory history = CheckHistory.map(file, 4);
+        for (int i = 1; i <= 6; i++) {
+            history.append(i * 1000L, 0, CheckHistory.STATUS_MATCH, false, i, 100, i % 3 == 0 ? SECOND : FIRST);
+        }
+        assertEquals(4, history.size());
+
+        List<CheckHistory.Record> last = history.last(10);
+        assertEquals(4, last.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals((6 - i) * 1000L, last.get(i).timestamp);
+            assertEquals(6 - i, last.get(i).latencyMillis);
+        }
+
+        // Changes at 1, 3, 4 and 6; the one at 1 was overwritten.
+        List<CheckHistory.Record> changes = history.changes(0L, Long.MAX_VALUE);
+        assertEquals(3, changes.size());
+        assertEquals(3000L, changes.get(0).timestamp);
+        assertEquals(SECOND, changes.get(0).date);
+        assertEquals(4000L, changes.get(1).timestamp);
+        assertEquals(FIRST, changes.get(1).date);
+        assertEquals(6000L, changes.get(2).timestamp);
+
+        assertEquals(1, history.changes(4000L, 6000L).size());
+    }
+
+    @Test
+    public void reopensAnExistingFile() throws IOException {
+        CheckHistory history = CheckHistory.map(file, 4);
+        history.append(1000L, 0, CheckHistory.STATUS_MATCH, false, 10, 100, FIRST);
+        history.append(2000L, 1, CheckHistory.STATUS_MISMATCH, true, 20, 200, SECOND);
+        history.append(3000L, 0, CheckHistory.STATUS_ERROR, false, 0, 0, PackedDate.NONE);
+        history.flush();
+
+        CheckHistory reopened = CheckHistory.map(file, 4);
+        assertEquals(3, reopened.size());
+        CheckHistory.Record record = reopened.last(2).get(1);
+        assertEquals(2000L, record.timestamp);
+        assertEquals(1, record.urlId);
+        assertEquals(CheckHistory.STATUS_MISMATCH, record.status);
+        assertTrue((record.flags & CheckHistory.FLAG_CACHED) != 0);
+        assertEquals(SECOND, record.date);
+
+        // The last dates per page are restored, so only a real change is flagged.
+        reopened.append(4000L, 0, CheckHistory.STATUS_MATCH, false, 10, 100, FIRST);
+        reopened.append(5000L, 1, CheckHistory.STATUS_MATCH, false, 10, 100, FIRST);
+        List<CheckHistory.Record> last = reopened.last(2);
+        assertTrue(last.get(0).isChange());
+        assertFalse(last.get(1).isChange());
+
+        // Writing continues the ring where the previous process stopped.
+        reopened.append(6000L, 0, CheckHistory.STATUS_MATCH, false, 10, 100, FIRST);
+        assertEquals(4, reopened.size());
+        assertEquals(3000L, reopened.last(4).get(3).timestamp);
+    }
+
+    @Test
+    public void resetsAFileOfAnotherCapacity() throws IOException {
+        CheckHistory history = CheckHistory.map(file, 4);
+        history.append(1000L, 0, CheckHistory.STATUS_MATCH, false, 10, 100, FIRST);
+        history.flush();
+
+        CheckHistory resized = CheckHistory.map(file, 8);
+        assertEquals(0, resized.size());
+        resized.append(2000L, 0, CheckHistory.STATUS_MATCH, false, 10, 100, FIRST);
+        assertTrue(resized.last(1).get(0).isChange());
+    }
+}
@@ -0,0 +1,124 @@
+package upwork.date.parser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Table tests for {@link DateScanner}. Every case is searched both as a
+ * CharSequence and as a char buffer, which must agree.
+ */
+public class DateScannerTest {
+
+    /** Text and the first date expected in it, null when there is none. */
+    private static final String[][] FIND = {
+            {"31.10.2025", "31.10.2025"},
+            {"31/10/2025", "31.10.2025"},
+            {"2025-10-31", "31.10.2025"},
+            {"until 01.11.2025.", "01.11.2025"},
+            {"<b>2025-11-01</b>", "01.11.2025"},
+            // leap days
+            {"29.02.2024", "29.02.2024"},
+            {"29.02.2000", "29.02.2000"},
+            {"29.02.2025", null},
+            {"29.02.1900", null},
+            {"2024-02-29", "29.02.2024"},
+            {"2023-02-29", null},
+            // impossible dates
+            {"31.04.2025", null},
+            {"00.10.2025", null},
+            {"32.01.2025", null},
+            {"15.13.2025", null},
+            {"15.00.2025", null},
+            {"01.01.0999", null},
+            {"2025-10-32", null},
+            // mixed or missing separators
+            {"31.10/2025", null},
+            {"31-10-2025", null},
+            {"2025/10/31", null},
+            {"31102025", null},
+            {"31.10.25", null},
+            // digits right next to the date
+            {"131.10.2025", null},
+            {"31.10.20251", null},
+            {"12025-10-31", null},
+            {"2025-10-310", null},
+            {"a31.10.2025b", "31.10.2025"},
+            // the first valid date wins
+            {"31.02.2025 or 01.03.2025", "01.03.2025"},
+            {"x 2025-01-15 y 16.01.2025", "15.01.2025"},
+            {"", null},
+            {"no date here", null},
+    };
+
+    @Test
+    public void findsTheFirstValidDate() {
+        for (String[] row : FIND) {
+            int expected = row[1] != null ? PackedDate.parse(row[1]) : PackedDate.NONE;
+            String text = row[0];
+            assertEquals(text, expected, DateScanner.find(text));
+            char[] buf = ("##" + text + "##").toCharArray();
+            assertEquals(text, expected, DateScanner.find(buf, 2, 2 + text.length(), DateScanner.ANY));
+        }
+    }
+
+    @Test
+    public void findsTheDateAfterThePrefix() {
+        String range = "var range = '01.10.2025 -  31.10.2025';";
+        int upper = PackedDate.of(2025, 10, 31);
+        assertEquals(upper, DateScanner.find(range, 0, range.length(), '-'));
+        assertEquals(upper, DateScanner.find(range.toCharArray(), 0, range.length(), '-'));
+
+        String iso = "from 2025-10-01 - 2025-10-31";
+        assertEquals(upper, DateScanner.find(iso, 0, iso.length(), '-'));
+        assertEquals(upper, DateScanner.find(iso.toCharArray(), 0, iso.length(), '-'));
+
+        String none = "range: 01.10.2025";
+        assertEquals(PackedDate.NONE, DateScanner.find(none, 0, none.length(), '-'));
+        assertEquals(PackedDate.NONE, DateScanner.find(none.toCharArray(), 0, none.length(), '-'));
+    }
+
+    @Test
+    public void stopsAtTheEndOfTheRange() {
+        String text = "31.10.2025";
+        char[] buf = text.toCharArray();
+        assertEquals(PackedDate.NONE, DateScanner.find(text, 0, 9, DateScanner.ANY));
+        assertEquals(PackedDate.NONE, DateScanner.find(buf, 0, 9, DateScanner.ANY));
+        // A digit beyond the range does not count as adjacent.
+        String longer = "31.10.20251";
+        assertEquals(PackedDate.of(2025, 10, 31), DateScanner.find(longer, 0, 10, DateScanner.ANY));
+        assertEquals(PackedDate.of(2025, 10, 31),
+                DateScanner.find(longer.toCharArray(), 0, 10, DateScanner.ANY));
+    }
+
+    @Test
+    public void parsesOnlyAWholeDate() {
+        assertEquals(PackedDate.of(2025, 10, 31), DateScanner.parse(" 31.10.2025\n"));
+        assertEquals(PackedDate.of(2025, 10, 31), DateScanner.parse("2025-10-31"));
+        assertEquals(PackedDate.NONE, DateScanner.parse("on 31.10.2025"));
+        assertEquals(PackedDate.NONE, DateScanner.parse("31.10.2025 x"));
+        assertEquals(PackedDate.NONE, DateScanner.parse(null));
+    }
+
+    @Test
+    public void parsesTheDateOfATimestamp() {
+        int date = PackedDate.of(2025, 10, 31);
+        assertEquals(date, DateScanner.parseTimestamp("2025-10-31T00:00:00Z"));
+        assertEquals(date, DateScanner.parseTimestamp(" 2025-10-31T23:59:59.999+02:00 "));
+        assertEquals(date, DateScanner.parseTimestamp("2025-10-31"));
+        assertEquals(date, DateScanner.parseTimestamp("31.10.2025"));
+        assertEquals(PackedDate.NONE, DateScanner.parseTimestamp("2025-10-31 00:00"));
+        assertEquals(PackedDate.NONE, DateScanner.parseTimestamp("31.10.2025T00:00"));
+        assertEquals(PackedDate.NONE, DateScanner.parseTimestamp("2025-02-30T00:00:00Z"));
+        assertEquals(PackedDate.NONE, DateScanner.parseTimestamp(null));
+    }
+
+    @Test
+    public void validatesCalendarDates() {
+        assertTrue(DateScanner.isValid(2024, 2, 29));
+        assertFalse(DateScanner.isValid(2100, 2, 29));
+        assertTrue(DateScanner.isValid(2025, 12, 31));
+        assertFalse(DateScanner.isValid(2025, 11, 31));
+        assertFalse(DateScanner.isValid(2025, 1, 0));
+    }
+}
@@ -0,0 +1,189 @@
+package upwork.date.parser;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for monitored pages that injects faults. Each monitor has its
+ * own page at /m/{id} serving the date set with {@link #setDate(long, String)};
+ * every request draws one of the faults from {@link Fault} by its rate.
+ * ETag and If-None-Match are supported so the not-modified path is exercised.
+ */
+class FaultyServer {
+
+    /**
+     * Faults drawn for each request.
+     */
+    enum Fault {
+        /** Normal page. */
+        NONE,
+        /** Normal page after an extra delay below the read timeout. */
+        LATENCY,
+        /** No response until the read timeout has passed. */
+        TIMEOUT,
+        /** Status 503 without a body. */
+        SERVER_ERROR,
+        /** Several megabytes of scripts before the dated one. */
+        HUGE_BODY
+    }
+
+    private static final String FILLER = "<script>var filler = '"
+            + new String(new char[1000]).replace('\0', 'x') + "';</script>\n";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Map<Long, String> dates = new ConcurrentHashMap<>();
+    private final Map<Fault, AtomicLong> served = new ConcurrentHashMap<>();
+    private final Random random;
+    private final double[] rates;
+    private final int latencyMillis;
+    private final int timeoutMillis;
+    private final int hugeBytes;
+
+    /**
+     * @param seed          Seed of the fault draws
+     * @param rates         Rate of each non-NONE fault in {@link Fault} order
+     * @param latencyMillis Delay of a LATENCY response
+     * @param timeoutMillis Delay of a TIMEOUT response, above the client read timeout
+     * @param hugeBytes     Size of a HUGE_BODY page
+     */
+    FaultyServer(long seed, double[] rates, int latencyMillis, int timeoutMillis, int hugeBytes)
+            throws IOException {
+        this.random = new Random(seed);
+        this.rates = rates.clone();
+        this.latencyMillis = latencyMillis;
+        this.timeoutMillis = timeoutMillis;
+        this.hugeBytes = hugeBytes;
+        for (Fault fault : Fault.values()) {
+            served.put(fault, new AtomicLong());
+        }
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/m/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * @param id Monitor identifier
+     * @return URL of the monitor's page
+     */
+    String url(long id) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/m/" + id;
+    }
+
+    /**
+     * Changes the date served for a monitor.
+     * @param id   Monitor identifier
+     * @param date Date in format DD.MM.YYYY
+     */
+    void setDate(long id, String date) {
+        dates.put(id, date);
+    }
+
+    /**
+     * @param id Monitor identifier
+     * @return Date currently served for the monitor
+     */
+    String getDate(long id) {
+        return dates.get(id);
+    }
+
+    /**
+     * @return Number of responses per fault
+     */
+    Map<Fault, AtomicLong> served() {
+        return served;
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            long id = Long.parseLong(path.substring(path.lastIndexOf('/') + 1));
+            String date = dates.get(id);
+            Fault fault = draw();
+            served.get(fault).incrementAndGet();
+            switch (fault) {
+                case LATENCY:
+                    sleep(latencyMillis);
+                    break;
+                case TIMEOUT:
+                    sleep(timeoutMillis);
+                    break;
+                case SERVER_ERROR:
+                    exchange.sendResponseHeaders(503, -1);
+                    return;
+                default:
+                    break;
+            }
+            boolean huge = fault == Fault.HUGE_BODY;
+            String etag = "\"" + date + (huge ? "-h" : "") + "\"";
+            exchange.getResponseHeaders().set("ETag", etag);
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            byte[] body = page(date, huge).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (IOException e) {
+            // the client gave up, e.g. after its read timeout
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Fault draw() {
+        double r;
+        synchronized (random) {
+            r = random.nextDouble();
+        }
+        Fault[] faults = Fault.values();
+        for (int i = 0; i < rates.length && i + 1 < faults.length; i++) {
+            r -= rates[i];
+            if (r < 0) return faults[i + 1];
+        }
+        return Fault.NONE;
+    }
+
+    private String page(String date, boolean huge) {
+        StringBuilder html = new StringBuilder(huge ? hugeBytes + 512 : 512);
+        html.append("<html><head><title>Stand-in</title></head><body>\n");
+        if (huge) {
+            while (html.length() < hugeBytes) {
+                html.append(FILLER);
+            }
+        }
+        html.append("<script>var minmax = '#minmax'; var range = '01.01.2025 - ")
+                .append(date)
+                .append("';</script>\n</body></html>\n");
+        return html.toString();
+    }
+
+    private static void sleep(int millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
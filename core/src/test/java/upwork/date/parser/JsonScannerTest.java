@@ -0,0 +1,104 @@
+package upwork.date.parser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Table tests for {@link JsonScanner}. Every document is fed at once and one
+ * character at a time, which must agree.
+ */
+public class JsonScannerTest {
+
+    /** Path, document and the date expected at the path, null when there is none. */
+    private static final String[][] CASES = {
+            // object paths
+            {"end", "{\"end\": \"31.10.2025\"}", "31.10.2025"},
+            {"$.data.end", "{\"data\": {\"start\": \"01.10.2025\", \"end\": \"2025-10-31\"}}", "31.10.2025"},
+            {"data.end", "{\"data\":{\"end\":\"2025-10-31T00:00:00Z\"}}", "31.10.2025"},
+            {"data.end", "{\"data\": {\"start\": \"01.10.2025\"}}", null},
+            {"data.end", "{\"end\": \"31.10.2025\", \"data\": {}}", null},
+            // array indexes
+            {"items[1].date", "{\"items\": [{\"date\": \"01.10.2025\"}, {\"date\": \"31.10.2025\"}]}", "31.10.2025"},
+            {"items[2].date", "{\"items\": [{\"date\": \"01.10.2025\"}, {\"date\": \"31.10.2025\"}]}", null},
+            {"[0][1]", "[[\"01.10.2025\", \"31.10.2025\"], [\"07.11.2025\"]]", "31.10.2025"},
+            {"$[1]", "[[], \"31.10.2025\"]", "31.10.2025"},
+            {"items[1]", "{\"items\": [[1, [2]], \"31.10.2025\"]}", "31.10.2025"},
+            // the same key on other levels is not the path
+            {"data.end", "{\"end\": \"01.10.2025\", \"data\": {\"x\": {\"end\": \"02.10.2025\"}, "
+                    + "\"end\": \"31.10.2025\"}}", "31.10.2025"},
+            {"data.end", "{\"other\": {\"data\": {\"end\": \"01.10.2025\"}}, \"data\": {\"end\": \"31.10.2025\"}}",
+                    "31.10.2025"},
+            {"a.a", "{\"a\": {\"b\": {\"a\": \"01.10.2025\"}, \"a\": \"31.10.2025\"}}", "31.10.2025"},
+            {"end", "{\"ending\": \"01.10.2025\", \"en\": \"02.10.2025\", \"end\": \"31.10.2025\"}", "31.10.2025"},
+            // escapes in keys and values
+            {"end", "{\"note\": \"say \\\"end\\\": 01.10.2025\", \"end\": \"31.10.2025\"}", "31.10.2025"},
+            {"end", "{\"\\u0065nd\": \"31.10.2025\"}", "31.10.2025"},
+            {"end", "{\"end\": \"31\\u002e10\\u002E2025\"}", "31.10.2025"},
+            {"end", "{\"end\": \"\\u00331.10.2025\"}", "31.10.2025"},
+            {"end", "{\"end\\n\": \"01.10.2025\", \"end\": \"31.10.2025\"}", "31.10.2025"},
+            {"a\\b", "{\"a\\\\b\": \"31.10.2025\"}", "31.10.2025"},
+            {"end", "{\"e\\/nd\": \"01.10.2025\", \"e/nd\": \"02.10.2025\", \"end\": \"31.10.2025\"}",
+                    "31.10.2025"},
+            // values that are not dates
+            {"end", "{\"end\": 20251031}", null},
+            {"end", "{\"end\": \"31.10.2025 12:00\"}", null},
+            {"end", "{\"end\": null, \"next\": \"31.10.2025\"}", null},
+            {"end", "{\"end\": {\"date\": \"31.10.2025\"}}", null},
+            // malformed documents end the scan without an error
+            {"a", "5 },\"a\":\"31.10.2025\"", null},
+            {"a", "\"x\"] {\"a\": \"31.10.2025\"}", null},
+            {"a", "] {\"a\": \"31.10.2025\"}", null},
+            {"a", "{\"b\": 1]} {\"a\": \"31.10.2025\"}", null},
+            {"a", "{\"b\": [1}] , \"a\": \"31.10.2025\"}", null},
+            {"a", "{\"b\": \"\\uzzzz\", \"a\": \"31.10.2025\"}", null},
+            {"a", "{\"a\": \"31.10.2025\"}}}]]", "31.10.2025"},
+            {"a.b", "{\"a\": {\"b\": \"31.10", null},
+            {"a", "", null},
+    };
+
+    @Test
+    public void findsTheValueAtThePath() {
+        for (String[] row : CASES) {
+            String message = row[0] + " in " + row[1];
+            JsonScanner.Path path = JsonScanner.Path.compile(row[0]);
+            char[] json = row[1].toCharArray();
+
+            JsonScanner whole = new JsonScanner(path);
+            assertEquals(message, row[2] != null, whole.feed(json, 0, json.length));
+            assertEquals(message, row[2], whole.result());
+
+            JsonScanner split = new JsonScanner(path);
+            for (int i = 0; i < json.length && !split.feed(json, i, 1); i++) {
+                // one character per chunk
+            }
+            assertEquals(message, row[2], split.result());
+        }
+    }
+
+    @Test
+    public void compilesPaths() {
+        JsonScanner.Path path = JsonScanner.Path.compile("$.data.items[3].date");
+        assertEquals(4, path.length());
+        assertEquals("data", path.names[0]);
+        assertNull(path.names[2]);
+        assertEquals(3, path.indexes[2]);
+        assertEquals(2, JsonScanner.Path.compile("[0][1]").length());
+        // A malformed bracket is read as a key.
+        assertEquals("[x]", JsonScanner.Path.compile("a[x]").names[1]);
+    }
+
+    @Test
+    public void scansAgainAfterReset() {
+        JsonScanner scanner = new JsonScanner(JsonScanner.Path.compile("end"));
+        char[] first = "{\"end\": \"31.10.2025\"}".toCharArray();
+        assertTrue(scanner.feed(first, 0, first.length));
+        scanner.reset();
+        char[] broken = "5 ]".toCharArray();
+        assertFalse(scanner.feed(broken, 0, broken.length));
+        scanner.reset();
+        char[] second = "{\"end\": \"07.11.2025\"}".toCharArray();
+        assertTrue(scanner.feed(second, 0, second.length));
+        assertEquals("07.11.2025", scanner.result());
+    }
+}
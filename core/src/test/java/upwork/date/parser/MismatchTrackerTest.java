@@ -0,0 +1,86 @@
+package upwork.date.parser;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that a page change first seen by another caller of the shared
+ * fetcher still rings the alarm, although the monitor's own check gets the
+ * new date back as unchanged.
+ */
+public class MismatchTrackerTest {
+
+    private static final String TARGET = "31.10.2025";
+    private static final String OTHER = "07.11.2025";
+
+    private FaultyServer server;
+    private Monitor monitor;
+    private final MismatchTracker tracker = new MismatchTracker();
+    private final AlarmStateMachine alarm = new AlarmStateMachine();
+
+    @Before
+    public void setUp() throws IOException {
+        server = new FaultyServer(1L, new double[] {0, 0, 0, 0}, 0, 0, 0);
+        server.setDate(Monitor.PRIMARY_ID, TARGET);
+        monitor = new Monitor(Monitor.PRIMARY_ID, server.url(Monitor.PRIMARY_ID), TARGET, 1);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void ringsWhenAnotherCallerSawTheChangeWithinTheTtl() throws IOException {
+        SharedFetcher fetcher = new SharedFetcher(60_000L);
+        assertFalse(check(fetcher).unchanged);
+        assertEquals(AlarmStateMachine.State.IDLE, alarm.getState());
+
+        server.setDate(Monitor.PRIMARY_ID, OTHER);
+        fetcher.invalidate(monitor.url);
+        assertEquals(OTHER, fetcher.fetch(monitor.url, DateExtractor.getDefault()).date);
+
+        DateFetcher.Result result = check(fetcher);
+        assertTrue(result.unchanged);
+        assertEquals(OTHER, result.date);
+        assertEquals(AlarmStateMachine.State.RINGING, alarm.getState());
+        assertEquals("not " + TARGET, tracker.firedRule());
+    }
+
+    @Test
+    public void ringsWhenAnotherCallerSawTheChangeBeforeANotModifiedReply() throws IOException {
+        SharedFetcher fetcher = new SharedFetcher(0L);
+        check(fetcher);
+        assertEquals(AlarmStateMachine.State.IDLE, alarm.getState());
+
+        server.setDate(Monitor.PRIMARY_ID, OTHER);
+        assertEquals(OTHER, fetcher.fetch(monitor.url, DateExtractor.getDefault()).date);
+
+        DateFetcher.Result result = check(fetcher);
+        assertTrue(result.unchanged);
+        assertEquals(AlarmStateMachine.State.RINGING, alarm.getState());
+
+        server.setDate(Monitor.PRIMARY_ID, TARGET);
+        check(fetcher);
+        assertTrue(tracker.isEmpty());
+        assertEquals(AlarmStateMachine.State.IDLE, alarm.getState());
+    }
+
+    /**
+     * Checks the monitor the way the monitoring service does.
+     */
+    private DateFetcher.Result check(SharedFetcher fetcher) throws IOException {
+        DateFetcher.Result result = fetcher.fetch(monitor.url, DateExtractor.getDefault());
+        if (tracker.record(monitor.id, monitor.firedRule(result))) {
+            alarm.ring();
+        } else {
+            alarm.reset();
+        }
+        return result;
+    }
+}
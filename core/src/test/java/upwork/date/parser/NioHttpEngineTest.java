@@ -0,0 +1,292 @@
+package upwork.date.parser;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs {@link NioHttpEngine} against a local server that writes scripted
+ * responses in pieces, so headers, gzip headers and chunk lines arrive split
+ * across reads. Covers gzip header flags, chunk extensions and trailers, the
+ * response size cap and connection reuse.
+ */
+public class NioHttpEngineTest {
+
+    private static final String DATE = "31.10.2025";
+    private static final String PAGE = "<html><body><script>var minmax = '#minmax'; "
+            + "var range = '01.01.2025 - " + DATE + "';</script></body></html>";
+    private static final int CAP = 1024;
+
+    private ServerSocket server;
+    private NioHttpEngine engine;
+    private final BlockingQueue<Reply> replies = new LinkedBlockingQueue<>();
+    private final AtomicInteger accepted = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        Thread acceptor = new Thread(() -> {
+            while (!server.isClosed()) {
+                try {
+                    final Socket socket = server.accept();
+                    accepted.incrementAndGet();
+                    Thread t = new Thread(() -> serve(socket));
+                    t.setDaemon(true);
+                    t.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+        engine = new NioHttpEngine(CAP, 2, Constants.KEEP_ALIVE_MILLIS);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+        engine.close();
+    }
+
+    @Test
+    public void skipsAGzipHeaderSplitAcrossReads() throws Exception {
+        byte[] gzip = gzip(ascii(PAGE), ascii("page.html"));
+        Reply reply = new Reply(false);
+        reply.add(ascii("HTTP/1.1 200 OK\r\nContent-Type: text/html\r\nContent-Encoding: gzip"
+                + "\r\nContent-Length: " + gzip.length + "\r\n\r\n"));
+        // Every header byte in its own read, up to the first compressed byte.
+        int header = 10 + 2 + 3 + "page.html".length() + 1 + 2;
+        for (int i = 0; i < header; i++) {
+            reply.add(new byte[]{gzip[i]});
+        }
+        reply.add(slice(gzip, header, gzip.length));
+        replies.add(reply);
+        assertEquals(DATE, fetch().date);
+    }
+
+    @Test
+    public void readsChunksWithExtensionsAndTrailers() throws Exception {
+        // The date is split between two chunks, and the chunk lines between reads.
+        int cut = PAGE.indexOf(DATE) + 4;
+        Reply reply = new Reply(false);
+        reply.add(ascii("HTTP/1.1 200 OK\r\nContent-Type: text/html\r\nTransfer-Encoding: chunked\r\n\r\n"));
+        reply.add(ascii(Integer.toHexString(cut) + ";ext=1\r"));
+        reply.add(ascii("\n" + PAGE.substring(0, cut) + "\r\n"));
+        reply.add(ascii(Integer.toHexString(PAGE.length() - cut) + " ; name=\"value\"\r\n"));
+        reply.add(ascii(PAGE.substring(cut) + "\r\n0;last\r\nX-Checksum: 1\r\n"));
+        reply.add(ascii("\r\n"));
+        replies.add(reply);
+        assertEquals(DATE, fetch().date);
+    }
+
+    @Test
+    public void reusesTheConnectionAfterTrailers() throws Exception {
+        String noDate = "<html><body>nothing yet</body></html>";
+        Reply first = new Reply(false);
+        first.add(ascii("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + Integer.toHexString(noDate.length()) + ";ext=1\r\n" + noDate + "\r\n"
+                + "0\r\nX-Checksum: 1\r\nX-Other: 2\r\n\r\n"));
+        replies.add(first);
+        replies.add(plain(PAGE, false));
+
+        assertNull(fetch());
+        assertEquals(DATE, fetch().date);
+        assertEquals(1, accepted.get());
+    }
+
+    @Test
+    public void opensANewConnectionAfterConnectionClose() throws Exception {
+        replies.add(plain(PAGE, true));
+        replies.add(plain(PAGE, false));
+        replies.add(plain(PAGE, false));
+
+        assertEquals(DATE, fetch().date);
+        assertEquals(DATE, fetch().date);
+        assertEquals(2, accepted.get());
+        // Without Connection: close the second connection is kept for the third fetch.
+        assertEquals(DATE, fetch().date);
+        assertEquals(2, accepted.get());
+    }
+
+    @Test
+    public void rejectsAContentLengthOverTheCap() throws Exception {
+        Reply reply = new Reply(true);
+        reply.add(ascii("HTTP/1.1 200 OK\r\nContent-Length: " + (CAP + 1) + "\r\n\r\n"));
+        replies.add(reply);
+        assertExceeds("Response exceeds " + CAP);
+    }
+
+    @Test
+    public void rejectsAChunkedBodyOverTheCap() throws Exception {
+        byte[] filler = new byte[CAP / 2];
+        Arrays.fill(filler, (byte) 'x');
+        Reply reply = new Reply(true);
+        reply.add(ascii("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n"));
+        for (int i = 0; i < 3; i++) {
+            reply.add(ascii(Integer.toHexString(filler.length) + "\r\n"));
+            reply.add(filler);
+            reply.add(ascii("\r\n"));
+        }
+        reply.add(ascii("0\r\n\r\n"));
+        replies.add(reply);
+        assertExceeds("Response exceeds " + CAP);
+    }
+
+    @Test
+    public void rejectsADecodedBodyOverTheCap() throws Exception {
+        // A few hundred compressed bytes that inflate far beyond the cap.
+        byte[] bomb = gzip(new byte[CAP * 16], null);
+        assertTrue(bomb.length < CAP);
+        Reply reply = new Reply(true);
+        reply.add(ascii("HTTP/1.1 200 OK\r\nContent-Encoding: gzip\r\nContent-Length: " + bomb.length
+                + "\r\n\r\n"));
+        reply.add(bomb);
+        replies.add(reply);
+        assertExceeds("Decoded response exceeds " + CAP);
+    }
+
+    private DateFetcher.Result fetch() throws Exception {
+        return engine.fetch(url(), DateExtractor.getDefault(), null, 1_000, 1_000, 0L)
+                .get(5, TimeUnit.SECONDS);
+    }
+
+    private void assertExceeds(String message) throws Exception {
+        try {
+            fetch();
+            fail("Expected the cap to be enforced");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+            assertTrue(e.getCause().getMessage(), e.getCause().getMessage().startsWith(message));
+        }
+    }
+
+    private String url() {
+        return "http://127.0.0.1:" + server.getLocalPort() + "/page";
+    }
+
+    private static Reply plain(String body, boolean close) {
+        byte[] bytes = ascii(body);
+        Reply reply = new Reply(close);
+        reply.add(ascii("HTTP/1.1 200 OK\r\nContent-Type: text/html\r\nContent-Length: " + bytes.length
+                + (close ? "\r\nConnection: close" : "") + "\r\n\r\n"));
+        reply.add(bytes);
+        return reply;
+    }
+
+    /**
+     * Builds a gzip member with the FEXTRA, FHCRC and, given a name, FNAME
+     * flags set.
+     */
+    private static byte[] gzip(byte[] data, byte[] name) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int flags = 0x02 | 0x04 | (name != null ? 0x08 : 0);
+        out.write(new byte[]{0x1f, (byte) 0x8b, 8, (byte) flags, 0, 0, 0, 0, 0, (byte) 0xff});
+        out.write(new byte[]{3, 0, 'a', 'b', 'c'});
+        if (name != null) {
+            out.write(name);
+            out.write(0);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(out.toByteArray());
+        writeLittleEndian(out, crc.getValue(), 2);
+
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(data);
+        deflater.finish();
+        byte[] buf = new byte[512];
+        while (!deflater.finished()) {
+            out.write(buf, 0, deflater.deflate(buf));
+        }
+        deflater.end();
+
+        crc.reset();
+        crc.update(data);
+        writeLittleEndian(out, crc.getValue(), 4);
+        writeLittleEndian(out, data.length, 4);
+        return out.toByteArray();
+    }
+
+    private static void writeLittleEndian(ByteArrayOutputStream out, long value, int bytes) {
+        for (int i = 0; i < bytes; i++) {
+            out.write((int) (value >>> (8 * i)) & 0xff);
+        }
+    }
+
+    private static byte[] slice(byte[] b, int from, int to) {
+        byte[] part = new byte[to - from];
+        System.arraycopy(b, from, part, 0, part.length);
+        return part;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Serves queued replies on one connection until the client closes it or
+     * a reply asks to close.
+     */
+    private void serve(Socket socket) {
+        try (Socket s = socket) {
+            s.setTcpNoDelay(true);
+            InputStream in = s.getInputStream();
+            OutputStream out = s.getOutputStream();
+            while (true) {
+                int matched = 0;
+                while (matched < 4) {
+                    int b = in.read();
+                    if (b < 0) return;
+                    matched = b == "\r\n\r\n".charAt(matched) ? matched + 1 : b == '\r' ? 1 : 0;
+                }
+                Reply reply = replies.poll();
+                if (reply == null) return;
+                for (byte[] piece : reply.pieces) {
+                    out.write(piece);
+                    out.flush();
+                    Thread.sleep(5);
+                }
+                if (reply.close) return;
+            }
+        } catch (IOException | InterruptedException e) {
+            // the engine closed the connection
+        }
+    }
+
+    /**
+     * A response written piece by piece, each piece flushed on its own.
+     */
+    private static class Reply {
+        final List<byte[]> pieces = new ArrayList<>();
+        final boolean close;
+
+        Reply(boolean close) {
+            this.close = close;
+        }
+
+        void add(byte[] piece) {
+            pieces.add(piece);
+        }
+    }
+}
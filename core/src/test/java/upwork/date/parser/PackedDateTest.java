@@ -0,0 +1,48 @@
+package upwork.date.parser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the packing, formatting and ordering of {@link PackedDate}.
+ */
+public class PackedDateTest {
+
+    @Test
+    public void packsAndFormats() {
+        int packed = PackedDate.of(2025, 3, 7);
+        assertEquals(20250307, packed);
+        assertEquals(2025, PackedDate.year(packed));
+        assertEquals(3, PackedDate.month(packed));
+        assertEquals(7, PackedDate.day(packed));
+        assertEquals("07.03.2025", PackedDate.format(packed));
+        assertEquals("", PackedDate.format(PackedDate.NONE));
+    }
+
+    @Test
+    public void parsesEveryFormatToTheSameValue() {
+        int packed = PackedDate.of(2024, 2, 29);
+        assertEquals(packed, PackedDate.parse("29.02.2024"));
+        assertEquals(packed, PackedDate.parse("29/02/2024"));
+        assertEquals(packed, PackedDate.parse("2024-02-29"));
+        assertEquals("29.02.2024", PackedDate.format(PackedDate.parse("2024-02-29")));
+    }
+
+    @Test
+    public void rejectsInvalidDates() {
+        assertEquals(PackedDate.NONE, PackedDate.parse("29.02.2023"));
+        assertEquals(PackedDate.NONE, PackedDate.parse("31.06.2025"));
+        assertEquals(PackedDate.NONE, PackedDate.parse("1.10.2025"));
+        assertEquals(PackedDate.NONE, PackedDate.parse("tomorrow"));
+        assertEquals(PackedDate.NONE, PackedDate.parse(null));
+    }
+
+    @Test
+    public void ordersLikeTheDates() {
+        assertTrue(PackedDate.parse("31.12.2024") < PackedDate.parse("01.01.2025"));
+        assertTrue(PackedDate.parse("30.09.2025") < PackedDate.parse("01.10.2025"));
+        assertTrue(PackedDate.parse("01.10.2025") < PackedDate.parse("02.10.2025"));
+        assertTrue(PackedDate.NONE < PackedDate.parse("01.01.1000"));
+    }
+}
@@ -0,0 +1,131 @@
+package upwork.date.parser;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs {@link PushSubscriber} against a local Server-Sent Events stand-in.
+ */
+public class PushSubscriberTest {
+
+    private HttpServer server;
+    private PushSubscriber subscriber;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final List<String> lastEventIds = new CopyOnWriteArrayList<>();
+    private final List<String> dates = new CopyOnWriteArrayList<>();
+    private final CountDownLatch connected = new CountDownLatch(1);
+    private final CountDownLatch fallback = new CountDownLatch(1);
+    private volatile CountDownLatch received = new CountDownLatch(1);
+
+    /** Behaviour of the stand-in per request number, starting at 1. */
+    private interface Handler {
+        void handle(int request, HttpExchange exchange) throws IOException;
+    }
+
+    private volatile Handler handler;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/events", exchange -> {
+            lastEventIds.add(String.valueOf(exchange.getRequestHeaders().getFirst("Last-Event-ID")));
+            try {
+                handler.handle(requests.incrementAndGet(), exchange);
+            } finally {
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        subscriber = new PushSubscriber(new PushSubscriber.Listener() {
+            @Override
+            public void onConnected(Monitor monitor) {
+                connected.countDown();
+            }
+            @Override
+            public void onDate(Monitor monitor, String date) {
+                dates.add(date);
+                received.countDown();
+            }
+            @Override
+            public void onFallback(Monitor monitor) {
+                fallback.countDown();
+            }
+        }, 10L, 50L, 2, 5_000);
+    }
+
+    @After
+    public void tearDown() {
+        subscriber.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    public void receivesPushedDates() throws Exception {
+        handler = (request, exchange) -> stream(exchange,
+                ": heartbeat\n\nevent: date\nid: 1\ndata: 31.10.2025\n\nevent: other\ndata: x\n\n");
+        subscribe();
+        assertTrue(connected.await(5, TimeUnit.SECONDS));
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+        assertEquals("31.10.2025", dates.get(0));
+    }
+
+    @Test
+    public void reconnectsWithLastEventId() throws Exception {
+        received = new CountDownLatch(2);
+        handler = (request, exchange) -> stream(exchange,
+                "id: " + request + "\ndata: 0" + request + ".11.2025\n\n");
+        subscribe();
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+        assertEquals("01.11.2025", dates.get(0));
+        assertEquals("02.11.2025", dates.get(1));
+        assertEquals("null", lastEventIds.get(0));
+        assertEquals("1", lastEventIds.get(1));
+    }
+
+    @Test
+    public void fallsBackWhenTheServerFails() throws Exception {
+        handler = (request, exchange) -> {
+            if (request == 1) {
+                stream(exchange, "data: 31.10.2025\n\n");
+            } else {
+                exchange.sendResponseHeaders(503, -1);
+            }
+        };
+        subscribe();
+        assertTrue(connected.await(5, TimeUnit.SECONDS));
+        assertTrue(fallback.await(5, TimeUnit.SECONDS));
+        assertTrue(requests.get() >= 2);
+    }
+
+    private void subscribe() {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/events";
+        subscriber.subscribe(Collections.singletonList(new Monitor(
+                1L, "http://127.0.0.1/page", "31.10.2025", PollPolicy.withDefaults(10), url)));
+    }
+
+    private static void stream(HttpExchange exchange, String body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
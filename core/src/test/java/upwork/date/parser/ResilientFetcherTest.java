@@ -0,0 +1,151 @@
+package upwork.date.parser;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs {@link ResilientFetcher} against a local server that stalls one
+ * request, and checks that the hedged request wins and the stalled one is
+ * aborted instead of being left to run out its timeout.
+ */
+public class ResilientFetcherTest {
+
+    private static final String DATE = "31.10.2025";
+    private static final int STALL_MILLIS = 3_000;
+
+    private ServerSocket server;
+    private Thread acceptor;
+    private NioHttpEngine engine;
+    private final AtomicBoolean stallNext = new AtomicBoolean();
+    private final CountDownLatch aborted = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        acceptor = new Thread(() -> {
+            while (!server.isClosed()) {
+                try {
+                    final Socket socket = server.accept();
+                    Thread t = new Thread(() -> serve(socket));
+                    t.setDaemon(true);
+                    t.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+        if (engine != null) engine.close();
+    }
+
+    @Test
+    public void cancelsTheStalledBlockingAttempt() throws Exception {
+        hedgeWinsAndStalledAttemptIsAborted(new ResilientFetcher(policy()));
+    }
+
+    @Test
+    public void cancelsTheStalledEngineAttempt() throws Exception {
+        engine = new NioHttpEngine(Constants.MAX_RESPONSE_BYTES, 2, Constants.KEEP_ALIVE_MILLIS);
+        hedgeWinsAndStalledAttemptIsAborted(new ResilientFetcher(policy(), engine));
+    }
+
+    @Test
+    public void failsAtTheDeadlineAndAbortsTheAttempt() throws Exception {
+        ResilientFetcher fetcher = new ResilientFetcher(
+                new FetchPolicy(1_000, STALL_MILLIS * 2, 300, 0, 10L, 0, 0, 0L));
+        stallNext.set(true);
+        long start = System.nanoTime();
+        try {
+            fetcher.fetch(url(), DateExtractor.getDefault(), null);
+            fail("Expected the deadline to pass");
+        } catch (SocketTimeoutException expected) {
+            // the deadline of 300 ms passed
+        }
+        assertTrue(millisSince(start) < STALL_MILLIS);
+        assertTrue(aborted.await(STALL_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    private void hedgeWinsAndStalledAttemptIsAborted(ResilientFetcher fetcher) throws Exception {
+        // Enough fast samples for the host's hedge threshold.
+        for (int i = 0; i < 10; i++) {
+            assertEquals(DATE, fetcher.fetch(url(), DateExtractor.getDefault(), null).date);
+        }
+        // Let hedges cancelled during the warm-up reach the server first.
+        Thread.sleep(200);
+        stallNext.set(true);
+        long start = System.nanoTime();
+        assertEquals(DATE, fetcher.fetch(url(), DateExtractor.getDefault(), null).date);
+        assertTrue(millisSince(start) < STALL_MILLIS);
+        assertTrue(aborted.await(STALL_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Hedges after the median latency, without retries or a breaker.
+     */
+    private static FetchPolicy policy() {
+        return new FetchPolicy(1_000, STALL_MILLIS * 2, STALL_MILLIS * 2, 0, 10L, 50, 0, 0L);
+    }
+
+    private String url() {
+        return "http://127.0.0.1:" + server.getLocalPort() + "/page";
+    }
+
+    private static long millisSince(long start) {
+        return (System.nanoTime() - start) / 1_000_000L;
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket) {
+            InputStream in = s.getInputStream();
+            int matched = 0;
+            while (matched < 4) {
+                int b = in.read();
+                if (b < 0) return;
+                matched = b == "\r\n\r\n".charAt(matched) ? matched + 1 : b == '\r' ? 1 : 0;
+            }
+            if (stallNext.compareAndSet(true, false)) {
+                // Never answer; the client closing the connection ends the read.
+                s.setSoTimeout(STALL_MILLIS * 2);
+                try {
+                    if (in.read() < 0) aborted.countDown();
+                } catch (SocketTimeoutException e) {
+                    // left hanging: not aborted
+                } catch (IOException e) {
+                    // reset by the client
+                    aborted.countDown();
+                }
+                return;
+            }
+            byte[] body = ("<html><body><script>var minmax = '#minmax'; var range = '01.01.2025 - "
+                    + DATE + "';</script></body></html>").getBytes(StandardCharsets.UTF_8);
+            OutputStream out = s.getOutputStream();
+            out.write(("HTTP/1.1 200 OK\r\nContent-Type: text/html\r\nContent-Length: " + body.length
+                    + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(body);
+            out.flush();
+        } catch (IOException e) {
+            // a warm-up request whose hedge was cancelled
+        }
+    }
+}
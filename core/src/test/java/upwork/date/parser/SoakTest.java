@@ -0,0 +1,262 @@
+package upwork.date.parser;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Soak harness for the check and schedule logic. A {@link MonitorScheduler} on
+ * virtual time checks several monitors against a {@link FaultyServer} that
+ * injects latency, timeouts, 5xx responses, huge bodies and date flips, while
+ * the monitors are reconfigured now and then like the service does when the
+ * interval changes. Every check is verified against the date the server
+ * served, and the alarm state is verified after every step. By default the
+ * pages are fetched on a {@link NioHttpEngine}; {@code -Psoak.nio=false} uses
+ * the blocking fetch instead.
+ * <p>
+ * The run prints a report and fails if a release gate is exceeded. The gates
+ * and the run length come from system properties, e.g.
+ * {@code ./gradlew :core:soak -Psoak.cycles=50000}.
+ */
+public class SoakTest {
+
+    private static final int CHECKS = Integer.getInteger("soak.cycles", 1000);
+    private static final int MONITORS = Integer.getInteger("soak.monitors", 8);
+    private static final long SEED = Long.getLong("soak.seed", 42L);
+    private static final long MAX_DRIFT_MILLIS = Long.getLong("soak.maxDriftMillis", 1000L);
+    private static final int MAX_THREAD_GROWTH = Integer.getInteger("soak.maxThreadGrowth", 16);
+    private static final long MAX_HEAP_MB = Long.getLong("soak.maxHeapMb", 512L);
+    private static final boolean NIO = Boolean.parseBoolean(System.getProperty("soak.nio", "true"));
+    private static final int RECONFIGURE_EVERY = 50;
+    private static final double FLIP_RATE = 0.2;
+    private static final long STEP_TIMEOUT_SECONDS = 30;
+
+    private static final String TARGET = "31.10.2025";
+    private static final String OTHER = "30.11.2025";
+
+    private final Random random = new Random(SEED);
+    private final VirtualTimer timer = new VirtualTimer();
+    private final Semaphore rescheduled = new Semaphore(0);
+    private final AlarmStateMachine alarm = new AlarmStateMachine();
+
+    private final Map<Long, Long> expectedAt = new ConcurrentHashMap<>();
+    private final Map<Long, Boolean> mismatched = new ConcurrentHashMap<>();
+    private final Map<Long, Boolean> truthMismatched = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> errors = new ConcurrentHashMap<>();
+    private final AtomicLong maxDrift = new AtomicLong();
+    private final AtomicLong totalDrift = new AtomicLong();
+    private final AtomicInteger driftSamples = new AtomicInteger();
+    private final AtomicInteger wrongDates = new AtomicInteger();
+
+    private FaultyServer server;
+    private FetchPool pool;
+    private NioHttpEngine engine;
+    private MonitorScheduler scheduler;
+    private List<Monitor> monitors;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FaultyServer(SEED,
+                new double[] {0.10, 0.02, 0.03, 0.02}, 20, 250, 2 * 1024 * 1024);
+        pool = new FetchPool(4, 2);
+        engine = NIO ? new NioHttpEngine(Constants.MAX_RESPONSE_BYTES, 2, Constants.KEEP_ALIVE_MILLIS) : null;
+        SharedFetcher fetcher = new SharedFetcher(0, engine,
+                new FetchPolicy(500, 100, 800, 1, 10L, 95, 5, 50L));
+        scheduler = new MonitorScheduler(pool, fetcher, DateExtractor.getDefault(),
+                new Recorder(), timer, timer.clock());
+        monitors = new ArrayList<>();
+        for (long id = 1; id <= MONITORS; id++) {
+            server.setDate(id, TARGET);
+            monitors.add(new Monitor(id, server.url(id), TARGET, new PollPolicy(5, 60, 1.5, 0.1)));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+        if (engine != null) {
+            engine.close();
+        }
+        server.stop();
+    }
+
+    @Test
+    public void soak() throws Exception {
+        for (MemoryPoolMXBean bean : ManagementFactory.getMemoryPoolMXBeans()) {
+            bean.resetPeakUsage();
+        }
+        scheduler.schedule(monitors);
+
+        int checks = 0;
+        int steps = 0;
+        int wrongAlarms = 0;
+        int baselineThreads = -1;
+        int peakThreads = 0;
+        long[] latencies = new long[CHECKS + MONITORS];
+        long wallStart = System.nanoTime();
+        while (checks < CHECKS) {
+            steps++;
+            if (random.nextDouble() < FLIP_RATE) {
+                long id = 1 + random.nextInt(MONITORS);
+                server.setDate(id, TARGET.equals(server.getDate(id)) ? OTHER : TARGET);
+            }
+            if (steps % RECONFIGURE_EVERY == 0) {
+                reconfigure();
+            }
+
+            long stepStart = System.nanoTime();
+            int fired = timer.runDue();
+            assertTrue("No check is scheduled any more after " + checks + " checks", fired > 0);
+            assertTrue("Checks stalled at virtual time " + timer.now(),
+                    rescheduled.tryAcquire(fired, STEP_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            long stepMillis = (System.nanoTime() - stepStart) / 1_000_000L;
+            for (int i = 0; i < fired && checks < latencies.length; i++) {
+                latencies[checks++] = stepMillis;
+            }
+
+            boolean expectRinging = truthMismatched.containsValue(Boolean.TRUE);
+            if (expectRinging != (alarm.getState() == AlarmStateMachine.State.RINGING)) {
+                wrongAlarms++;
+            }
+            int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+            if (baselineThreads < 0 && checks >= MONITORS * 4) {
+                baselineThreads = threads;
+            }
+            peakThreads = Math.max(peakThreads, threads);
+        }
+        long wallMillis = (System.nanoTime() - wallStart) / 1_000_000L;
+        int endThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+        long heapPeakMb = heapPeakBytes() / (1024 * 1024);
+        long missed = missedChecks();
+        SchedulerHealth health = scheduler.getHealth();
+
+        Arrays.sort(latencies, 0, checks);
+        System.out.println(String.format(
+                "soak: %d checks in %d steps, %.1f virtual days, %d ms wall, seed %d, %s fetch",
+                checks, steps, timer.now() / 86_400_000.0, wallMillis, SEED, NIO ? "nio" : "blocking"));
+        System.out.println("soak: faults served " + server.served() + ", check errors " + errors);
+        System.out.println(String.format("soak: step wall time p50 %d ms, p99 %d ms, max %d ms",
+                latencies[checks / 2], latencies[checks * 99 / 100], latencies[checks - 1]));
+        System.out.println(String.format("soak: drift max %d ms, mean %.1f ms, missed checks %d",
+                maxDrift.get(), totalDrift.get() / (double) Math.max(1, driftSamples.get()), missed));
+        System.out.println(String.format("soak: scheduler drift max %d ms, missed %d, restarts %d",
+                health.maxDriftMillis, health.missedChecks, health.restarts));
+        System.out.println(String.format("soak: threads baseline %d, peak %d, end %d",
+                baselineThreads, peakThreads, endThreads));
+        System.out.println(String.format("soak: heap high-water %d MB", heapPeakMb));
+        System.out.println(String.format("soak: wrong dates %d, wrong alarm states %d",
+                wrongDates.get(), wrongAlarms));
+
+        assertEquals("Checks returned a date the server did not serve", 0, wrongDates.get());
+        assertEquals("Alarm state disagreed with the served dates", 0, wrongAlarms);
+        assertEquals("Monitors were not checked when due", 0, missed);
+        assertTrue("Drift " + maxDrift.get() + " ms", maxDrift.get() <= MAX_DRIFT_MILLIS);
+        assertTrue("Thread count grew from " + baselineThreads + " to " + endThreads,
+                endThreads - baselineThreads <= MAX_THREAD_GROWTH);
+        assertTrue("Heap high-water " + heapPeakMb + " MB", heapPeakMb <= MAX_HEAP_MB);
+    }
+
+    /**
+     * Toggles the base interval of one monitor, which reschedules it in place
+     * the way the service applies a changed interval.
+     */
+    private void reconfigure() {
+        int index = random.nextInt(monitors.size());
+        Monitor old = monitors.get(index);
+        int minutes = old.policy.baseMinutes == 5 ? 10 : 5;
+        Monitor changed = new Monitor(old.id, old.url, old.target,
+                new PollPolicy(minutes, 60, 1.5, 0.1));
+        monitors.set(index, changed);
+        scheduler.schedule(new ArrayList<>(monitors));
+        ScheduleEntry entry = scheduler.getScheduleEntry(changed.id);
+        assertNotNull(entry);
+        expectedAt.put(changed.id, entry.dueAtMillis);
+    }
+
+    /**
+     * Counts monitors whose expected check time has passed without a check.
+     */
+    private long missedChecks() {
+        long now = timer.now();
+        long missed = 0;
+        for (Long due : expectedAt.values()) {
+            if (due < now) missed++;
+        }
+        return missed + Math.max(0, MONITORS - timer.pending());
+    }
+
+    private static long heapPeakBytes() {
+        long total = 0;
+        for (MemoryPoolMXBean bean : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (bean.getType() == MemoryType.HEAP) {
+                total += bean.getPeakUsage().getUsed();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Collects drift, correctness and errors on the fetch pool threads.
+     */
+    private class Recorder implements MonitorScheduler.Listener {
+
+        @Override
+        public void onChecked(Monitor monitor, DateFetcher.Result result) {
+            recordDrift(monitor);
+            String served = server.getDate(monitor.id);
+            if (!served.equals(result.date)) {
+                wrongDates.incrementAndGet();
+            }
+            truthMismatched.put(monitor.id, !TARGET.equals(served));
+            mismatched.put(monitor.id, !monitor.matches(result));
+            synchronized (alarm) {
+                if (mismatched.containsValue(Boolean.TRUE)) {
+                    alarm.ring();
+                } else {
+                    alarm.reset();
+                }
+            }
+        }
+
+        @Override
+        public void onFailed(Monitor monitor, Throwable error, int latencyMillis) {
+            recordDrift(monitor);
+            errors.computeIfAbsent(error.getClass().getSimpleName(), k -> new AtomicInteger())
+                    .incrementAndGet();
+        }
+
+        @Override
+        public void onRescheduled(Monitor monitor, long delayMillis) {
+            expectedAt.put(monitor.id, timer.now() + delayMillis);
+            rescheduled.release();
+        }
+
+        private void recordDrift(Monitor monitor) {
+            Long expected = expectedAt.remove(monitor.id);
+            if (expected == null) return;
+            long drift = Math.abs(timer.now() - expected);
+            totalDrift.addAndGet(drift);
+            driftSamples.incrementAndGet();
+            long max;
+            while (drift > (max = maxDrift.get()) && !maxDrift.compareAndSet(max, drift)) {
+                // retry
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package upwork.date.parser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Table tests for {@link TargetRules}: each phrase is compiled once and
+ * checked against dates on and around its bounds.
+ */
+public class TargetRulesTest {
+
+    /** Phrase, fetched value and the description of the rule expected to fire, null for a match. */
+    private static final String[][] CASES = {
+            // a single expected date
+            {"31.10.2025", "31.10.2025", null},
+            {"31.10.2025", "2025-10-31", null},
+            {"31.10.2025", "30.10.2025", "not 31.10.2025"},
+            {"31.10.2025", "01.11.2025", "not 31.10.2025"},
+            // expected ranges, inclusive and in either order
+            {"01.11.2025..05.11.2025", "31.10.2025", "not 01.11.2025..05.11.2025"},
+            {"01.11.2025..05.11.2025", "01.11.2025", null},
+            {"01.11.2025..05.11.2025", "05.11.2025", null},
+            {"01.11.2025..05.11.2025", "06.11.2025", "not 01.11.2025..05.11.2025"},
+            {"05.11.2025..01.11.2025", "03.11.2025", null},
+            // several expected dates and ranges share one rule
+            {"31.10.2025, 03.11.2025..04.11.2025", "31.10.2025", null},
+            {"31.10.2025, 03.11.2025..04.11.2025", "04.11.2025", null},
+            {"31.10.2025, 03.11.2025..04.11.2025", "01.11.2025",
+                    "not 31.10.2025, 03.11.2025..04.11.2025"},
+            // exclusions
+            {"!31.10.2025", "31.10.2025", "is 31.10.2025"},
+            {"!31.10.2025", "01.11.2025", null},
+            {"!01.11.2025..05.11.2025", "31.10.2025", null},
+            {"!01.11.2025..05.11.2025", "01.11.2025", "in 01.11.2025..05.11.2025"},
+            {"!01.11.2025..05.11.2025", "05.11.2025", "in 01.11.2025..05.11.2025"},
+            {"!01.11.2025..05.11.2025", "06.11.2025", null},
+            // open bounds
+            {"<01.10.2025", "30.09.2025", "before 01.10.2025"},
+            {"<01.10.2025", "01.10.2025", null},
+            {">01.10.2025", "01.10.2025", null},
+            {">01.10.2025", "02.10.2025", "after 01.10.2025"},
+            {"<01.10.2025; >31.10.2025", "15.10.2025", null},
+            {"<01.10.2025; >31.10.2025", "01.01.2024", "before 01.10.2025"},
+            {"<01.10.2025; >31.10.2025", "01.01.2026", "after 31.10.2025"},
+            // overlapping rules: the first one listed wins
+            {"!01.11.2025..10.11.2025, >05.11.2025", "07.11.2025", "in 01.11.2025..10.11.2025"},
+            {"!01.11.2025..10.11.2025, >05.11.2025", "11.11.2025", "after 05.11.2025"},
+            {">05.11.2025, !01.11.2025..10.11.2025", "07.11.2025", "after 05.11.2025"},
+            {">05.11.2025, !01.11.2025..10.11.2025", "03.11.2025", "in 01.11.2025..10.11.2025"},
+            {"01.11.2025..10.11.2025, !05.11.2025", "05.11.2025", "is 05.11.2025"},
+            {"01.11.2025..10.11.2025, !05.11.2025", "06.11.2025", null},
+            {"01.11.2025..10.11.2025\n!05.11.2025", "12.11.2025", "not 01.11.2025..10.11.2025"},
+            // values that are not dates fire the first rule
+            {"!31.10.2025, <01.10.2025", "", "is 31.10.2025"},
+            {"<01.10.2025", "soon", "before 01.10.2025"},
+            {"31.10.2025", "31.02.2025", "not 31.10.2025"},
+            // anything else is compared as plain text
+            {"closed", "closed", null},
+            {"closed", "open", "not closed"},
+            {"31.10.2025, soon", "31.10.2025", "not 31.10.2025, soon"},
+            {"31.10.2025, soon", "31.10.2025, soon", null},
+            {"<01.10.2025..05.10.2025", "01.01.2025", "not <01.10.2025..05.10.2025"},
+            {"31.10.25", "31.10.25", null},
+    };
+
+    @Test
+    public void firesTheExpectedRule() {
+        for (String[] row : CASES) {
+            TargetRules rules = TargetRules.compile(row[0]);
+            String value = row[1];
+            String message = row[0] + " / " + value;
+            int rule = rules.firedRule(PackedDate.parse(value), value);
+            assertEquals(message, row[2], rules.describe(rule));
+            assertEquals(message, row[2] == null, rules.matches(PackedDate.parse(value), value));
+        }
+    }
+
+    @Test
+    public void countsTheRules() {
+        assertEquals(1, TargetRules.compile("31.10.2025").size());
+        assertEquals(1, TargetRules.compile("31.10.2025, 01.11.2025..02.11.2025").size());
+        assertEquals(3, TargetRules.compile("31.10.2025, !01.11.2025, >05.11.2025").size());
+        assertEquals(1, TargetRules.compile("closed").size());
+        assertEquals(TargetRules.NONE, TargetRules.compile("closed").firedRule(PackedDate.NONE, "closed"));
+        assertNull(TargetRules.compile("closed").describe(TargetRules.NONE));
+    }
+
+    @Test
+    public void keepsThePhrase() {
+        assertEquals("31.10.2025, !01.11.2025", TargetRules.compile("31.10.2025, !01.11.2025").toString());
+    }
+}
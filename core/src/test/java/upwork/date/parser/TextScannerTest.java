@@ -0,0 +1,51 @@
+package upwork.date.parser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Feeds {@link TextScanner} text in chunks and checks that only dates after
+ * the marker count, wherever the chunks are cut.
+ */
+public class TextScannerTest {
+
+    @Test
+    public void takesTheFirstDateWithoutAMarker() {
+        assertEquals("31.10.2025", scan("", "Next: 31.10.2025, then 07.11.2025"));
+        assertEquals("31.10.2025", scan("", "Next: 31.1", "0.2025"));
+        assertNull(scan("", "no date", " here"));
+    }
+
+    @Test
+    public void skipsADateBeforeTheMarker() {
+        assertEquals("07.11.2025", scan("Ends:", "Start 31.10.2025 Ends:", " soon, 07.11.2025"));
+        assertEquals("07.11.2025", scan("Ends:", "31.10.2025Ends: 07.11.2025"));
+        assertEquals("07.11.2025", scan("Ends:", "31.10.2025Ends:", "07.11.2025"));
+        assertNull(scan("Ends:", "Start 31.10.2025 Ends:", " soon"));
+    }
+
+    @Test
+    public void findsAMarkerSplitAcrossChunks() {
+        assertEquals("07.11.2025", scan("Ends:", "Start 31.10.2025 En", "ds: 07.11.2025"));
+        assertEquals("07.11.2025", scan("Ends:", "31.10.2025 E", "n", "d", "s", ":", " 07.11.2025"));
+        assertNull(scan("Ends:", "31.10.2025 En", "d: 07.11.2025"));
+    }
+
+    @Test
+    public void findsADateSplitAfterTheMarker() {
+        assertEquals("07.11.2025", scan("Ends:", "31.10.2025 Ends: 07.1", "1.2025"));
+        // A long gap after the marker trims it from the window.
+        assertEquals("07.11.2025", scan("Ends:", "31.10.2025 Ends:", " and a long while later on ",
+                "07.", "11.2025"));
+    }
+
+    private static String scan(String marker, String... chunks) {
+        TextScanner scanner = new TextScanner(marker);
+        for (String chunk : chunks) {
+            char[] buf = ("##" + chunk).toCharArray();
+            if (scanner.feed(buf, 2, chunk.length())) break;
+        }
+        return scanner.result();
+    }
+}
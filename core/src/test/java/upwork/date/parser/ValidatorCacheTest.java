@@ -0,0 +1,100 @@
+package upwork.date.parser;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Reads one page with two extraction rules through one {@link ValidatorCache}
+ * and checks that a 304 answer returns the date of the rule that asked.
+ */
+public class ValidatorCacheTest {
+
+    private static final String PAGE = "<html><body>"
+            + "<script>var minmax = '#minmax'; var range = '01.01.2025 - 31.10.2025';</script>"
+            + "<p>Next: 07.11.2025</p></body></html>";
+    private static final String ETAG = "\"v1\"";
+
+    private HttpServer server;
+    private NioHttpEngine engine;
+    private final AtomicInteger notModified = new AtomicInteger();
+    private final DateExtractor script = DateExtractor.getDefault();
+    private final DateExtractor text = DateExtractor.forRule(
+            new DateExtractor.Rule(SourceType.TEXT, "Next:", "", null));
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/page", exchange -> {
+            try {
+                exchange.getResponseHeaders().set("ETag", ETAG);
+                if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    notModified.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                    return;
+                }
+                byte[] body = PAGE.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } finally {
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        if (engine != null) engine.close();
+    }
+
+    @Test
+    public void keepsTheDateOfEachRuleWhenBlocking() throws IOException {
+        ValidatorCache cache = new ValidatorCache();
+        assertEquals("31.10.2025", DateFetcher.fetch(url(), script, cache).date);
+        assertEquals("07.11.2025", DateFetcher.fetch(url(), text, cache).date);
+
+        DateFetcher.Result first = DateFetcher.fetch(url(), script, cache);
+        DateFetcher.Result second = DateFetcher.fetch(url(), text, cache);
+        assertEquals(2, notModified.get());
+        assertTrue(first.unchanged);
+        assertEquals("31.10.2025", first.date);
+        assertTrue(second.unchanged);
+        assertEquals("07.11.2025", second.date);
+    }
+
+    @Test
+    public void keepsTheDateOfEachRuleOnTheEngine() throws Exception {
+        engine = new NioHttpEngine(Constants.MAX_RESPONSE_BYTES, 2, Constants.KEEP_ALIVE_MILLIS);
+        ValidatorCache cache = new ValidatorCache();
+        assertEquals("31.10.2025", fetchAsync(script, cache).date);
+        assertEquals("07.11.2025", fetchAsync(text, cache).date);
+
+        assertEquals("31.10.2025", fetchAsync(script, cache).date);
+        assertEquals("07.11.2025", fetchAsync(text, cache).date);
+        assertEquals(2, notModified.get());
+    }
+
+    private DateFetcher.Result fetchAsync(DateExtractor extractor, ValidatorCache cache) throws Exception {
+        return DateFetcher.fetchAsync(url(), extractor, cache, 1_000, 1_000, 0L, engine, Runnable::run).get();
+    }
+
+    private String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/page";
+    }
+}
@@ -0,0 +1,227 @@
+package upwork.date.parser;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduled executor on virtual time. Nothing runs on its own: the test calls
+ * {@link #runDue()}, which jumps the clock to the earliest scheduled task and
+ * runs every task due at that instant on the calling thread. Days of schedule
+ * therefore pass in the time the checks themselves take.
+ */
+class VirtualTimer extends AbstractExecutorService implements ScheduledExecutorService {
+
+    private final PriorityQueue<Task> queue = new PriorityQueue<>();
+    private final Clock clock = new Clock() {
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return now();
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(now());
+        }
+    };
+    private long now;
+    private long sequence;
+    private boolean shutdown;
+
+    /**
+     * @return Clock that reads the virtual time
+     */
+    Clock clock() {
+        return clock;
+    }
+
+    /**
+     * @return Current virtual time in milliseconds
+     */
+    synchronized long now() {
+        return now;
+    }
+
+    /**
+     * @return Number of scheduled tasks that are not cancelled
+     */
+    synchronized int pending() {
+        int count = 0;
+        for (Task task : queue) {
+            if (!task.cancelled) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Advances the clock to the earliest scheduled task and runs all tasks due
+     * at that time.
+     * @return Number of tasks run, 0 if nothing is scheduled
+     */
+    int runDue() {
+        List<Task> due = new ArrayList<>();
+        synchronized (this) {
+            Task head;
+            while ((head = queue.peek()) != null && head.cancelled) {
+                queue.poll();
+            }
+            if (head == null) {
+                return 0;
+            }
+            now = Math.max(now, head.dueAt);
+            while ((head = queue.peek()) != null && head.dueAt <= now) {
+                queue.poll();
+                if (!head.cancelled) due.add(head);
+            }
+        }
+        for (Task task : due) {
+            task.run();
+        }
+        return due.size();
+    }
+
+    @Override
+    public synchronized ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        if (shutdown) {
+            throw new IllegalStateException("Timer is shut down");
+        }
+        Task task = new Task(command, now + Math.max(0L, unit.toMillis(delay)), sequence++);
+        queue.add(task);
+        return task;
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay,
+                                                  long period, TimeUnit unit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay,
+                                                     long delay, TimeUnit unit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        schedule(command, 0L, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        shutdown = true;
+    }
+
+    @Override
+    public synchronized List<Runnable> shutdownNow() {
+        shutdown = true;
+        queue.clear();
+        return Collections.emptyList();
+    }
+
+    @Override
+    public synchronized boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public synchronized boolean isTerminated() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) {
+        return isTerminated();
+    }
+
+    /**
+     * One scheduled task, ordered by due time and then by submission.
+     */
+    private class Task implements ScheduledFuture<Object> {
+
+        final Runnable command;
+        final long dueAt;
+        final long sequence;
+        volatile boolean cancelled;
+        volatile boolean done;
+
+        Task(Runnable command, long dueAt, long sequence) {
+            this.command = command;
+            this.dueAt = dueAt;
+            this.sequence = sequence;
+        }
+
+        void run() {
+            try {
+                command.run();
+            } finally {
+                done = true;
+            }
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAt - now(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            Task other = (Task) o;
+            if (dueAt != other.dueAt) return Long.compare(dueAt, other.dueAt);
+            return Long.compare(sequence, other.sequence);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (done) return false;
+            cancelled = true;
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done || cancelled;
+        }
+
+        @Override
+        public Object get() {
+            return null;
+        }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit) {
+            return null;
+        }
+    }
+}